@@ -8,6 +8,7 @@ import io.virtuellewolke.authentication.core.database.repository.AuthorityReposi
 import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
 import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
 import io.virtuellewolke.authentication.core.database.repository.ServiceRepository;
+import io.virtuellewolke.authentication.core.spring.components.PasswordManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
@@ -24,6 +25,7 @@ public class AuthenticationServerInit implements InitializingBean {
     private final ServiceRepository        serviceRepository;
     private final ClientAuthCertRepository clientAuthCertRepository;
     private final TicketManager            ticketManager;
+    private final PasswordManager          passwordManager;
 
     @Override
     public void afterPropertiesSet() {
@@ -59,6 +61,7 @@ public class AuthenticationServerInit implements InitializingBean {
             Identity identity = new Identity();
             identity.setUsername("admin");
             identity.setPassword("admin");
+            passwordManager.applyNewPassword(identity);
             identity.setAdmin(true);
             identity.setEmail("admin@example.com");
             identity.setDisplayName("Administrator");
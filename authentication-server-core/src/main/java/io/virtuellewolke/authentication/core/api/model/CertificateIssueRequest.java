@@ -0,0 +1,13 @@
+package io.virtuellewolke.authentication.core.api.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+public class CertificateIssueRequest {
+    private Integer identityId;
+    private String  deviceName;
+}
@@ -0,0 +1,28 @@
+package io.virtuellewolke.authentication.core.api.model;
+
+import io.virtuellewolke.authentication.core.spring.components.PfxIssuanceJobs;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Admin view of a {@link PfxIssuanceJobs.Job}, includes the identity the certificate is issued for.
+ */
+@Getter
+@ToString
+public class CertificateJob {
+    private final String                 id;
+    private final String                 deviceName;
+    private final Integer                identityId;
+    private final PfxIssuanceJobs.Status status;
+
+    public CertificateJob(String id, String deviceName, Integer identityId, PfxIssuanceJobs.Status status) {
+        this.id         = id;
+        this.deviceName = deviceName;
+        this.identityId = identityId;
+        this.status     = status;
+    }
+
+    public static CertificateJob of(PfxIssuanceJobs.Job job) {
+        return new CertificateJob(job.getId(), job.getDeviceName(), job.getIdentityId(), job.getStatus());
+    }
+}
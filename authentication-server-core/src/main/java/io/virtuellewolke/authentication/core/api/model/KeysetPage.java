@@ -0,0 +1,32 @@
+package io.virtuellewolke.authentication.core.api.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing ordered by id. The next page is requested with {@code after=<next>}, {@code next} is null on
+ * the last page.
+ */
+@Getter
+@ToString
+public class KeysetPage<T, K> {
+    private final List<T> items;
+    private final K       next;
+
+    public KeysetPage(List<T> items, K next) {
+        this.items = items;
+        this.next  = next;
+    }
+
+    /**
+     * @param items up to {@code limit} items, a full page is assumed to have a successor.
+     */
+    public static <T, K> KeysetPage<T, K> of(List<T> items, int limit, Function<T, K> key) {
+        K next = items.size() >= limit && !items.isEmpty() ? key.apply(items.get(items.size() - 1)) : null;
+
+        return new KeysetPage<>(items, next);
+    }
+}
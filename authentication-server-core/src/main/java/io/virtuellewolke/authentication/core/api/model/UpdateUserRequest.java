@@ -16,7 +16,6 @@ public class UpdateUserRequest extends UpdateRequest<Identity> {
         updateField(source, "password", (identity, o) -> identity.setPassword(o.toString()));
         updateField(source, "displayName");
         updateField(source, "email");
-        updateField(source, "avatar");
         updateField(source, "apiToken");
         updateField(source, "otpSecret");
         updateField(source, "locked");
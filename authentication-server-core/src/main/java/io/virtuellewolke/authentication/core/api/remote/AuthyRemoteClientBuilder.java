@@ -21,29 +21,40 @@ import java.util.concurrent.TimeUnit;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class AuthyRemoteClientBuilder {
 
-    private String       url;
-    private Long         timeout;
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private String               url;
+    private Long                 timeout;
+    private Long                 connectTimeout;
+    private ObjectMapper         objectMapper = new ObjectMapper();
+    /**
+     * Shared client, so every remote client built with it uses the same connection pool. A new one is created if
+     * not set.
+     */
+    private okhttp3.OkHttpClient httpClient;
 
     public static AuthyRemoteClientBuilder builder() {
         return new AuthyRemoteClientBuilder();
     }
 
-    public AuthyRemoteClient build() {
-        Feign.Builder builder = new Feign.Builder();
-
+    public static okhttp3.OkHttpClient.Builder httpClientBuilder() {
         ConnectionSpec requireTls12 = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS)
                 .tlsVersions(TlsVersion.TLS_1_2)
                 .build();
 
-        okhttp3.OkHttpClient client = new okhttp3.OkHttpClient.Builder().connectionSpecs(Arrays.asList(requireTls12))
-                .build();
+        return new okhttp3.OkHttpClient.Builder().connectionSpecs(Arrays.asList(requireTls12));
+    }
+
+    public AuthyRemoteClient build() {
+        Feign.Builder builder = new Feign.Builder();
+
+        okhttp3.OkHttpClient client = httpClient != null ? httpClient : httpClientBuilder().build();
+
+        long connect = connectTimeout != null ? connectTimeout : timeout;
 
         return builder
                 .encoder(new JacksonEncoder(objectMapper))
                 .decoder(new JacksonDecoder(objectMapper))
                 .client(new OkHttpClient(client))
-                .options(new Request.Options(timeout, TimeUnit.MILLISECONDS, timeout, TimeUnit.MILLISECONDS, false))
+                .options(new Request.Options(connect, TimeUnit.MILLISECONDS, timeout, TimeUnit.MILLISECONDS, false))
                 .target(AuthyRemoteClient.class, url);
     }
 }
@@ -0,0 +1,70 @@
+package io.virtuellewolke.authentication.core.api.remote;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Minimal circuit breaker: after {@code failureThreshold} consecutive failures all calls are rejected for
+ * {@code openDuration}, then a single trial call decides whether it closes again or stays open for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int      failureThreshold;
+    private final Duration openDuration;
+    private final Clock    clock;
+
+    private State state    = State.CLOSED;
+    private int   failures = 0;
+    private long  openedAt = 0;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration     = openDuration;
+        this.clock            = clock;
+    }
+
+    /**
+     * @return true if the call may be made, every permitted call has to be followed by {@link #onSuccess()} or
+     * {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.millis() - openedAt < openDuration.toMillis()) { return false; }
+
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                // a trial call is already running
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state    = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state    = State.OPEN;
+            openedAt = clock.millis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
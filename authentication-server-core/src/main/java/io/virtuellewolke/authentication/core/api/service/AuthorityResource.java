@@ -1,6 +1,7 @@
 package io.virtuellewolke.authentication.core.api.service;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.api.model.UpdateAuthorityRequest;
 import io.virtuellewolke.authentication.core.database.entity.Authority;
 import io.virtuellewolke.authentication.core.spring.security.annotations.AdminResource;
@@ -9,6 +10,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -19,6 +21,12 @@ public interface AuthorityResource {
     @RequestMapping(path = "/authorities", method = RequestMethod.GET)
     ResponseEntity<List<Authority>> listAuthority();
 
+    @AdminResource
+    @RequestMapping(path = "/authorities/page", method = RequestMethod.GET)
+    ResponseEntity<KeysetPage<Authority, Integer>> listAuthorityPage(@RequestParam(value = "after", defaultValue = "0") int after,
+                                                                     @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                                     @RequestParam(value = "name", required = false) String name);
+
     @AdminResource
     @RequestMapping(path = "/authorities", method = RequestMethod.POST)
     ResponseEntity<Authority> createAuthority(@RequestBody Authority identity);
@@ -1,12 +1,16 @@
 package io.virtuellewolke.authentication.core.api.service;
 
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.api.model.UpdateAuthorityRequest;
 import io.virtuellewolke.authentication.core.database.entity.Authority;
-import io.virtuellewolke.authentication.core.database.entity.Service;
 import io.virtuellewolke.authentication.core.database.repository.AuthorityRepository;
-import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
-import io.virtuellewolke.authentication.core.database.repository.ServiceRepository;
+import io.virtuellewolke.authentication.core.spring.components.AuthorityCascade;
+import io.virtuellewolke.authentication.core.spring.components.ForwardAuthDecisionCache;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
+import io.virtuellewolke.authentication.core.spring.components.ServiceRegistry;
+import io.virtuellewolke.authentication.core.util.LikePatterns;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -17,15 +21,26 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AuthorityResourceImpl implements AuthorityResource {
 
-    private final AuthorityRepository authorityRepository;
-    private final IdentityRepository  identityRepository;
-    private final ServiceRepository   serviceRepository;
+    private final AuthorityRepository      authorityRepository;
+    private final AuthorityCascade         authorityCascade;
+    private final ServiceRegistry          serviceRegistry;
+    private final IdentityCache            identityCache;
+    private final ForwardAuthDecisionCache decisionCache;
 
     @Override
     public ResponseEntity<List<Authority>> listAuthority() {
         return ResponseEntity.ok(authorityRepository.findAll());
     }
 
+    @Override
+    public ResponseEntity<KeysetPage<Authority, Integer>> listAuthorityPage(int after, int limit, String name) {
+        int pageSize = Math.max(1, Math.min(limit, 500));
+
+        List<Authority> authorities = authorityRepository.findPage(after, LikePatterns.prefix(name), PageRequest.of(0, pageSize));
+
+        return ResponseEntity.ok(KeysetPage.of(authorities, pageSize, Authority::getId));
+    }
+
     @Override
     public ResponseEntity<Authority> createAuthority(Authority authority) {
         authority.setId(null);
@@ -35,31 +50,19 @@ public class AuthorityResourceImpl implements AuthorityResource {
 
     @Override
     public ResponseEntity<Authority> updateAuthority(Integer id, UpdateAuthorityRequest request) {
-        Authority authority = authorityRepository.findById(id).orElseThrow(EntityNotFoundException::new);
-        authorityRepository.save(request.update(authority));
+        Authority authority = authorityCascade.update(id, request);
+        identityCache.evictAll();
+        decisionCache.invalidateAll();
+        serviceRegistry.refresh();
         return ResponseEntity.ok(authority);
     }
 
     @Override
     public void deleteAuthority(Integer id) {
-        Authority authority = authorityRepository.findById(id).orElseThrow(EntityNotFoundException::new);
-
-        identityRepository.findAllByAuthoritiesId(id).forEach(identity -> {
-            identity.getAuthorities().removeIf(a -> a.getId().equals(id));
-            identityRepository.save(identity);
-        });
-
-        serviceRepository.findAll().forEach(service -> {
-            if (service.getRequiredRoles().contains(authority.getName())) {
-                service.getRequiredRoles().removeIf(s -> s.equalsIgnoreCase(authority.getName()));
-                if (service.getRequiredRoles().size() == 0 && service.getMode() == Service.ServiceMode.AUTHORIZED) {
-                    service.setMode(Service.ServiceMode.PUBLIC);
-                }
-                serviceRepository.save(service);
-            }
-        });
-
-        authorityRepository.deleteById(id);
+        authorityCascade.delete(id);
+        identityCache.evictAll();
+        decisionCache.invalidateAll();
+        serviceRegistry.refresh();
     }
 
     @Override
@@ -3,7 +3,6 @@ package io.virtuellewolke.authentication.core.api.service;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.virtuellewolke.authentication.core.api.model.LoginRequest;
 import io.virtuellewolke.authentication.core.api.model.LoginResponse;
-import io.virtuellewolke.authentication.core.api.model.cas.AuthResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -11,6 +10,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 @Tag(name = "Authy - CAS Endpoint")
 @RequestMapping("/")
@@ -26,12 +26,16 @@ public interface CASResource {
             "application/xml",
             "application/json"
     }, method = RequestMethod.GET)
-    ResponseEntity<AuthResponse> validate(HttpServletRequest request, @RequestParam("ticket") String ticket, @RequestParam("service") String service);
+    void validate(HttpServletRequest request, HttpServletResponse response, @RequestParam("ticket") String ticket,
+                  @RequestParam("service") String service) throws IOException;
 
 
+    /**
+     * @return completes on another thread if the password check or the delegation to a remote Authy did.
+     */
     @CrossOrigin
     @RequestMapping(value = {"/cas/login", "/authenticate"}, method = RequestMethod.POST, produces = "application/json")
-    ResponseEntity<LoginResponse> login(HttpServletRequest req, HttpServletResponse response, @RequestBody LoginRequest body, @RequestParam("service") String serviceUrl);
+    CompletableFuture<ResponseEntity<LoginResponse>> login(HttpServletRequest req, @RequestBody LoginRequest body, @RequestParam("service") String serviceUrl);
 
     @CrossOrigin
     @RequestMapping(value = "/cas/login", method = RequestMethod.GET, produces = "application/json")
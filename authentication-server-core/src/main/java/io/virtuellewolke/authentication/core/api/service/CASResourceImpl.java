@@ -6,31 +6,33 @@ import io.virtuellewolke.authentication.core.api.LoginFailedException;
 import io.virtuellewolke.authentication.core.api.model.LoginRequest;
 import io.virtuellewolke.authentication.core.api.model.LoginResponse;
 import io.virtuellewolke.authentication.core.api.model.cas.AuthFailedResponse;
-import io.virtuellewolke.authentication.core.api.model.cas.AuthResponse;
-import io.virtuellewolke.authentication.core.api.model.cas.AuthSuccessResponse;
-import io.virtuellewolke.authentication.core.api.remote.AuthyRemoteClient;
-import io.virtuellewolke.authentication.core.api.remote.AuthyRemoteClientBuilder;
+import io.virtuellewolke.authentication.core.cas.CasResponseWriter;
 import io.virtuellewolke.authentication.core.cas.StatusCode;
 import io.virtuellewolke.authentication.core.cas.TicketManager;
 import io.virtuellewolke.authentication.core.cas.TicketType;
 import io.virtuellewolke.authentication.core.cas.model.Ticket;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import io.virtuellewolke.authentication.core.database.entity.Service;
-import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
 import io.virtuellewolke.authentication.core.exceptions.AccessDeniedException;
 import io.virtuellewolke.authentication.core.exceptions.SecurityTokenExpiredException;
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
 import io.virtuellewolke.authentication.core.spring.components.JwtProcessor;
+import io.virtuellewolke.authentication.core.spring.components.LoginExecutor;
 import io.virtuellewolke.authentication.core.spring.components.LoginSecurity;
+import io.virtuellewolke.authentication.core.spring.components.PasswordManager;
+import io.virtuellewolke.authentication.core.spring.components.RemoteAuthyClients;
 import io.virtuellewolke.authentication.core.spring.components.ServiceValidation;
 import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
 import io.virtuellewolke.authentication.core.spring.helper.SecureContextRequestHelper;
 import io.virtuellewolke.authentication.core.spring.security.SecureContext;
-import io.virtuellewolke.authentication.core.util.validation.Md5PasswordValidator;
 import io.virtuellewolke.authentication.core.util.validation.OneTimePasswordValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -41,7 +43,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @RestController
@@ -50,44 +55,43 @@ public class CASResourceImpl implements CASResource {
 
     private final CasConfiguration   configuration;
     private final TicketManager      ticketManager;
-    private final IdentityRepository identityRepository;
+    private final IdentityCache      identityCache;
     private final ServiceValidation  serviceValidation;
     private final JwtProcessor       jwtProcessor;
     private final LoginSecurity      loginSecurity;
+    private final PasswordManager    passwordManager;
+    private final RemoteAuthyClients remoteAuthyClients;
+    private final CasResponseWriter  casResponseWriter;
+    private final LoginExecutor      loginExecutor;
 
     @Override
-    public ResponseEntity<AuthResponse> validate(HttpServletRequest request, String token, String service) {
+    public void validate(HttpServletRequest request, HttpServletResponse response, String token, String service) throws IOException {
         log.trace("Accept-Header: {}", request.getHeader("Accept"));
-        try {
-            Ticket ticket = ticketManager.getTicket(token, service);
-
-            AuthSuccessResponse success = new AuthSuccessResponse();
-            success.setUser(ticket.getIdentity().getUsername());
 
-            ticket.getIdentity().getAuthorities().forEach(authority -> success.addAttribute(request, "role", authority.getName()));
-            ticket.getIdentity().getMetaData().forEach((key, value) -> success.addAttribute(request, key, value));
+        CasResponseWriter.Format format = CasResponseWriter.Format.of(request);
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
 
-            success.addAttribute(request, "displayName", ticket.getIdentity().getDisplayName());
-            success.addAttribute(request, "email", ticket.getIdentity().getEmail());
-            success.addAttribute(request, "locked", ticket.getIdentity().getLocked().toString());
-            success.addAttribute(request, "admin", ticket.getIdentity().getAdmin().toString());
-            success.addAttribute(request, "otpEnabled", ticket.getIdentity().getOtpEnabled().toString());
+        try {
+            Ticket ticket = ticketManager.getTicket(token, service);
 
-            return ResponseEntity.status(HttpStatus.OK).body(new AuthResponse(success));
+            response.setStatus(HttpStatus.OK.value());
+            casResponseWriter.writeSuccess(ticket.getIdentity(), format, response.getWriter());
         } catch (AccessDeniedException | SecurityTokenExpiredException e) {
-            AuthFailedResponse failedResponse = new AuthFailedResponse();
-            failedResponse.setCode(AuthFailedResponse.ErrorCode.INVALID_TICKET);
-            failedResponse.setValue(e.getMessage());
-
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new AuthResponse(failedResponse));
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            casResponseWriter.writeFailure(AuthFailedResponse.ErrorCode.INVALID_TICKET, e.getMessage(), format, response.getWriter());
         }
     }
 
+    /**
+     * The future is already completed if the credentials could be checked right away. Otherwise the login is finished
+     * on the {@link LoginExecutor}, which must not touch the request or the response, so the source is resolved here
+     * and the cookie is sent as a header of the returned entity.
+     */
     @Override
-    public ResponseEntity<LoginResponse> login(HttpServletRequest req, HttpServletResponse response, LoginRequest login, String serviceUrl) {
-        Identity identity = identityRepository.findByUsernameOrEmail(
-                login.getUsername(), login.getUsername()
-        ).orElse(null);
+    public CompletableFuture<ResponseEntity<LoginResponse>> login(HttpServletRequest req, LoginRequest login, String serviceUrl) {
+        String   source   = loginSecurity.getRequestSource(req);
+        Identity identity = identityCache.findByUsernameOrEmail(login.getUsername()).orElse(null);
 
         Service service = serviceValidation.getRegisteredServiceFor(serviceUrl);
 
@@ -95,68 +99,95 @@ public class CASResourceImpl implements CASResource {
             throw new LoginFailedException(LoginResponse.ErrorCode.SERVICE_NOT_ALLOWED);
         }
 
-        if (!loginSecurity.isAllowedToTry(req)) {
+        if (!loginSecurity.isAllowedToTry(source)) {
             throw new LoginFailedException(LoginResponse.ErrorCode.USER_ACCOUNT_BLOCKED);
         }
 
-        if (identity != null) {
-            if (identity.getLocked()) {
-                throw new LoginFailedException(LoginResponse.ErrorCode.USER_ACCOUNT_BLOCKED);
-            }
+        if (identity == null) {
+            loginSecurity.recordFailedAttempt(source);
+            throw new LoginFailedException(LoginResponse.ErrorCode.CREDENTIAL_ERROR);
+        }
 
-            if (identity.getRemoteAuthy() != null) {
-                try {
-                    log.info("Authorization of {} was delegated to {}", identity.getUsername(), identity.getRemoteAuthy());
-                    AuthyRemoteClient client = AuthyRemoteClientBuilder.builder()
-                            .setUrl(identity.getRemoteAuthy())
-                            .setTimeout(10000L)
-                            .build();
-
-                    client.login(login, serviceUrl);
-                } catch (FeignException.Unauthorized | FeignException.Forbidden e) {
-                    loginSecurity.recordFailedAttempt(req);
-                    throw new LoginFailedException(LoginResponse.ErrorCode.CREDENTIAL_ERROR);
-                } catch (FeignException.Conflict e) {
-                    throw new LoginFailedException(LoginResponse.ErrorCode.OTP_REQUIRED);
-                }
-            } else {
-                Md5PasswordValidator validator = new Md5PasswordValidator(identity);
+        if (identity.getLocked()) {
+            throw new LoginFailedException(LoginResponse.ErrorCode.USER_ACCOUNT_BLOCKED);
+        }
 
-                if (validator.isNotValid(login.getPassword())) {
-                    loginSecurity.recordFailedAttempt(req);
-                    throw new LoginFailedException(LoginResponse.ErrorCode.CREDENTIAL_ERROR);
-                }
-            }
+        CompletableFuture<Void> credentials = checkCredentials(source, identity, login, serviceUrl);
 
-            if (identity.getOtpEnabled()) {
-                if (StringUtils.isBlank(login.getSecurityPassword())) {
-                    throw new LoginFailedException(LoginResponse.ErrorCode.OTP_REQUIRED);
-                } else {
-                    OneTimePasswordValidator otpValidator = new OneTimePasswordValidator(identity.getOtpSecret());
+        if (!credentials.isDone()) {
+            return credentials.thenApplyAsync(ignored -> completeLogin(source, identity, service, login, serviceUrl), loginExecutor);
+        }
+
+        try {
+            credentials.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+
+        return CompletableFuture.completedFuture(completeLogin(source, identity, service, login, serviceUrl));
+    }
+
+    /**
+     * Checks the password locally or delegates it to the remote Authy of the identity. A delegated login completes
+     * on another thread if async delegation is enabled.
+     */
+    private CompletableFuture<Void> checkCredentials(String source, Identity identity, LoginRequest login, String serviceUrl) {
+        if (identity.getRemoteAuthy() == null) {
+            return passwordManager.verify(identity, login.getPassword())
+                    .thenAccept(valid -> {
+                        if (!valid) {
+                            loginSecurity.recordFailedAttempt(source);
+                            throw new LoginFailedException(LoginResponse.ErrorCode.CREDENTIAL_ERROR);
+                        }
+                    });
+        }
 
-                    if (otpValidator.isNotValid(login.getSecurityPassword())) {
-                        loginSecurity.recordFailedAttempt(req);
+        log.info("Authorization of {} was delegated to {}", identity.getUsername(), identity.getRemoteAuthy());
+
+        return remoteAuthyClients.login(identity.getRemoteAuthy(), login, serviceUrl)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+                    if (cause instanceof FeignException.Unauthorized || cause instanceof FeignException.Forbidden) {
+                        loginSecurity.recordFailedAttempt(source);
                         throw new LoginFailedException(LoginResponse.ErrorCode.CREDENTIAL_ERROR);
+                    } else if (cause instanceof FeignException.Conflict) {
+                        throw new LoginFailedException(LoginResponse.ErrorCode.OTP_REQUIRED);
                     }
+
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+                });
+    }
+
+    private ResponseEntity<LoginResponse> completeLogin(String source, Identity identity, Service service, LoginRequest login,
+                                                        String serviceUrl) {
+        if (identity.getOtpEnabled()) {
+            if (StringUtils.isBlank(login.getSecurityPassword())) {
+                throw new LoginFailedException(LoginResponse.ErrorCode.OTP_REQUIRED);
+            } else {
+                OneTimePasswordValidator otpValidator = new OneTimePasswordValidator(identity.getOtpSecret());
+
+                if (otpValidator.isNotValid(login.getSecurityPassword())) {
+                    loginSecurity.recordFailedAttempt(source);
+                    throw new LoginFailedException(LoginResponse.ErrorCode.CREDENTIAL_ERROR);
                 }
             }
+        }
 
-            if (service.isIdentityNotAllowed(identity)) {
-                throw new LoginFailedException(LoginResponse.ErrorCode.USER_ACCOUNT_DENIED);
-            }
-        } else {
-            loginSecurity.recordFailedAttempt(req);
-            throw new LoginFailedException(LoginResponse.ErrorCode.CREDENTIAL_ERROR);
+        if (service.isIdentityNotAllowed(identity)) {
+            throw new LoginFailedException(LoginResponse.ErrorCode.USER_ACCOUNT_DENIED);
         }
 
-        String token = issueCookie(response, identity, service);
+        String         token  = jwtProcessor.getJwtTokenFor(identity, service);
+        ResponseCookie cookie = createCookie(token);
 
-        loginSecurity.resetAttempts(req);
+        loginSecurity.resetAttempts(source);
 
         return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, cookie.toString())
                 .body(LoginResponse.builder()
                         .location(login.getCas() ? getRedirectLogin(serviceUrl, identity) : serviceUrl)
-                        .token(token)
+                        .token(cookie.getValue())
                         .message("OK")
                         .build()
                 );
@@ -174,7 +205,7 @@ public class CASResourceImpl implements CASResource {
 
             if (service != null && service.getEnabled()) {
                 if (service.isIdentityAllowed(identity)) {
-                    String redirectUrl = getRedirectLogin(serviceUrl, identity);
+                    String redirectUrl = getRedirectLogin(serviceUrl, ctx.getPersistentIdentity());
                     return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
                             .header("Location", redirectUrl)
                             .body(LoginResponse.builder().location(redirectUrl).message("OK").build());
@@ -239,22 +270,26 @@ public class CASResourceImpl implements CASResource {
         }
     }
 
-    private String issueCookie(HttpServletResponse response, Identity identity, Service service) {
-        String token  = jwtProcessor.getJwtTokenFor(identity, service);
-        Cookie cookie = new Cookie(Constants.COOKIE_NAME, Base64.getEncoder().encodeToString(token.getBytes()));
-        cookie.setMaxAge(configuration.getCookieLifeTime());
-        cookie.setPath(configuration.getCookiePath());
-        cookie.setHttpOnly(true);
-        cookie.setComment("Authy CAS Token");
-        cookie.setSecure(configuration.isCookieSecure());
+    /**
+     * The password hashing, delegation or login queue is full.
+     */
+    @ExceptionHandler(ServiceException.class)
+    public ResponseEntity<LoginResponse> handleServiceException() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    private ResponseCookie createCookie(String token) {
+        ResponseCookie.ResponseCookieBuilder cookie = ResponseCookie.from(Constants.COOKIE_NAME, Base64.getEncoder().encodeToString(token.getBytes()))
+                .maxAge(configuration.getCookieLifeTime())
+                .path(configuration.getCookiePath())
+                .httpOnly(true)
+                .secure(configuration.isCookieSecure());
 
         if (configuration.getCookieDomain() != null) {
-            cookie.setDomain(configuration.getCookieDomain());
+            cookie.domain(configuration.getCookieDomain());
         }
 
-        response.addCookie(cookie);
-
-        return cookie.getValue();
+        return cookie.build();
     }
 
     private String getRedirectLogin(String service, Identity identity) {
@@ -3,6 +3,8 @@ package io.virtuellewolke.authentication.core.api.service;
 import io.virtuellewolke.authentication.core.cas.StatusCode;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import io.virtuellewolke.authentication.core.database.entity.Service;
+import io.virtuellewolke.authentication.core.spring.components.ForwardAuthDecisionCache;
+import io.virtuellewolke.authentication.core.spring.components.ServiceRegistry;
 import io.virtuellewolke.authentication.core.spring.components.ServiceValidation;
 import io.virtuellewolke.authentication.core.spring.configuration.ForwardAuthConfiguration;
 import io.virtuellewolke.authentication.core.spring.helper.SecureContextRequestHelper;
@@ -21,6 +23,8 @@ public class ForwardAuthResourceImpl implements ForwardAuthResource {
 
     private final ForwardAuthConfiguration configuration;
     private final ServiceValidation        serviceValidation;
+    private final ServiceRegistry          serviceRegistry;
+    private final ForwardAuthDecisionCache decisionCache;
 
     @Override
     public ResponseEntity<?> forwardAuth(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -29,21 +33,21 @@ public class ForwardAuthResourceImpl implements ForwardAuthResource {
         String serviceUrl = getServiceUrlFromRequestHeaders(request);
 
         if (secureContext != null) {
-            Service  service  = serviceValidation.getRegisteredServiceFor(serviceUrl);
-            Identity identity = secureContext.getIdentity();
+            long     generation = serviceRegistry.getGeneration();
+            Service  service    = serviceValidation.getRegisteredServiceFor(serviceUrl);
+            Identity identity   = secureContext.getIdentity();
 
             if (service == null) {
                 response.sendRedirect(configuration.getBaseDomain(request) + "/#/error?service=" + serviceUrl + "&code=" + StatusCode.MISSING_SERVICE);
                 return ResponseEntity.status(302).build();
             }
 
-            if (service.isIdentityAllowed(identity)) {
+            ForwardAuthDecisionCache.Decision decision = decisionCache.decide(identity, service, generation);
+
+            if (decision.isAllowed()) {
                 return ResponseEntity
                         .ok()
-                        .header("X-Auth-User", identity.getUsername())
-                        .header("X-Auth-Display-Name", identity.getDisplayName())
-                        .header("X-Auth-E-Mail", identity.getEmail())
-                        .header("X-Auth-Admin", identity.getAdmin().toString())
+                        .headers(decision.getHeaders())
                         .build();
             } else {
                 response.sendRedirect(configuration.getBaseDomain(request) + "/#/error?service=" + serviceUrl + "&code=" + StatusCode.DENIED);
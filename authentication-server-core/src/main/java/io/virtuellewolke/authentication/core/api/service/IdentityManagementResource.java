@@ -4,6 +4,7 @@ import io.virtuellewolke.authentication.core.api.model.LoginRequest;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import io.virtuellewolke.authentication.core.spring.security.annotations.AuthorizedResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -44,6 +45,18 @@ public interface IdentityManagementResource {
     @PostMapping(value = "/me/otp/verify")
     ResponseEntity<?> verifyOneTimePassword(@RequestBody LoginRequest verificationRequest, HttpServletRequest request, HttpSession httpSession) throws IOException, NoSuchAlgorithmException, InvalidKeyException;
 
+    @AuthorizedResource
+    @GetMapping(value = "/me/avatar", produces = "*/*")
+    ResponseEntity<Resource> myAvatar(HttpServletRequest request, @RequestParam(value = "size", defaultValue = "thumbnail") String size);
+
+    @AuthorizedResource
+    @PutMapping(value = "/me/avatar", consumes = {"image/png", "image/jpeg", "image/gif"})
+    ResponseEntity<Void> updateAvatar(HttpServletRequest request, @RequestBody byte[] avatar);
+
+    @AuthorizedResource
+    @DeleteMapping("/me/avatar")
+    ResponseEntity<Void> deleteAvatar(HttpServletRequest request);
+
     @AuthorizedResource
     @PostMapping("/me/api-token")
     ResponseEntity<String> generateApiToken(HttpServletRequest request);
@@ -7,13 +7,18 @@ import io.virtuellewolke.authentication.core.api.model.LoginRequest;
 import io.virtuellewolke.authentication.core.util.ImageHelper;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import io.virtuellewolke.authentication.core.spring.components.AvatarStore;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
+import io.virtuellewolke.authentication.core.spring.components.PasswordManager;
 import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+import io.virtuellewolke.authentication.core.spring.helper.AvatarResponseHelper;
 import io.virtuellewolke.authentication.core.spring.helper.SecureContextRequestHelper;
 import io.virtuellewolke.authentication.core.spring.security.SecureContext;
 import io.virtuellewolke.authentication.core.spring.security.annotations.AuthorizedResource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -36,7 +41,10 @@ import java.util.Objects;
 public class IdentityManagementResourceImpl implements IdentityManagementResource {
 
     private final IdentityRepository identityRepository;
+    private final IdentityCache      identityCache;
     private final CasConfiguration   casConfiguration;
+    private final AvatarStore        avatarStore;
+    private final PasswordManager    passwordManager;
 
     @Override
     @AuthorizedResource
@@ -51,7 +59,9 @@ public class IdentityManagementResourceImpl implements IdentityManagementResourc
         if (context != null && context.getIdentity() != null) {
             Identity identity = identityRepository.findById(context.getIdentity().getId()).orElseThrow(EntityNotFoundException::new);
             identity.updateFrom(updateData);
+            passwordManager.applyNewPassword(identity);
             identityRepository.save(identity);
+            identityCache.evict(identity);
 
             return ResponseEntity.ok(identity);
         }
@@ -79,6 +89,7 @@ public class IdentityManagementResourceImpl implements IdentityManagementResourc
         Identity identity = identityRepository.findById(getIdentityFromRequest(request).getId()).orElseThrow(EntityNotFoundException::new);
         identity.setOtpSecret(null);
         identityRepository.save(identity);
+        identityCache.evict(identity);
         return ResponseEntity.ok(identity);
     }
 
@@ -109,6 +120,7 @@ public class IdentityManagementResourceImpl implements IdentityManagementResourc
 
                 id.setOtpSecret(obj);
                 identityRepository.save(id);
+                identityCache.evict(id);
 
                 return ResponseEntity.ok().build();
             } else {
@@ -119,6 +131,25 @@ public class IdentityManagementResourceImpl implements IdentityManagementResourc
         }
     }
 
+    @Override
+    @AuthorizedResource
+    public ResponseEntity<Resource> myAvatar(HttpServletRequest request, String size) {
+        return AvatarResponseHelper.toResponse(avatarStore, getIdentityIdFromRequest(request), size, request);
+    }
+
+    @Override
+    @AuthorizedResource
+    public ResponseEntity<Void> updateAvatar(HttpServletRequest request, byte[] avatar) {
+        return AvatarResponseHelper.store(avatarStore, getIdentityIdFromRequest(request), avatar);
+    }
+
+    @Override
+    @AuthorizedResource
+    public ResponseEntity<Void> deleteAvatar(HttpServletRequest request) {
+        avatarStore.delete(getIdentityIdFromRequest(request));
+        return ResponseEntity.noContent().build();
+    }
+
     @Override
     @AuthorizedResource
     public ResponseEntity<String> generateApiToken(HttpServletRequest request) {
@@ -130,6 +161,7 @@ public class IdentityManagementResourceImpl implements IdentityManagementResourc
         log.info("Identity {} requested a new API token, old token was revoked immediately", identity.getId());
 
         identityRepository.save(identity);
+        identityCache.evict(identity);
 
         return ResponseEntity.status(202).body(key);
     }
@@ -144,6 +176,7 @@ public class IdentityManagementResourceImpl implements IdentityManagementResourc
         log.info("Identity {} revoked his API token completely", identity.getId());
 
         identityRepository.save(identity);
+        identityCache.evict(identity);
 
         return ResponseEntity.status(204).build();
     }
@@ -151,7 +184,19 @@ public class IdentityManagementResourceImpl implements IdentityManagementResourc
     private Identity getIdentityFromRequest(HttpServletRequest request) {
         SecureContext context = SecureContextRequestHelper.getSecureContext(request);
 
-        if (context != null) return context.getIdentity();
+        // always a fresh entity, the one in the context may be a snapshot or shared through the cache
+        if (context != null && context.getIdentity() != null) {
+            return identityRepository.findById(context.getIdentity().getId()).orElseThrow(EntityNotFoundException::new);
+        }
+        throw new IllegalArgumentException("Identity is null but should not be.");
+    }
+
+    private Integer getIdentityIdFromRequest(HttpServletRequest request) {
+        SecureContext context = SecureContextRequestHelper.getSecureContext(request);
+
+        if (context != null && context.getIdentity() != null) {
+            return context.getIdentity().getId();
+        }
         throw new IllegalArgumentException("Identity is null but should not be.");
     }
-}
\ No newline at end of file
+}
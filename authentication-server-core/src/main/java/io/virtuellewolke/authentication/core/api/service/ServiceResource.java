@@ -1,7 +1,7 @@
 package io.virtuellewolke.authentication.core.api.service;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
-import io.virtuellewolke.authentication.core.api.model.UpdateAuthorityRequest;
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.api.model.UpdateServiceRequest;
 import io.virtuellewolke.authentication.core.database.entity.Service;
 import io.virtuellewolke.authentication.core.spring.security.annotations.AdminResource;
@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -20,6 +21,12 @@ public interface ServiceResource {
     @RequestMapping(path = "/services", method = RequestMethod.GET)
     ResponseEntity<List<Service>> listServices();
 
+    @AdminResource
+    @RequestMapping(path = "/services/page", method = RequestMethod.GET)
+    ResponseEntity<KeysetPage<Service, Integer>> listServicesPage(@RequestParam(value = "after", defaultValue = "0") int after,
+                                                                  @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                                  @RequestParam(value = "name", required = false) String name);
+
     @AdminResource
     @RequestMapping(path = "/identity/{id}/services", method = RequestMethod.GET)
     ResponseEntity<List<Service>> listServicesUserHasAccessTo(@PathVariable("id") Integer userId);
@@ -1,16 +1,20 @@
 package io.virtuellewolke.authentication.core.api.service;
 
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.api.model.UpdateServiceRequest;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import io.virtuellewolke.authentication.core.database.entity.Service;
 import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
 import io.virtuellewolke.authentication.core.database.repository.ServiceRepository;
+import io.virtuellewolke.authentication.core.spring.components.ServiceRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 @RestController
@@ -19,28 +23,44 @@ public class ServiceResourceImpl implements ServiceResource {
 
     private final ServiceRepository  serviceRepository;
     private final IdentityRepository identityRepository;
+    private final ServiceRegistry    serviceRegistry;
 
     @Override
     public ResponseEntity<List<Service>> listServices() {
-        return ResponseEntity.ok(serviceRepository.findAll());
+        return ResponseEntity.ok(serviceRegistry.getServices());
     }
 
+    /**
+     * Services are already held in memory by the registry, pages are cut from its snapshot.
+     */
     @Override
-    public ResponseEntity<List<Service>> listServicesUserHasAccessTo(Integer userId) {
-        Identity identity = identityRepository.findById(userId).orElseThrow(EntityNotFoundException::new);
+    public ResponseEntity<KeysetPage<Service, Integer>> listServicesPage(int after, int limit, String name) {
+        int    pageSize = Math.max(1, Math.min(limit, 500));
+        String prefix   = name != null ? name.trim().toLowerCase(Locale.ROOT) : "";
 
-        List<Service> services = serviceRepository.findAll()
+        List<Service> services = serviceRegistry.getServices()
                 .stream()
-                .filter(service -> service.isIdentityAllowed(identity))
+                .filter(service -> service.getId() != null && service.getId() > after)
+                .filter(service -> prefix.isEmpty() || (service.getName() != null && service.getName().toLowerCase(Locale.ROOT).startsWith(prefix)))
+                .sorted(Comparator.comparing(Service::getId))
+                .limit(pageSize)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(services);
+        return ResponseEntity.ok(KeysetPage.of(services, pageSize, Service::getId));
+    }
+
+    @Override
+    public ResponseEntity<List<Service>> listServicesUserHasAccessTo(Integer userId) {
+        Identity identity = identityRepository.findById(userId).orElseThrow(EntityNotFoundException::new);
+
+        return ResponseEntity.ok(serviceRegistry.getServicesAllowedFor(identity));
     }
 
     @Override
     public ResponseEntity<Service> createService(Service service) {
         service.setId(null);
         serviceRepository.save(service);
+        serviceRegistry.refresh();
         return ResponseEntity.ok(service);
     }
 
@@ -48,12 +68,14 @@ public class ServiceResourceImpl implements ServiceResource {
     public ResponseEntity<Service> updateService(Integer id, UpdateServiceRequest request) {
         Service service = serviceRepository.findById(id).orElseThrow(EntityNotFoundException::new);
         serviceRepository.save(request.update(service));
+        serviceRegistry.refresh();
         return ResponseEntity.ok(service);
     }
 
     @Override
     public void deleteService(Integer id) {
         serviceRepository.deleteById(id);
+        serviceRegistry.refresh();
     }
 
     @Override
@@ -1,15 +1,21 @@
 package io.virtuellewolke.authentication.core.api.service;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.api.model.UpdateUserRequest;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.projection.IdentitySummary;
 import io.virtuellewolke.authentication.core.spring.security.annotations.AdminResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 
 @RequestMapping(value = "/api", produces = "application/json")
@@ -19,6 +25,20 @@ public interface UserResource {
     @RequestMapping(path = "/identities", method = RequestMethod.GET)
     ResponseEntity<List<Identity>> listUsers();
 
+    @AdminResource
+    @RequestMapping(path = "/identities/page", method = RequestMethod.GET)
+    ResponseEntity<KeysetPage<IdentitySummary, Integer>> listUsersPage(@RequestParam(value = "after", defaultValue = "0") int after,
+                                                                       @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                                       @RequestParam(value = "username", required = false) String username,
+                                                                       @RequestParam(value = "email", required = false) String email,
+                                                                       @RequestParam(value = "authority", required = false) String authority);
+
+    @AdminResource
+    @RequestMapping(path = "/identities/stream", method = RequestMethod.GET, produces = "application/x-ndjson")
+    ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(value = "username", required = false) String username,
+                                                      @RequestParam(value = "email", required = false) String email,
+                                                      @RequestParam(value = "authority", required = false) String authority);
+
     @AdminResource
     @RequestMapping(path = "/identities", method = RequestMethod.POST)
     ResponseEntity<Identity> createUser(@RequestBody Identity identity);
@@ -34,4 +54,17 @@ public interface UserResource {
     @AdminResource
     @RequestMapping(path = "/identity/{id}", method = RequestMethod.GET)
     ResponseEntity<Identity> getUser(@PathVariable("id") Integer id);
+
+    @AdminResource
+    @RequestMapping(path = "/identity/{id}/avatar", method = RequestMethod.GET, produces = "*/*")
+    ResponseEntity<Resource> getAvatar(HttpServletRequest request, @PathVariable("id") Integer id,
+                                       @RequestParam(value = "size", defaultValue = "thumbnail") String size);
+
+    @AdminResource
+    @RequestMapping(path = "/identity/{id}/avatar", method = RequestMethod.PUT, consumes = {"image/png", "image/jpeg", "image/gif"})
+    ResponseEntity<Void> updateAvatar(@PathVariable("id") Integer id, @RequestBody byte[] avatar);
+
+    @AdminResource
+    @RequestMapping(path = "/identity/{id}/avatar", method = RequestMethod.DELETE)
+    ResponseEntity<Void> deleteAvatar(@PathVariable("id") Integer id);
 }
\ No newline at end of file
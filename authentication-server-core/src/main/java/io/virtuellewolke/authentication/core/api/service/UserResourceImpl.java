@@ -1,14 +1,27 @@
 package io.virtuellewolke.authentication.core.api.service;
 
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.api.model.UpdateUserRequest;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.projection.IdentitySummary;
 import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
 import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import io.virtuellewolke.authentication.core.spring.components.AvatarStore;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
+import io.virtuellewolke.authentication.core.spring.components.NdjsonWriter;
+import io.virtuellewolke.authentication.core.spring.components.PasswordManager;
+import io.virtuellewolke.authentication.core.spring.helper.AvatarResponseHelper;
+import io.virtuellewolke.authentication.core.util.LikePatterns;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 
 @RestController
@@ -17,33 +30,77 @@ public class UserResourceImpl implements UserResource {
 
     private final IdentityRepository       identityRepository;
     private final ClientAuthCertRepository clientAuthCertRepository;
+    private final IdentityCache            identityCache;
+    private final NdjsonWriter             ndjsonWriter;
+    private final AvatarStore              avatarStore;
+    private final PasswordManager          passwordManager;
 
     @Override
     public ResponseEntity<List<Identity>> listUsers() {
         return ResponseEntity.ok(identityRepository.findAll());
     }
 
+    @Override
+    public ResponseEntity<KeysetPage<IdentitySummary, Integer>> listUsersPage(int after, int limit, String username, String email, String authority) {
+        int pageSize = Math.max(1, Math.min(limit, 500));
+
+        List<IdentitySummary> identities = identityRepository.findSummaries(after, LikePatterns.prefix(username), LikePatterns.prefix(email),
+                StringUtils.trimToNull(authority), PageRequest.of(0, pageSize));
+
+        return ResponseEntity.ok(KeysetPage.of(identities, pageSize, IdentitySummary::getId));
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamUsers(String username, String email, String authority) {
+        return ndjsonWriter.stream(() -> identityRepository.streamSummaries(0, LikePatterns.prefix(username), LikePatterns.prefix(email),
+                StringUtils.trimToNull(authority)));
+    }
+
     @Override
     public ResponseEntity<Identity> createUser(Identity identity) {
         identity.setId(null);
+        passwordManager.applyNewPassword(identity);
         return ResponseEntity.ok(identityRepository.save(identity));
     }
 
     @Override
     public ResponseEntity<Identity> updateUser(Integer id, UpdateUserRequest request) {
         Identity identity = identityRepository.findById(id).orElseThrow(EntityNotFoundException::new);
-        identityRepository.save(request.update(identity));
+        request.update(identity);
+        passwordManager.applyNewPassword(identity);
+        identityRepository.save(identity);
+        identityCache.evict(identity);
         return ResponseEntity.ok(identity);
     }
 
     @Override
     public void deleteUser(Integer id) {
         clientAuthCertRepository.deleteAllByIdentityId(id);
+        avatarStore.delete(id);
         identityRepository.deleteById(id);
+        identityCache.evict(id);
     }
 
     @Override
     public ResponseEntity<Identity> getUser(Integer id) {
         return ResponseEntity.ok(identityRepository.findById(id).orElseThrow(EntityNotFoundException::new));
     }
-}
\ No newline at end of file
+
+    @Override
+    public ResponseEntity<Resource> getAvatar(HttpServletRequest request, Integer id, String size) {
+        return AvatarResponseHelper.toResponse(avatarStore, id, size, request);
+    }
+
+    @Override
+    public ResponseEntity<Void> updateAvatar(Integer id, byte[] avatar) {
+        if (!identityRepository.existsById(id)) { throw new EntityNotFoundException(); }
+
+        return AvatarResponseHelper.store(avatarStore, id, avatar);
+    }
+
+    @Override
+    public ResponseEntity<Void> deleteAvatar(Integer id) {
+        avatarStore.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+}
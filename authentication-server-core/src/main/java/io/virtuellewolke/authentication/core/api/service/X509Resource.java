@@ -1,15 +1,23 @@
 package io.virtuellewolke.authentication.core.api.service;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
+import io.virtuellewolke.authentication.core.api.model.CertificateIssueRequest;
+import io.virtuellewolke.authentication.core.api.model.CertificateJob;
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.database.entity.ClientAuthCert;
+import io.virtuellewolke.authentication.core.database.projection.CertificateSummary;
+import io.virtuellewolke.authentication.core.spring.components.PfxIssuanceJobs;
+import io.virtuellewolke.authentication.core.spring.components.RevocationFeed;
 import io.virtuellewolke.authentication.core.spring.security.annotations.AdminResource;
 import io.virtuellewolke.authentication.core.spring.security.annotations.AuthorizedResource;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import java.math.BigInteger;
@@ -18,6 +26,45 @@ import java.util.List;
 @RequestMapping(value = "/api", produces = "application/json")
 @Tag(name = "Authy - X509 User Certificates Resource")
 public interface X509Resource {
+    @AdminResource
+    @RequestMapping(path = "/certificates/page", method = RequestMethod.GET)
+    ResponseEntity<KeysetPage<CertificateSummary, String>> listAllCertificatesPage(@RequestParam(value = "after", defaultValue = "0") BigInteger after,
+                                                                                   @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                                                   @RequestParam(value = "identity", required = false) Integer identityId);
+
+    @AdminResource
+    @RequestMapping(path = "/certificates/stream", method = RequestMethod.GET, produces = "application/x-ndjson")
+    ResponseEntity<StreamingResponseBody> streamAllCertificates(@RequestParam(value = "identity", required = false) Integer identityId);
+
+    @AdminResource
+    @RequestMapping(path = "/certificates/batch/issue", method = RequestMethod.POST)
+    ResponseEntity<List<CertificateJob>> issueCertificates(@RequestBody List<CertificateIssueRequest> requests);
+
+    @AdminResource
+    @RequestMapping(path = "/certificates/batch/revoke", method = RequestMethod.POST)
+    ResponseEntity<List<String>> revokeCertificates(@RequestBody List<BigInteger> serials);
+
+    @AdminResource
+    @RequestMapping(path = "/certificates/jobs/{job}", method = RequestMethod.GET)
+    ResponseEntity<CertificateJob> getCertificateJob(@PathVariable("job") String job);
+
+    @AdminResource
+    @RequestMapping(path = "/certificates/jobs/{job}/pfx", method = RequestMethod.GET, produces = "application/x-pkcs12")
+    ResponseEntity<ByteArrayResource> downloadCertificate(@PathVariable("job") String job);
+
+    /**
+     * CRL signed by the CA, public so reverse proxies can use it to reject revoked certificates.
+     */
+    @RequestMapping(path = "/certificates/crl", method = RequestMethod.GET, produces = "application/x-pem-file")
+    ResponseEntity<String> getCrl();
+
+    /**
+     * A page of serials revoked after the cursor {@code since} (the {@code next} of the previous response, or epoch
+     * millis to start at a point in time), the response contains the cursor for the next request.
+     */
+    @RequestMapping(path = "/certificates/revocations", method = RequestMethod.GET)
+    ResponseEntity<RevocationFeed.Delta> getRevocations(@RequestParam(value = "since", defaultValue = "0") String since);
+
     @AdminResource
     @RequestMapping(path = "/user/{id}/certificates", method = RequestMethod.GET)
     ResponseEntity<List<ClientAuthCert>> listCertificates(HttpServletRequest request, @PathVariable("id") Integer id);
@@ -38,6 +85,18 @@ public interface X509Resource {
     @RequestMapping(path = "/session/me/certificates", method = RequestMethod.POST)
     ResponseEntity<ByteArrayResource> issueMyCertificate(HttpServletRequest request, @RequestParam("deviceName") String deviceName);
 
+    @AuthorizedResource
+    @RequestMapping(path = "/session/me/certificates/jobs", method = RequestMethod.POST)
+    ResponseEntity<PfxIssuanceJobs.Job> issueMyCertificateAsync(HttpServletRequest request, @RequestParam("deviceName") String deviceName);
+
+    @AuthorizedResource
+    @RequestMapping(path = "/session/me/certificates/jobs/{job}", method = RequestMethod.GET)
+    ResponseEntity<PfxIssuanceJobs.Job> getMyCertificateJob(HttpServletRequest request, @PathVariable("job") String job);
+
+    @AuthorizedResource
+    @RequestMapping(path = "/session/me/certificates/jobs/{job}/pfx", method = RequestMethod.GET, produces = "application/x-pkcs12")
+    ResponseEntity<ByteArrayResource> downloadMyCertificate(HttpServletRequest request, @PathVariable("job") String job);
+
     @AuthorizedResource
     @RequestMapping(path = "/session/me/certificate/{serial}", method = RequestMethod.DELETE)
     ResponseEntity<Void> revokeMyCertificate(HttpServletRequest request, @PathVariable("serial") BigInteger serial);
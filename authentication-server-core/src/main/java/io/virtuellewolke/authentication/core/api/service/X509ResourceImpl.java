@@ -1,25 +1,42 @@
 package io.virtuellewolke.authentication.core.api.service;
 
+import io.virtuellewolke.authentication.core.api.model.CertificateIssueRequest;
+import io.virtuellewolke.authentication.core.api.model.CertificateJob;
+import io.virtuellewolke.authentication.core.api.model.KeysetPage;
 import io.virtuellewolke.authentication.core.database.entity.ClientAuthCert;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.projection.CertificateSummary;
 import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
 import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
 import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.components.NdjsonWriter;
+import io.virtuellewolke.authentication.core.spring.components.PfxIssuanceJobs;
+import io.virtuellewolke.authentication.core.spring.components.RevocationFeed;
 import io.virtuellewolke.authentication.core.spring.components.X509Manager;
+import io.virtuellewolke.authentication.core.spring.configuration.X509ManagerConfiguration;
 import io.virtuellewolke.authentication.core.spring.helper.SecureContextRequestHelper;
 import io.virtuellewolke.authentication.core.spring.security.SecureContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
@@ -28,20 +45,149 @@ public class X509ResourceImpl implements X509Resource {
     private final ClientAuthCertRepository certRepository;
     private final IdentityRepository       identityRepository;
     private final X509Manager              manager;
+    private final NdjsonWriter             ndjsonWriter;
+    private final PfxIssuanceJobs          issuanceJobs;
+    private final RevocationFeed           revocationFeed;
+    private final X509ManagerConfiguration configuration;
+
+    @Override
+    public ResponseEntity<KeysetPage<CertificateSummary, String>> listAllCertificatesPage(BigInteger after, int limit, Integer identityId) {
+        int pageSize = Math.max(1, Math.min(limit, 500));
+
+        List<CertificateSummary> certificates = certRepository.findSummaries(after, identityId, PageRequest.of(0, pageSize));
+
+        return ResponseEntity.ok(KeysetPage.of(certificates, pageSize, c -> c.getSerial().toString()));
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllCertificates(Integer identityId) {
+        return ndjsonWriter.stream(() -> certRepository.streamSummaries(BigInteger.ZERO, identityId));
+    }
+
+    @Override
+    public ResponseEntity<List<CertificateJob>> issueCertificates(List<CertificateIssueRequest> requests) {
+        if (!manager.isEnabled()) {
+            throw new ServiceException("X509 authentication is not enabled.");
+        }
+
+        if (requests.size() > Math.min(configuration.getBatchLimit(), issuanceJobs.getBatchCapacity())) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        Set<Integer>           ids        = requests.stream().map(CertificateIssueRequest::getIdentityId).collect(Collectors.toSet());
+        Map<Integer, Identity> identities = new HashMap<>();
+        identityRepository.findAllById(ids).forEach(identity -> identities.put(identity.getId(), identity));
+
+        if (identities.size() != ids.size()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<CertificateJob> jobs = requests.stream()
+                .map(r -> issuanceJobs.submitBatch(identities.get(r.getIdentityId()), r.getDeviceName()))
+                .map(CertificateJob::of)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobs);
+    }
+
+    @Override
+    public ResponseEntity<List<String>> revokeCertificates(List<BigInteger> serials) {
+        if (serials.size() > configuration.getBatchLimit()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        return ResponseEntity.ok(manager.revokeAll(new HashSet<>(serials)).stream().map(BigInteger::toString).collect(Collectors.toList()));
+    }
+
+    @Override
+    public ResponseEntity<CertificateJob> getCertificateJob(String job) {
+        return ResponseEntity.of(issuanceJobs.find(job).map(CertificateJob::of));
+    }
+
+    @Override
+    public ResponseEntity<ByteArrayResource> downloadCertificate(String job) {
+        PfxIssuanceJobs.Job found = issuanceJobs.find(job).orElse(null);
+        byte[]              cert  = found != null ? issuanceJobs.claim(job).orElse(null) : null;
+
+        if (cert == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + found.getIdentityId() + "-" + found.getId() + ".pfx")
+                .contentType(MediaType.valueOf("application/x-pkcs12"))
+                .contentLength(cert.length)
+                .body(new ByteArrayResource(cert));
+    }
+
+    @Override
+    public ResponseEntity<String> getCrl() {
+        if (!manager.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        RevocationFeed.Crl crl = revocationFeed.crl();
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(configuration.getFeedMaxAge().toSeconds(), TimeUnit.SECONDS).cachePublic())
+                .eTag(crl.getEtag())
+                .body(crl.getPem());
+    }
+
+    @Override
+    public ResponseEntity<RevocationFeed.Delta> getRevocations(String since) {
+        RevocationFeed.Delta delta;
+
+        try {
+            delta = revocationFeed.since(since);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(configuration.getFeedMaxAge().toSeconds(), TimeUnit.SECONDS).cachePublic())
+                .eTag(delta.getEtag())
+                .body(delta);
+    }
 
     @Override
     public ResponseEntity<List<ClientAuthCert>> listCertificates(HttpServletRequest request, Integer id) {
-        throw new UnsupportedOperationException("Not yet implemented");
+        Identity identity = identityRepository.findById(id).orElse(null);
+
+        if (identity == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(certRepository.findByIdentity(identity));
     }
 
     @Override
     public ResponseEntity<ByteArrayResource> issueCertificate(HttpServletRequest request, Integer id, String deviceName) {
-        throw new UnsupportedOperationException("Not yet implemented");
+        Identity identity = identityRepository.findById(id).orElse(null);
+
+        if (identity == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        byte[] cert = manager.issuePfx(identity, deviceName);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + identity.getUsername() + ".pfx")
+                .contentType(MediaType.valueOf("application/x-pkcs12"))
+                .contentLength(cert.length)
+                .body(new ByteArrayResource(cert));
     }
 
     @Override
     public ResponseEntity<Void> revokeCertificate(HttpServletRequest request, Integer id, BigInteger serial) {
-        throw new UnsupportedOperationException("Not yet implemented");
+        boolean owned = certRepository.findById(serial).map(cert -> cert.getIdentity().getId().equals(id)).orElse(false);
+
+        if (!owned) {
+            return ResponseEntity.notFound().build();
+        }
+
+        manager.revoke(serial);
+        return ResponseEntity.ok().build();
     }
 
     @Override
@@ -60,7 +206,7 @@ public class X509ResourceImpl implements X509Resource {
         SecureContext context = SecureContextRequestHelper.getSecureContext(request);
 
         if (context != null && context.getIdentity() != null) {
-            byte[] cert = manager.issuePfx(context.getIdentity(), deviceName);
+            byte[] cert = manager.issuePfx(context.getPersistentIdentity(), deviceName);
 
             ByteArrayResource resource = new ByteArrayResource(cert);
 
@@ -75,12 +221,63 @@ public class X509ResourceImpl implements X509Resource {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
     }
 
+    @Override
+    public ResponseEntity<PfxIssuanceJobs.Job> issueMyCertificateAsync(HttpServletRequest request, String deviceName) {
+        SecureContext context = SecureContextRequestHelper.getSecureContext(request);
+
+        if (context != null && context.getIdentity() != null) {
+            if (!manager.isEnabled()) {
+                throw new ServiceException("X509 authentication is not enabled.");
+            }
+
+            PfxIssuanceJobs.Job job = issuanceJobs.submit(context.getPersistentIdentity(), deviceName);
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/session/me/certificates/jobs/" + job.getId())
+                    .body(job);
+        }
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+    }
+
+    @Override
+    public ResponseEntity<PfxIssuanceJobs.Job> getMyCertificateJob(HttpServletRequest request, String job) {
+        SecureContext context = SecureContextRequestHelper.getSecureContext(request);
+
+        if (context != null && context.getIdentity() != null) {
+            return ResponseEntity.of(issuanceJobs.find(job, context.getIdentity().getId()));
+        }
+
+        return ResponseEntity.notFound().build();
+    }
+
+    @Override
+    public ResponseEntity<ByteArrayResource> downloadMyCertificate(HttpServletRequest request, String job) {
+        SecureContext context = SecureContextRequestHelper.getSecureContext(request);
+
+        if (context != null && context.getIdentity() != null) {
+            byte[] cert = issuanceJobs.claim(job, context.getIdentity().getId()).orElse(null);
+
+            if (cert == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + context.getIdentity().getUsername() + ".pfx")
+                    .contentType(MediaType.valueOf("application/x-pkcs12"))
+                    .contentLength(cert.length)
+                    .body(new ByteArrayResource(cert));
+        }
+
+        return ResponseEntity.notFound().build();
+    }
+
     @Override
     public ResponseEntity<Void> revokeMyCertificate(HttpServletRequest request, BigInteger serial) {
         SecureContext context = SecureContextRequestHelper.getSecureContext(request);
 
         if (context != null && context.getIdentity() != null) {
-            manager.revoke(serial, context.getIdentity());
+            manager.revoke(serial, context.getPersistentIdentity());
             return ResponseEntity.ok().build();
         }
 
@@ -0,0 +1,343 @@
+package io.virtuellewolke.authentication.core.cas;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.virtuellewolke.authentication.core.api.model.cas.AuthFailedResponse;
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Writes CAS 2.0/3.0 {@code serviceValidate} responses straight to the response writer, in the same shape the Jackson
+ * models in {@code api.model.cas} produced.
+ * <p>
+ * The attributes of an identity only change with its entity version, the rendered attribute block is cached per
+ * identity, version and format. The markup around an attribute value is rendered once per attribute name, so a
+ * validation only escapes the user name and copies the cached block.
+ */
+@Component
+public class CasResponseWriter implements MeterBinder {
+
+    public static final String NAMESPACE = "http://www.yale.edu/tp/cas";
+
+    private static final String  XML_HEADER = "<?xml version='1.0' encoding='UTF-8'?><cas:serviceResponse xmlns:cas=\"" + NAMESPACE + "\">";
+    private static final String  XML_FOOTER = "</cas:serviceResponse>";
+    private static final Pattern XML_NAME   = Pattern.compile("[A-Za-z_][A-Za-z0-9._-]*");
+
+    public enum Format {
+        XML("application/xml"), JSON("application/json");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * JSON if asked for with {@code format=JSON} (CAS 3.0) or an {@code Accept} header preferring it by specificity
+         * and quality, otherwise XML as the protocol defaults to. Wildcards accept both and get XML.
+         */
+        public static Format of(HttpServletRequest request) {
+            String format = request.getParameter("format");
+
+            if (format != null) { return "JSON".equalsIgnoreCase(format) ? JSON : XML; }
+
+            String accept = request.getHeader("Accept");
+
+            if (accept == null) { return XML; }
+
+            List<MediaType> accepted;
+
+            try {
+                accepted = MediaType.parseMediaTypes(accept);
+            } catch (InvalidMediaTypeException e) {
+                return XML;
+            }
+
+            MediaType.sortBySpecificityAndQuality(accepted);
+
+            for (MediaType type : accepted) {
+                if (type.getQualityValue() == 0) continue;
+
+                if (type.isCompatibleWith(MediaType.APPLICATION_XML)) { return XML; }
+                if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) { return JSON; }
+            }
+
+            return XML;
+        }
+    }
+
+    /**
+     * Markup around the values of one attribute name, null parts if the name can not be written in that format.
+     */
+    private static final class Template {
+        private final String xmlOpen;
+        private final String xmlClose;
+        private final String jsonName;
+
+        private Template(String name) {
+            boolean validXml = XML_NAME.matcher(name).matches();
+
+            this.xmlOpen  = validXml ? "<cas:" + name + ">" : null;
+            this.xmlClose = validXml ? "</cas:" + name + ">" : null;
+            this.jsonName = "\"" + escapeJson(name) + "\":";
+        }
+    }
+
+    private static final class AttributesKey {
+        private final Integer identityId;
+        private final long    version;
+        private final Format  format;
+
+        private AttributesKey(Integer identityId, long version, Format format) {
+            this.identityId = identityId;
+            this.version    = version;
+            this.format     = format;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof AttributesKey)) { return false; }
+
+            AttributesKey key = (AttributesKey) o;
+            return version == key.version && format == key.format && Objects.equals(identityId, key.identityId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(identityId, version, format);
+        }
+    }
+
+    private final Cache<String, Template>      templates;
+    private final Cache<AttributesKey, String> attributes;
+
+    public CasResponseWriter(@Value("${app.cache.cas-attributes-size:10000}") long maximumSize) {
+        this.templates  = Caffeine.newBuilder().maximumSize(1000).build();
+        this.attributes = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    public void writeSuccess(Identity identity, Format format, Writer out) throws IOException {
+        String rendered = identity.getId() != null
+                ? attributes.get(new AttributesKey(identity.getId(), identity.getVersion(), format), key -> renderAttributes(identity, format))
+                : renderAttributes(identity, format);
+
+        if (format == Format.XML) {
+            out.write(XML_HEADER);
+            out.write("<cas:authenticationSuccess><cas:user>");
+            writeXml(identity.getUsername(), out);
+            out.write("</cas:user><cas:attributes>");
+            out.write(rendered);
+            out.write("</cas:attributes></cas:authenticationSuccess>");
+            out.write(XML_FOOTER);
+        } else {
+            out.write("{\"authenticationSuccess\":{\"user\":");
+            writeJsonString(identity.getUsername(), out);
+            out.write(",\"attributes\":{");
+            out.write(rendered);
+            out.write("}},\"authenticationFailure\":null}");
+        }
+
+        out.flush();
+    }
+
+    public void writeFailure(AuthFailedResponse.ErrorCode code, String description, Format format, Writer out) throws IOException {
+        if (format == Format.XML) {
+            out.write(XML_HEADER);
+            out.write("<cas:authenticationFailure code=\"");
+            out.write(code.name());
+            out.write("\">");
+            writeXml(description, out);
+            out.write("</cas:authenticationFailure>");
+            out.write(XML_FOOTER);
+        } else {
+            out.write("{\"authenticationSuccess\":null,\"authenticationFailure\":{\"code\":\"");
+            out.write(code.name());
+            out.write("\",\"description\":");
+            writeJsonString(description, out);
+            out.write("}}");
+        }
+
+        out.flush();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, attributes, "authy.cas.attributes");
+    }
+
+    /**
+     * Released attributes in the order they were always added, values of one name are de-duplicated. A name with a
+     * single value is a plain value in JSON, otherwise an array, XML repeats the element.
+     */
+    private String renderAttributes(Identity identity, Format format) {
+        Map<String, Set<String>> values = new LinkedHashMap<>();
+
+        if (identity.getAuthorities() != null) {
+            for (Authority authority : identity.getAuthorities()) add(values, "role", authority.getName());
+        }
+
+        if (identity.getMetaData() != null) {
+            identity.getMetaData().forEach((key, value) -> add(values, key, value));
+        }
+
+        add(values, "displayName", identity.getDisplayName());
+        add(values, "email", identity.getEmail());
+        add(values, "locked", Objects.toString(identity.getLocked(), null));
+        add(values, "admin", Objects.toString(identity.getAdmin(), null));
+        add(values, "otpEnabled", Objects.toString(identity.getOtpEnabled(), null));
+
+        StringBuilder out   = new StringBuilder(256);
+        boolean       first = true;
+
+        for (Map.Entry<String, Set<String>> entry : values.entrySet()) {
+            Template template = templates.get(entry.getKey(), Template::new);
+
+            if (format == Format.XML) {
+                if (template.xmlOpen == null) continue;
+
+                for (String value : entry.getValue()) {
+                    out.append(template.xmlOpen);
+                    appendXml(value, out);
+                    out.append(template.xmlClose);
+                }
+            } else {
+                if (!first) out.append(',');
+                first = false;
+
+                out.append(template.jsonName);
+
+                if (entry.getValue().size() == 1) {
+                    appendJsonString(entry.getValue().iterator().next(), out);
+                } else {
+                    out.append('[');
+
+                    boolean firstValue = true;
+                    for (String value : entry.getValue()) {
+                        if (!firstValue) out.append(',');
+                        firstValue = false;
+                        appendJsonString(value, out);
+                    }
+
+                    out.append(']');
+                }
+            }
+        }
+
+        return out.toString();
+    }
+
+    private static void add(Map<String, Set<String>> values, String name, String value) {
+        if (name == null || value == null) { return; }
+
+        values.computeIfAbsent(name, k -> new LinkedHashSet<>()).add(value);
+    }
+
+    private static void writeXml(String value, Writer out) throws IOException {
+        if (value == null) { return; }
+
+        StringBuilder escaped = new StringBuilder(value.length() + 16);
+        appendXml(value, escaped);
+        out.append(escaped);
+    }
+
+    private static void writeJsonString(String value, Writer out) throws IOException {
+        StringBuilder escaped = new StringBuilder(value != null ? value.length() + 2 : 4);
+        appendJsonString(value, escaped);
+        out.append(escaped);
+    }
+
+    static void appendXml(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                case '\'':
+                    out.append("&apos;");
+                    break;
+                default:
+                    // control characters are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') out.append(c);
+            }
+        }
+    }
+
+    static void appendJsonString(String value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+
+        out.append('"');
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2);
+        appendJsonString(value, out);
+        return out.substring(1, out.length() - 1);
+    }
+}
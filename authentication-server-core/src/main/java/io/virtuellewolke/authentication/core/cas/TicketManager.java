@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Objects;
 import java.util.Random;
 
@@ -16,6 +17,10 @@ import java.util.Random;
 @Component
 @RequiredArgsConstructor
 public class TicketManager {
+    private static final int            MAX_ISSUE_ATTEMPTS = 3;
+    private static final int            TOKEN_BYTES        = 16;
+    private static final Base64.Encoder TOKEN_ENCODER      = Base64.getUrlEncoder().withoutPadding();
+
     private final TicketStore ticketStore;
 
     private final Random random = new SecureRandom();
@@ -25,53 +30,56 @@ public class TicketManager {
 
 
     public Ticket issue(TicketType ticketType, String service, Identity identity) {
-        String token = null;
-
-        while (token == null) {
-            String maybeToken = ticketType.toString().toUpperCase() + "-" + getRandomInteger();
-            if (ticketStore.isExpired(maybeToken)) {
-                token = maybeToken;
-            }
-        }
-
         if (service == null || identity == null) {
             throw new IllegalArgumentException("Neither identity or service can be null");
         }
 
         Ticket data = new Ticket();
+        data.setTicketType(ticketType);
         data.setIdentity(identity);
+        data.setIdentityVersion(identity.getVersion());
         data.setServiceUrl(service);
-        data.setToken(token);
+        data.setIssuedAt(System.currentTimeMillis());
+
+        for (int attempt = 1; attempt <= MAX_ISSUE_ATTEMPTS; attempt++) {
+            data.setToken(ticketType.toString().toUpperCase() + "-" + getRandomToken());
 
-        log.info("Issued new Ticket {}", data);
+            if (ticketStore.save(data)) {
+                log.info("Issued new Ticket {}", data);
+                return data;
+            }
 
-        ticketStore.save(data);
+            log.warn("Ticket token {} is already taken, generating a new one.", data.getToken());
+        }
 
-        return data;
+        throw new IllegalStateException("Failed to issue a unique ticket after " + MAX_ISSUE_ATTEMPTS + " attempts");
     }
 
     public Ticket getTicket(String token, String service) {
-        if (!ticketStore.isExpired(token)) {
-            Ticket ticket = ticketStore.getTicket(token);
-
-            log.debug("Ticket {} got removed from the Ticket database.", token);
-
-            if (Objects.equals(ticket.getServiceUrl(), service) || !isServiceValidationEnabled) {
-                log.info("Ticket {} was requested by the service.", token);
-                ticketStore.invalidate(token);
-                return ticket;
-            } else {
-                log.warn("Ticket {} was requested from the wrong Service. [{}] is not equal to [{}]", token, service, ticket.getServiceUrl());
-                throw new AccessDeniedException("Ticket " + token + " was requested from the wrong Service. [" + service + "] is not equal to [" + ticket.getServiceUrl() + "]");
-            }
-        } else {
+        Ticket ticket = ticketStore.consume(token).orElseThrow(() -> {
             log.warn("Ticket {} does not exist or is expired.", token);
-            throw new AccessDeniedException("Ticket " + token + " does not exist or is expired.");
+            return new AccessDeniedException("Ticket " + token + " does not exist or is expired.");
+        });
+
+        log.debug("Ticket {} got removed from the Ticket database.", token);
+
+        if (Objects.equals(ticket.getServiceUrl(), service) || !isServiceValidationEnabled) {
+            log.info("Ticket {} was requested by the service.", token);
+            return ticket;
+        } else {
+            log.warn("Ticket {} was requested from the wrong Service. [{}] is not equal to [{}]", token, service, ticket.getServiceUrl());
+            throw new AccessDeniedException("Ticket " + token + " was requested from the wrong Service. [" + service + "] is not equal to [" + ticket.getServiceUrl() + "]");
         }
     }
 
 
-    private Integer getRandomInteger() {
-        return random.nextInt((9999999 - 1000000) + 1) + 1000000;
+    /**
+     * 128 random bits, base64url encoded so the token can be appended to service urls as is.
+     */
+    private String getRandomToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+
+        return TOKEN_ENCODER.encodeToString(bytes);
     }
 }
\ No newline at end of file
@@ -2,12 +2,27 @@ package io.virtuellewolke.authentication.core.cas;
 
 import io.virtuellewolke.authentication.core.cas.model.Ticket;
 
+import java.util.Optional;
+
 public interface TicketStore {
     Ticket getTicket(String token);
 
     boolean isExpired(String token);
 
-    void save(Ticket ticket);
+    /**
+     * Stores the ticket only if its token is not taken yet, this is a single conditional write for every store.
+     *
+     * @return false if a live ticket with the same token already exists.
+     */
+    boolean save(Ticket ticket);
 
     void invalidate(String token);
+
+    /**
+     * Atomically reads and invalidates a ticket, so a ticket can only be consumed once even if it is validated
+     * concurrently.
+     *
+     * @return the ticket or empty if it does not exist or is expired.
+     */
+    Optional<Ticket> consume(String token);
 }
\ No newline at end of file
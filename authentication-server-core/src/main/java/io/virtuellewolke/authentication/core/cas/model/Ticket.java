@@ -1,6 +1,7 @@
 package io.virtuellewolke.authentication.core.cas.model;
 
 
+import io.virtuellewolke.authentication.core.cas.TicketType;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import lombok.Getter;
 import lombok.Setter;
@@ -12,7 +13,10 @@ import java.io.Serializable;
 @Setter
 @ToString(exclude = "identity")
 public class Ticket implements Serializable {
-    private String   token;
-    private String   serviceUrl;
-    private Identity identity;
+    private String     token;
+    private TicketType ticketType;
+    private String     serviceUrl;
+    private Identity   identity;
+    private long       identityVersion;
+    private long       issuedAt;
 }
\ No newline at end of file
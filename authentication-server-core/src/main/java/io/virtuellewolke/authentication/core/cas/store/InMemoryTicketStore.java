@@ -4,21 +4,18 @@ import io.virtuellewolke.authentication.core.cas.TicketStore;
 import io.virtuellewolke.authentication.core.cas.model.Ticket;
 import io.virtuellewolke.authentication.core.exceptions.SecurityTokenExpiredException;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
-@NoArgsConstructor
 public class InMemoryTicketStore implements TicketStore {
 
-    private static final int DEFAULT_EXPIRE_TIME = 10;
+    private static final long WHEEL_TICK_MILLIS = 1000;
+    private static final int  WHEEL_SIZE        = 64;
 
     /**
      * The name was changed to "expiring" because of the explanation stated here: https://english.stackexchange.com/a/312087
@@ -26,34 +23,50 @@ public class InMemoryTicketStore implements TicketStore {
      * Expirable can but dont need to expire, but 'expiring' will always expire someday.
      */
     @Getter
-    @Setter
     private static class ExpiringTicket extends Ticket {
-        private LocalDateTime expireAfter;
+        private final long expireAfter;
 
-        public ExpiringTicket(Ticket castFrom, LocalDateTime expireAfter) {
+        public ExpiringTicket(Ticket castFrom, long expireAfter) {
             this.setIdentity(castFrom.getIdentity());
             this.setServiceUrl(castFrom.getServiceUrl());
             this.setToken(castFrom.getToken());
-            this.setExpireAfter(expireAfter);
+            this.setTicketType(castFrom.getTicketType());
+            this.setIssuedAt(castFrom.getIssuedAt());
+            this.expireAfter = expireAfter;
         }
 
-        public boolean isExpired() {
-            return LocalDateTime.now().isAfter(expireAfter);
+        public boolean isExpired(long now) {
+            return now > expireAfter;
         }
     }
 
-    private final List<ExpiringTicket> tickets = new CopyOnWriteArrayList<>();
+    private final Map<String, ExpiringTicket> tickets     = new ConcurrentHashMap<>();
+    private final TimingWheel<String>         expiryWheel = new TimingWheel<>(WHEEL_TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    private final TicketConfiguration         ticketConfiguration;
 
-    @Scheduled(fixedDelay = 10000)
+    public InMemoryTicketStore() {
+        this(new TicketConfiguration());
+    }
+
+    public InMemoryTicketStore(TicketConfiguration ticketConfiguration) {
+        this.ticketConfiguration = ticketConfiguration;
+    }
+
+    /**
+     * Expires the tickets of every elapsed wheel bucket, tickets which are still alive are never touched.
+     */
+    @Scheduled(fixedDelay = WHEEL_TICK_MILLIS)
     public void cleanup() {
-        tickets.removeIf(ExpiringTicket::isExpired);
+        long now = System.currentTimeMillis();
+
+        expiryWheel.advanceClock(now, token -> tickets.computeIfPresent(token, (key, ticket) -> ticket.isExpired(now) ? null : ticket));
     }
 
     @Override
     public Ticket getTicket(String token) {
         ExpiringTicket ticket = getTicketFromMap(token);
 
-        if (ticket != null && !ticket.isExpired()) { return ticket; }
+        if (ticket != null && !ticket.isExpired(System.currentTimeMillis())) { return ticket; }
 
         throw new SecurityTokenExpiredException("Token " + token + " expired.");
     }
@@ -62,20 +75,41 @@ public class InMemoryTicketStore implements TicketStore {
     public boolean isExpired(String token) {
         ExpiringTicket ticket = getTicketFromMap(token);
 
-        return ticket == null || ticket.isExpired();
+        return ticket == null || ticket.isExpired(System.currentTimeMillis());
     }
 
     @Override
-    public void save(Ticket ticket) {
-        tickets.add(new ExpiringTicket(ticket, LocalDateTime.now().plusSeconds(DEFAULT_EXPIRE_TIME)));
+    public boolean save(Ticket ticket) {
+        long           now            = System.currentTimeMillis();
+        ExpiringTicket expiringTicket = new ExpiringTicket(ticket, now + ticketConfiguration.getTimeToLive(ticket.getTicketType()).toMillis());
+
+        // putIfAbsent, but a ticket which expired and was not swept yet does not block its token
+        ExpiringTicket stored = tickets.compute(ticket.getToken(), (token, existing) -> existing == null || existing.isExpired(now) ? expiringTicket : existing);
+
+        if (stored != expiringTicket) { return false; }
+
+        if (!expiryWheel.add(ticket.getToken(), expiringTicket.getExpireAfter() + 1)) {
+            tickets.remove(ticket.getToken(), expiringTicket);
+        }
+
+        return true;
     }
 
     @Override
     public void invalidate(String token) {
-        tickets.removeIf(expiringTicket -> Objects.equals(token, expiringTicket.getToken()));
+        if (token != null) tickets.remove(token);
+    }
+
+    @Override
+    public Optional<Ticket> consume(String token) {
+        ExpiringTicket ticket = token != null ? tickets.remove(token) : null;
+
+        if (ticket != null && !ticket.isExpired(System.currentTimeMillis())) { return Optional.of(ticket); }
+
+        return Optional.empty();
     }
 
     private ExpiringTicket getTicketFromMap(String token) {
-        return tickets.stream().filter(expiringTicket -> Objects.equals(token, expiringTicket.getToken())).findFirst().orElse(null);
+        return token != null ? tickets.get(token) : null;
     }
-}
\ No newline at end of file
+}
@@ -15,6 +15,12 @@ import java.time.Duration;
 @ConditionalOnProperty(prefix = "spring.redis", name = "enabled", havingValue = "true")
 @ConfigurationProperties(prefix = "spring.redis")
 public class RedisConfiguration extends RedisProperties {
-    private Duration ifFailedRetryAfter = Duration.parse("PT0.010S");
-    private Integer  maxConnectAttempts = 3;
-}
\ No newline at end of file
+    private Integer maxConnectAttempts = 3;
+
+    private Integer  poolMaxTotal              = 32;
+    private Integer  poolMaxIdle               = 32;
+    private Integer  poolMinIdle               = 4;
+    private Duration poolMaxWait               = Duration.parse("PT0.5S");
+    private Duration poolEvictionInterval      = Duration.parse("PT30S");
+    private Duration poolMinEvictableIdleTime  = Duration.parse("PT1M");
+}
@@ -1,36 +1,51 @@
 package io.virtuellewolke.authentication.core.cas.store;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.virtuellewolke.authentication.core.exceptions.SecurityTokenExpiredException;
-import io.virtuellewolke.authentication.core.exceptions.UnknownServiceException;
 import io.virtuellewolke.authentication.core.cas.TicketStore;
 import io.virtuellewolke.authentication.core.cas.model.Ticket;
 import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
-import lombok.RequiredArgsConstructor;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.exceptions.SecurityTokenExpiredException;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
 
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 @Slf4j
-@RequiredArgsConstructor
 public class RedisTicketStore implements TicketStore {
 
     private static final String REDIS_KEY = "cas.ticket.%s";
 
-    private final JedisConnectionFactory jedisConnectionFactory;
-    private final ObjectMapper           objectMapper;
+    /**
+     * GET and DEL in one atomic step, Redis executes scripts without interleaving other commands.
+     */
+    private static final byte[] CONSUME_SCRIPT = SafeEncoder.encode("local ticket = redis.call('GET', KEYS[1]) "
+            + "if ticket then redis.call('DEL', KEYS[1]) end "
+            + "return ticket");
 
-    private final InMemoryTicketStore fallback = new InMemoryTicketStore();
+    private final JedisConnectionFactory                        jedisConnectionFactory;
+    private final BiFunction<Integer, Long, Optional<Identity>> identityResolver;
+    private final TicketConfiguration                           ticketConfiguration;
+    private final InMemoryTicketStore                           fallback;
 
     @Setter
     private boolean fallbackEnabled = true;
 
-    @Scheduled(fixedDelay = 10000)
+    public RedisTicketStore(JedisConnectionFactory jedisConnectionFactory, BiFunction<Integer, Long, Optional<Identity>> identityResolver, TicketConfiguration ticketConfiguration) {
+        this.jedisConnectionFactory = jedisConnectionFactory;
+        this.identityResolver       = identityResolver;
+        this.ticketConfiguration    = ticketConfiguration;
+        this.fallback               = new InMemoryTicketStore(ticketConfiguration);
+    }
+
+    @Scheduled(fixedDelay = 1000)
     public void cleanupFallback() {
         fallback.cleanup();
     }
@@ -39,17 +54,11 @@ public class RedisTicketStore implements TicketStore {
     public Ticket getTicket(String token) {
         return resilienceCall(
                 () -> {
-                    String json = getRedisClient().get(formatRedisKey(token));
-
-                    if (json != null) {
-                        try {
-                            return objectMapper.readValue(json, Ticket.class);
-                        } catch (JsonProcessingException e) {
-                            throw new UnknownServiceException("Failed to read JSON from redis database", e);
-                        }
-                    } else {
-                        throw new SecurityTokenExpiredException("Token " + token + " expired.");
-                    }
+                    byte[] record = withRedis(jedis -> jedis.get(formatRedisKey(token)));
+
+                    return Optional.ofNullable(record)
+                            .flatMap(r -> TicketCodec.decode(token, r, identityResolver))
+                            .orElseThrow(() -> new SecurityTokenExpiredException("Token " + token + " expired."));
                 },
                 () -> fallback.getTicket(token)
         );
@@ -58,19 +67,20 @@ public class RedisTicketStore implements TicketStore {
     @Override
     public boolean isExpired(String token) {
         return resilienceCall(
-                () -> !getRedisClient().exists(formatRedisKey(token)),
+                () -> !withRedis(jedis -> jedis.exists(formatRedisKey(token))),
                 () -> fallback.isExpired(token)
         );
     }
 
     @Override
-    public void save(Ticket ticket) {
-        resilienceCall(
+    public boolean save(Ticket ticket) {
+        return resilienceCall(
                 () -> {
-                    Jedis jedis = getRedisClient();
+                    byte[]    record = TicketCodec.encode(ticket);
+                    SetParams params = SetParams.setParams().nx().px(ticketConfiguration.getTimeToLive(ticket.getTicketType()).toMillis());
+                    String    result = withRedis(jedis -> jedis.set(formatRedisKey(ticket.getToken()), record, params));
 
-                    jedis.set(formatRedisKey(ticket.getToken()), objectMapper.writeValueAsString(ticket));
-                    jedis.expire(formatRedisKey(ticket.getToken()), 15);
+                    return "OK".equals(result);
                 },
                 () -> fallback.save(ticket)
         );
@@ -79,13 +89,34 @@ public class RedisTicketStore implements TicketStore {
     @Override
     public void invalidate(String token) {
         resilienceCall(
-                () -> getRedisClient().del(formatRedisKey(token)),
+                () -> withRedis(jedis -> jedis.del(formatRedisKey(token))),
                 () -> fallback.invalidate(token)
         );
     }
 
-    private String formatRedisKey(String token) {
-        return String.format(REDIS_KEY, token);
+    @Override
+    public Optional<Ticket> consume(String token) {
+        return resilienceCall(
+                () -> {
+                    Object record = withRedis(jedis -> jedis.eval(CONSUME_SCRIPT, 1, formatRedisKey(token)));
+
+                    return record instanceof byte[] ? TicketCodec.decode(token, (byte[]) record, identityResolver) : Optional.<Ticket>empty();
+                },
+                () -> fallback.consume(token)
+        );
+    }
+
+    private byte[] formatRedisKey(String token) {
+        return SafeEncoder.encode(String.format(REDIS_KEY, token));
+    }
+
+    /**
+     * Runs a command on a pooled connection, the connection is handed back to the pool afterwards.
+     */
+    private <T> T withRedis(Function<Jedis, T> command) {
+        try (Jedis jedis = jedisConnectionFactory.getConnection()) {
+            return command.apply(jedis);
+        }
     }
 
     private <T> T resilienceCall(Supplier<T> callback, Supplier<T> resilienceCallback) {
@@ -115,12 +146,8 @@ public class RedisTicketStore implements TicketStore {
         }
     }
 
-    public Jedis getRedisClient() {
-        return jedisConnectionFactory.getConnection();
-    }
-
     @FunctionalInterface
     private interface Callback {
         void exec() throws Exception;
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,8 @@
 package io.virtuellewolke.authentication.core.cas.store;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.virtuellewolke.authentication.core.cas.TicketStore;
 import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -14,19 +14,26 @@ import org.springframework.core.annotation.Order;
 @Configuration
 public class StoreConfiguration {
 
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.redis", name = "enabled", havingValue = "true")
+    public JedisConnectionFactory jedisConnectionFactory(RedisConfiguration config) {
+        log.info("Redis connection pool enabled (max {} connections)", config.getPoolMaxTotal());
+        return new JedisConnectionFactory(config);
+    }
+
     @Bean
     @Order
     @ConditionalOnProperty(prefix = "spring.redis", name = "enabled", havingValue = "true")
-    public TicketStore redisTicketStore(RedisConfiguration config, ObjectMapper objectMapper) {
+    public TicketStore redisTicketStore(JedisConnectionFactory jedisConnectionFactory, IdentityCache identityCache, TicketConfiguration ticketConfiguration) {
         log.info("Ticket-Store enabled: Redis");
-        return new RedisTicketStore(new JedisConnectionFactory(config), objectMapper);
+        return new RedisTicketStore(jedisConnectionFactory, identityCache::findById, ticketConfiguration);
     }
 
     @Bean
     @Order
     @ConditionalOnMissingBean(TicketStore.class)
-    public TicketStore inMemoryTicketStore() {
+    public TicketStore inMemoryTicketStore(TicketConfiguration ticketConfiguration) {
         log.info("Ticket-Store enabled: In-Memory");
-        return new InMemoryTicketStore();
+        return new InMemoryTicketStore(ticketConfiguration);
     }
 }
@@ -0,0 +1,103 @@
+package io.virtuellewolke.authentication.core.cas.store;
+
+import io.virtuellewolke.authentication.core.cas.TicketType;
+import io.virtuellewolke.authentication.core.cas.model.Ticket;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * Binary ticket record: format version, ticket type, identity id and version, issue time and the service url. The
+ * identity itself is not stored, it is resolved again when the ticket is read, in at least the version it had when the
+ * ticket was issued. A local copy older than that (cached on another node) is never handed out for a ticket.
+ */
+final class TicketCodec {
+
+    private static final byte FORMAT_VERSION        = 3;
+    private static final byte NO_TICKET_TYPE        = -1;
+    private static final int  NO_IDENTITY           = -1;
+    private static final int  MAX_SERVICE_URL_BYTES = 4096;
+
+    private TicketCodec() {
+    }
+
+    static byte[] encode(Ticket ticket) {
+        byte[] serviceUrl = ticket.getServiceUrl() != null ? ticket.getServiceUrl().getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+        if (serviceUrl.length > MAX_SERVICE_URL_BYTES) {
+            throw new IllegalArgumentException("Service url exceeds " + MAX_SERVICE_URL_BYTES + " bytes");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 + 1 + 4 + 8 + 8 + 2 + serviceUrl.length);
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(ticket.getTicketType() != null ? ticket.getTicketType().ordinal() : NO_TICKET_TYPE);
+            out.writeInt(getIdentityId(ticket));
+            out.writeLong(ticket.getIdentityVersion());
+            out.writeLong(ticket.getIssuedAt());
+            out.writeShort(serviceUrl.length);
+            out.write(serviceUrl);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static int getIdentityId(Ticket ticket) {
+        if (ticket.getIdentity() == null) { return NO_IDENTITY; }
+
+        if (ticket.getIdentity().getId() == null) {
+            throw new IllegalArgumentException("Only persisted identities can be stored in a ticket");
+        }
+
+        return ticket.getIdentity().getId();
+    }
+
+    /**
+     * @param identityResolver resolves an identity id to the identity in at least the given version.
+     * @return the ticket or empty if the record has an unknown format or its identity does not exist anymore.
+     */
+    static Optional<Ticket> decode(String token, byte[] record, BiFunction<Integer, Long, Optional<Identity>> identityResolver) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            if (in.readByte() != FORMAT_VERSION) { return Optional.empty(); }
+
+            byte ticketType = in.readByte();
+            if (ticketType >= TicketType.values().length) { return Optional.empty(); }
+
+            int    identityId      = in.readInt();
+            long   identityVersion = in.readLong();
+            long   issuedAt        = in.readLong();
+            byte[] serviceUrl = new byte[in.readUnsignedShort()];
+            in.readFully(serviceUrl);
+
+            Ticket ticket = new Ticket();
+            ticket.setToken(token);
+            ticket.setTicketType(ticketType >= 0 ? TicketType.values()[ticketType] : null);
+            ticket.setIdentityVersion(identityVersion);
+            ticket.setIssuedAt(issuedAt);
+            ticket.setServiceUrl(new String(serviceUrl, StandardCharsets.UTF_8));
+
+            if (identityId != NO_IDENTITY) {
+                Optional<Identity> identity = identityResolver.apply(identityId, identityVersion);
+
+                if (identity.isEmpty() || identity.get().getVersion() < identityVersion) { return Optional.empty(); }
+
+                ticket.setIdentity(identity.get());
+            }
+
+            return Optional.of(ticket);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
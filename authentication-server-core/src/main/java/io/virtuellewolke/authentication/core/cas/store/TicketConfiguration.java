@@ -0,0 +1,35 @@
+package io.virtuellewolke.authentication.core.cas.store;
+
+import io.virtuellewolke.authentication.core.cas.TicketType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Lifetime of a ticket per {@link TicketType}, shared by every {@link io.virtuellewolke.authentication.core.cas.TicketStore}.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "cas.tickets")
+public class TicketConfiguration {
+    private Map<TicketType, Duration> timeToLive = new EnumMap<>(Map.of(
+            TicketType.ST, Duration.parse("PT10S"),
+            TicketType.PGST, Duration.parse("PT10S"),
+            TicketType.PG, Duration.parse("PT2H")
+    ));
+
+    /**
+     * Tickets without a type are treated as service tickets.
+     */
+    public Duration getTimeToLive(TicketType ticketType) {
+        TicketType type = ticketType != null ? ticketType : TicketType.ST;
+
+        return timeToLive.getOrDefault(type, timeToLive.getOrDefault(TicketType.ST, Duration.parse("PT10S")));
+    }
+}
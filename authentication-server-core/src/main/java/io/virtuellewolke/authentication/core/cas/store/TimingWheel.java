@@ -0,0 +1,150 @@
+package io.virtuellewolke.authentication.core.cas.store;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel which expires keys bucket by bucket instead of scanning every stored entry.
+ * <p>
+ * The root wheel has {@code wheelSize} buckets of {@code tickMillis} each. Deadlines beyond its span are handed to
+ * an overflow wheel whose tick equals the span of the wheel below. Once the clock reaches the start of an overflow
+ * bucket, its keys are cascaded down again, so every key is touched at most once per level.
+ * <p>
+ * Adding keys is safe from any thread, {@link #advanceClock(long, Consumer)} is expected to be called by a single
+ * scheduler thread.
+ */
+class TimingWheel<K> {
+
+    private static final class Entry<K> {
+        private final K    key;
+        private final long deadline;
+
+        private Entry(K key, long deadline) {
+            this.key      = key;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long               tickMillis;
+    private final int                wheelSize;
+    private final long               interval;
+    private final Queue<Entry<K>>[]  buckets;
+    private final TimingWheel<K>     root;
+    private final ReadWriteLock      lock;
+    private volatile long            currentTime;
+    private volatile TimingWheel<K>  overflowWheel;
+
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this(tickMillis, wheelSize, startMillis, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TimingWheel(long tickMillis, int wheelSize, long startMillis, TimingWheel<K> root) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+
+        this.tickMillis  = tickMillis;
+        this.wheelSize   = wheelSize;
+        this.interval    = tickMillis * wheelSize;
+        this.currentTime = startMillis - (startMillis % tickMillis);
+        this.root        = root != null ? root : this;
+        this.lock        = root != null ? root.lock : new ReentrantReadWriteLock();
+        this.buckets     = new Queue[wheelSize];
+
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Schedules {@code key} to be expired once the clock passed {@code deadline}.
+     *
+     * @return false if the deadline already passed and the key was not scheduled.
+     */
+    boolean add(K key, long deadline) {
+        lock.readLock().lock();
+        try {
+            return add(new Entry<>(key, deadline));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the clock forward to {@code now} and hands every key whose deadline passed to {@code onExpire}.
+     */
+    void advanceClock(long now, Consumer<K> onExpire) {
+        lock.writeLock().lock();
+        try {
+            while (currentTime + tickMillis <= now) {
+                Queue<Entry<K>> bucket = bucketFor(currentTime);
+
+                for (Entry<K> entry = bucket.poll(); entry != null; entry = bucket.poll()) {
+                    onExpire.accept(entry.key);
+                }
+
+                currentTime += tickMillis;
+
+                TimingWheel<K> overflow = overflowWheel;
+                if (overflow != null && currentTime % overflow.tickMillis == 0) {
+                    overflow.cascade(currentTime, onExpire);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean add(Entry<K> entry) {
+        if (entry.deadline < currentTime) {
+            return false;
+        }
+
+        if (entry.deadline < currentTime + interval) {
+            bucketFor(entry.deadline).offer(entry);
+            return true;
+        }
+
+        return getOverflowWheel().add(entry);
+    }
+
+    /**
+     * Called when the wheel below reached the start of one of our buckets. Its keys are due within the span of the
+     * wheel below, so they are re-added from the root and land in their final bucket.
+     */
+    private void cascade(long time, Consumer<K> onExpire) {
+        currentTime = time;
+
+        Queue<Entry<K>> bucket = bucketFor(time);
+
+        for (Entry<K> entry = bucket.poll(); entry != null; entry = bucket.poll()) {
+            if (!root.add(entry)) {
+                onExpire.accept(entry.key);
+            }
+        }
+
+        TimingWheel<K> overflow = overflowWheel;
+        if (overflow != null && time % overflow.tickMillis == 0) {
+            overflow.cascade(time, onExpire);
+        }
+    }
+
+    private Queue<Entry<K>> bucketFor(long time) {
+        return buckets[(int) ((time / tickMillis) % wheelSize)];
+    }
+
+    private TimingWheel<K> getOverflowWheel() {
+        if (overflowWheel == null) {
+            synchronized (this) {
+                if (overflowWheel == null) {
+                    overflowWheel = new TimingWheel<>(interval, wheelSize, currentTime, root);
+                }
+            }
+        }
+        return overflowWheel;
+    }
+}
@@ -4,4 +4,8 @@ public class ClientConnectException extends RuntimeException {
     public ClientConnectException(String message) {
         super(message);
     }
-}
\ No newline at end of file
+
+    public ClientConnectException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
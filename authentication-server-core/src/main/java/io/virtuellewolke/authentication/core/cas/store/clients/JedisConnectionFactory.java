@@ -1,73 +1,105 @@
 package io.virtuellewolke.authentication.core.cas.store.clients;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.virtuellewolke.authentication.core.cas.store.RedisConfiguration;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
 
 import java.time.Duration;
 
+/**
+ * Hands out pooled Redis connections. Every connection belongs to exactly one caller until it is closed, which
+ * returns it to the pool.
+ */
 @Slf4j
-public class JedisConnectionFactory {
+public class JedisConnectionFactory implements MeterBinder, DisposableBean {
 
     private final RedisConfiguration configuration;
-
-    private Jedis connection;
-
-    private int connectAttempts = 0;
+    private final JedisPool          pool;
 
     public JedisConnectionFactory(RedisConfiguration configuration) {
         this.configuration = configuration;
+        this.pool          = createPool(configuration);
     }
 
+    /**
+     * Borrows a connection from the pool, the caller has to close it afterwards (try-with-resources).
+     */
     public Jedis getConnection() {
-        testConnection();
-        return this.connection;
-    }
-
-    @SneakyThrows
-    private void testConnection() {
-        if (connection == null) recreateConnection();
+        int            attempts  = Math.max(0, configuration.getMaxConnectAttempts()) + 1;
+        JedisException lastError = null;
+
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                Jedis jedis = pool.getResource();
+                log.trace("Acquired a jedis connection.");
+                return jedis;
+            } catch (JedisConnectionException e) {
+                lastError = e;
+                log.trace("Failed to acquire a jedis connection ({}/{})", attempt, attempts);
+            } catch (JedisException e) {
+                throw new ClientConnectException("Failed to borrow a redis connection from the pool.", e);
+            }
+        }
 
-        try {
-            connection.ping();
-            connection.select(configuration.getDatabase());
-            connectAttempts = 0;
-            log.trace("Acquired a jedis connection.");
-        } catch (Exception e) {
-            recreateConnection();
+        log.trace("Failed to acquire a jedis connection after {} attempts.", attempts);
+        throw new ClientConnectException("Failed to connect to redis. Aborting.", lastError);
+    }
 
-            connectAttempts++;
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("authy.redis.pool.active", pool, JedisPool::getNumActive)
+                .description("Redis connections currently borrowed from the pool")
+                .register(registry);
+        Gauge.builder("authy.redis.pool.idle", pool, JedisPool::getNumIdle)
+                .description("Idle Redis connections in the pool")
+                .register(registry);
+        Gauge.builder("authy.redis.pool.waiting", pool, JedisPool::getNumWaiters)
+                .description("Threads waiting for a Redis connection")
+                .register(registry);
+        Gauge.builder("authy.redis.pool.max", configuration, c -> c.getPoolMaxTotal())
+                .description("Maximum number of Redis connections")
+                .register(registry);
+        Gauge.builder("authy.redis.pool.borrow.wait.mean", pool, JedisPool::getMeanBorrowWaitTimeMillis)
+                .description("Mean time a thread waited for a Redis connection")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
 
-            if (connectAttempts > configuration.getMaxConnectAttempts()) {
-                connectAttempts = 0;
-                log.trace("Failed to acquire a jedis connection after {} attempts.", configuration.getMaxConnectAttempts());
-                throw new ClientConnectException("Failed to ping redis. Aborting.");
-            } else {
-                log.trace("Failed to acquire a jedis connection, retrying in {}ms ({}/{})", configuration.getIfFailedRetryAfter().toMillis(), connectAttempts, configuration.getMaxConnectAttempts());
-                Thread.sleep(configuration.getIfFailedRetryAfter().toMillis());
-                testConnection();
-            }
-        }
+    @Override
+    public void destroy() {
+        pool.close();
     }
 
-    private void recreateConnection() {
-        if (connection != null) {
-            connection.close();
-            connection = null;
-        }
+    private static JedisPool createPool(RedisConfiguration configuration) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(configuration.getPoolMaxTotal());
+        poolConfig.setMaxIdle(configuration.getPoolMaxIdle());
+        poolConfig.setMinIdle(configuration.getPoolMinIdle());
+        poolConfig.setBlockWhenExhausted(true);
+        poolConfig.setMaxWaitMillis(configuration.getPoolMaxWait().toMillis());
+        poolConfig.setTestOnBorrow(false);
+        poolConfig.setTestWhileIdle(true);
+        poolConfig.setTimeBetweenEvictionRunsMillis(configuration.getPoolEvictionInterval().toMillis());
+        poolConfig.setMinEvictableIdleTimeMillis(configuration.getPoolMinEvictableIdleTime().toMillis());
 
         Duration timeout = configuration.getTimeout() != null ? configuration.getTimeout() : Duration.parse("PT1S");
 
-        connection = new Jedis(
+        return new JedisPool(
+                poolConfig,
                 configuration.getHost(),
                 configuration.getPort(),
                 ((Long) timeout.toMillis()).intValue(),
+                configuration.getPassword(),
+                configuration.getDatabase(),
                 configuration.isSsl()
         );
-
-        if (configuration.getPassword() != null) {
-            connection.auth(configuration.getPassword());
-        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package io.virtuellewolke.authentication.core.cas.store.clients;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.time.Duration;
+
+/**
+ * Keeps a pub/sub subscription alive on its own pooled connection and daemon thread, the subscription is renewed
+ * after connection failures until it is closed.
+ */
+@Slf4j
+public class JedisSubscription implements AutoCloseable {
+
+    private static final Duration RESUBSCRIBE_DELAY = Duration.parse("PT5S");
+
+    private final JedisConnectionFactory jedisConnectionFactory;
+    private final JedisPubSub            subscriber;
+    private final String[]               channels;
+    private final Thread                 thread;
+
+    private volatile boolean running = true;
+
+    private JedisSubscription(JedisConnectionFactory jedisConnectionFactory, String name, JedisPubSub subscriber, String... channels) {
+        this.jedisConnectionFactory = jedisConnectionFactory;
+        this.subscriber             = subscriber;
+        this.channels               = channels;
+        this.thread                 = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    public static JedisSubscription start(JedisConnectionFactory jedisConnectionFactory, String name, JedisPubSub subscriber, String... channels) {
+        JedisSubscription subscription = new JedisSubscription(jedisConnectionFactory, name, subscriber, channels);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+
+        if (subscriber.isSubscribed()) {
+            subscriber.unsubscribe();
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try (Jedis jedis = jedisConnectionFactory.getConnection()) {
+                jedis.subscribe(subscriber, channels);
+            } catch (RuntimeException e) {
+                if (!running) { break; }
+                log.warn("Lost the redis subscription of {}, retrying in {}", thread.getName(), RESUBSCRIBE_DELAY, e);
+            }
+
+            try {
+                Thread.sleep(RESUBSCRIBE_DELAY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+}
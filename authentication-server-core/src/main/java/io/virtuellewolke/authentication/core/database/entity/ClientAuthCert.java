@@ -1,8 +1,13 @@
 package io.virtuellewolke.authentication.core.database.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
 import javax.persistence.*;
@@ -13,8 +18,12 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @ToString
-public class ClientAuthCert {
+public class ClientAuthCert implements Persistable<BigInteger> {
+    /**
+     * Written as a string, the older serials (identity id followed by the issue time) do not fit a JavaScript number.
+     */
     @Id
+    @JsonSerialize(using = ToStringSerializer.class)
     private BigInteger serial;
 
     @ManyToOne(targetEntity = Identity.class, fetch = FetchType.EAGER)
@@ -24,12 +33,46 @@ public class ClientAuthCert {
 
     @Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
     private LocalDateTime issuedAt;
+    /**
+     * The notAfter of the certificate, a revoked certificate is kept (and listed in the CRL) until then.
+     */
+    @Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+    private LocalDateTime expiresAt;
     @Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
     private LocalDateTime revokedAt;
+    /**
+     * Written by the {@code LastSeenTracker} only.
+     */
+    @Column(insertable = false, updatable = false)
     @Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
     private LocalDateTime lastAccess;
+    /**
+     * A certificate which was never stored is inserted, so a duplicate serial fails instead of replacing a row.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient boolean stored;
 
     public boolean isRevoked() {
         return revokedAt != null && LocalDateTime.now().isAfter(revokedAt);
     }
-}
\ No newline at end of file
+
+    @Override
+    @JsonIgnore
+    public BigInteger getId() {
+        return serial;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    private void markStored() {
+        stored = true;
+    }
+}
@@ -1,28 +1,28 @@
 package io.virtuellewolke.authentication.core.database.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.virtuellewolke.authentication.core.util.HashMapConverter;
 import io.virtuellewolke.authentication.core.util.PartialUpdateableModel;
-import io.virtuellewolke.authentication.core.util.validation.Md5PasswordValidator;
-import io.virtuellewolke.authentication.core.util.validation.StringEqualsValidator;
-import io.virtuellewolke.authentication.core.util.validation.ValidatorChain;
+import io.virtuellewolke.authentication.core.util.RoleSet;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
-import org.apache.commons.codec.digest.Md5Crypt;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.persistence.*;
 import java.lang.reflect.Field;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Getter
 @Setter
 @Entity(name = "identity")
 @SuppressWarnings("JpaAttributeTypeInspection")
-@ToString(exclude = {"password", "otpSecret", "apiToken"})
-@EqualsAndHashCode(exclude = {"authorities", "metaData", "avatar"}, callSuper = false)
+@ToString(exclude = {"password", "newPassword", "otpSecret", "apiToken", "roleSet"})
+@EqualsAndHashCode(exclude = {"authorities", "metaData", "lastApiTokenUse", "lastCookieUse"}, callSuper = false)
 public class Identity extends PartialUpdateableModel {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -35,7 +35,6 @@ public class Identity extends PartialUpdateableModel {
     @Column(unique = true)
     private String              email;
     private String              displayName;
-    private byte[]              avatar;
     @Column(unique = true)
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String              apiToken;
@@ -48,26 +47,105 @@ public class Identity extends PartialUpdateableModel {
     @ManyToMany(targetEntity = Authority.class, fetch = FetchType.EAGER)
     private List<Authority>     authorities = new ArrayList<>();
     private String              remoteAuthy;
+    @Column(insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime       lastApiTokenUse;
+    @Column(insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime       lastCookieUse;
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long                version;
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient RoleSet.Memo roleSet = new RoleSet.Memo();
+    @Transient
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private transient String       newPassword;
 
     public void setRemoteAuthy(String authy) {
         if (StringUtils.isEmpty(authy)) this.remoteAuthy = null;
         else this.remoteAuthy = authy;
     }
 
+    /**
+     * Sets a new plain text password. It is kept aside until {@code PasswordManager#applyNewPassword(Identity)}
+     * replaced the stored hash, the plain text never ends up in {@link #password}.
+     */
     public void setPassword(String password) {
-        this.password = Md5Crypt.md5Crypt(password.getBytes());
+        this.newPassword = password;
+    }
+
+    /**
+     * Stores an already hashed password and drops a pending plain text one.
+     */
+    @JsonIgnore
+    public void setPasswordHash(String hash) {
+        this.password    = hash;
+        this.newPassword = null;
+    }
+
+    /**
+     * Names of the authorities as {@link RoleSet}, rebuilt only after the authorities changed.
+     */
+    @JsonIgnore
+    public RoleSet getRoleSet() {
+        return authorities == null ? RoleSet.EMPTY : roleSet.get(authorities, Authority::getName);
+    }
+
+    /**
+     * Detached copy with its own metadata, authority list and authorities, changing it never touches this instance.
+     */
+    public Identity copy() {
+        Identity copy = new Identity();
+        copy.id              = id;
+        copy.username        = username;
+        copy.password        = password;
+        copy.email           = email;
+        copy.displayName     = displayName;
+        copy.apiToken        = apiToken;
+        copy.otpSecret       = otpSecret;
+        copy.admin           = admin;
+        copy.locked          = locked;
+        copy.metaData        = metaData != null ? new HashMap<>(metaData) : null;
+        copy.remoteAuthy     = remoteAuthy;
+        copy.lastApiTokenUse = lastApiTokenUse;
+        copy.lastCookieUse   = lastCookieUse;
+        copy.version         = version;
+        // the memo checks the authority names on every read, sharing it keeps the role set built once
+        copy.roleSet         = roleSet;
+
+        if (authorities != null) {
+            copy.authorities = new ArrayList<>(authorities.size());
+
+            for (Authority authority : authorities) {
+                Authority authorityCopy = new Authority(authority.getName());
+                authorityCopy.setId(authority.getId());
+                copy.authorities.add(authorityCopy);
+            }
+        } else {
+            copy.authorities = null;
+        }
+
+        return copy;
     }
 
     public Boolean getOtpEnabled() {
         return otpSecret != null;
     }
 
-    public boolean checkPassword(String plainPassword) {
-        ValidatorChain<String> validator = new ValidatorChain<>();
-        validator.addValidator(new Md5PasswordValidator(this));
-        validator.addValidator(new StringEqualsValidator(this.getPassword()));
-
-        return validator.isValid(plainPassword);
+    /**
+     * Safety net, a plain text password that was never hashed must not be silently dropped by a save.
+     */
+    @PrePersist
+    @PreUpdate
+    private void checkNoPendingPassword() {
+        if (newPassword != null) {
+            throw new IllegalStateException("The new password of identity " + id + " was not hashed before saving");
+        }
     }
 
     @Override
@@ -83,7 +161,7 @@ public class Identity extends PartialUpdateableModel {
 
     @Override
     protected boolean canUpdateField(Field field) {
-        String[] forbiddenFields = new String[]{"username", "authorities", "admin", "locked", "apiToken", "otpSecret", "remoteAuthy"};
+        String[] forbiddenFields = new String[]{"username", "authorities", "admin", "locked", "apiToken", "otpSecret", "remoteAuthy", "version"};
 
         return Arrays.stream(forbiddenFields).noneMatch(s -> Objects.equals(s, field.getName().toLowerCase()));
     }
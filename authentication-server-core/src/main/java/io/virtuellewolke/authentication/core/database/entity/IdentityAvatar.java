@@ -0,0 +1,37 @@
+package io.virtuellewolke.authentication.core.database.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+
+/**
+ * Avatar of an identity, kept out of the identity row so authenticating never reads image bytes. The thumbnail is
+ * rendered once when the avatar is uploaded.
+ */
+@Entity
+@Getter
+@Setter
+@ToString(exclude = {"image", "thumbnail"})
+public class IdentityAvatar {
+    @Id
+    private Integer identityId;
+    @Column(nullable = false)
+    private String  contentType;
+    /**
+     * SHA-256 of the image, used as ETag of both variants.
+     */
+    @Column(nullable = false)
+    private String  etag;
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(nullable = false)
+    private byte[]  image;
+    /**
+     * Missing for avatars migrated from the identity table, the full image is served instead.
+     */
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    private byte[]  thumbnail;
+}
@@ -1,7 +1,10 @@
 package io.virtuellewolke.authentication.core.database.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.virtuellewolke.authentication.core.util.ListConverter;
 import io.virtuellewolke.authentication.core.util.PartialUpdateableModel;
+import io.virtuellewolke.authentication.core.util.RoleSet;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -16,7 +19,7 @@ import java.util.List;
 @Getter
 @Setter
 @Slf4j
-@ToString(exclude = {"allowedUrls", "requiredRoles"})
+@ToString(exclude = {"allowedUrls", "requiredRoles", "requiredRoleSet"})
 public class Service extends PartialUpdateableModel {
 
     public enum ServiceMode {
@@ -34,6 +37,10 @@ public class Service extends PartialUpdateableModel {
     private List<String> requiredRoles = new ArrayList<>();
     @Enumerated(value = EnumType.STRING)
     private ServiceMode  mode          = ServiceMode.AUTHORIZED;
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient RoleSet.Memo requiredRoleSet = new RoleSet.Memo();
 
     public boolean isIdentityAllowed(Identity identity) {
         boolean isAllowed = false;
@@ -49,17 +56,37 @@ public class Service extends PartialUpdateableModel {
                 isAllowed = identity != null && !identity.getLocked();
                 break;
             case AUTHORIZED:
-                isAllowed = identity != null && !identity.getLocked() && this.getRequiredRoles().stream().anyMatch(roleName -> identity.getAuthorities().stream().anyMatch(authority -> authority.getName().equals(roleName)));
+                isAllowed = identity != null && !identity.getLocked() && getRequiredRoleSet().intersects(identity.getRoleSet());
                 break;
         }
 
         return isAllowed;
     }
 
+    /**
+     * Detached copy with its own lists, changing it never touches this instance.
+     */
+    public Service copy() {
+        Service copy = new Service();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setEnabled(enabled);
+        copy.setAllowedUrls(allowedUrls != null ? new ArrayList<>(allowedUrls) : null);
+        copy.setRequiredRoles(requiredRoles != null ? new ArrayList<>(requiredRoles) : null);
+        copy.setMode(mode);
+
+        return copy;
+    }
+
     public boolean isIdentityNotAllowed(Identity identity) {
         return !isIdentityAllowed(identity);
     }
 
+    @JsonIgnore
+    public RoleSet getRequiredRoleSet() {
+        return requiredRoles == null ? RoleSet.EMPTY : requiredRoleSet.get(requiredRoles, role -> role);
+    }
+
     @Override
     protected void onUpdateField(Field field, Object value) {
         if (field.getName().equals("mode")) {
@@ -0,0 +1,26 @@
+package io.virtuellewolke.authentication.core.database.projection;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+
+/**
+ * Columns of a {@link io.virtuellewolke.authentication.core.database.entity.ClientAuthCert} shown in listings, the
+ * identity is only referenced by id.
+ */
+public interface CertificateSummary {
+    @JsonSerialize(using = ToStringSerializer.class)
+    BigInteger getSerial();
+
+    Integer getIdentityId();
+
+    String getName();
+
+    LocalDateTime getIssuedAt();
+
+    LocalDateTime getRevokedAt();
+
+    LocalDateTime getLastAccess();
+}
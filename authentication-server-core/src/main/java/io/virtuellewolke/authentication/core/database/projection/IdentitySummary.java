@@ -0,0 +1,21 @@
+package io.virtuellewolke.authentication.core.database.projection;
+
+/**
+ * Columns of an {@link io.virtuellewolke.authentication.core.database.entity.Identity} shown in listings, without
+ * secrets and authorities.
+ */
+public interface IdentitySummary {
+    Integer getId();
+
+    String getUsername();
+
+    String getEmail();
+
+    String getDisplayName();
+
+    Boolean getAdmin();
+
+    Boolean getLocked();
+
+    String getRemoteAuthy();
+}
@@ -0,0 +1,14 @@
+package io.virtuellewolke.authentication.core.database.projection;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+
+/**
+ * Serial and revocation time of a revoked {@link io.virtuellewolke.authentication.core.database.entity.ClientAuthCert},
+ * all the revocation feed and the CRL need.
+ */
+public interface RevokedCertificate {
+    BigInteger getSerial();
+
+    LocalDateTime getRevokedAt();
+}
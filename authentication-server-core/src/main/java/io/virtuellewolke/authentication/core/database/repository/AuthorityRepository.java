@@ -1,7 +1,10 @@
 package io.virtuellewolke.authentication.core.database.repository;
 
 import io.virtuellewolke.authentication.core.database.entity.Authority;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,4 +13,11 @@ public interface AuthorityRepository extends CrudRepository<Authority, Integer>
     Optional<Authority> findByName(String name);
 
     List<Authority> findAll();
+
+    /**
+     * Keyset page of authorities with an id greater than {@code after}, the name filter is a lower case
+     * {@code like} pattern (escape character {@code !}) or null.
+     */
+    @Query("select a from Authority a where a.id > :after and (:name is null or lower(a.name) like :name escape '!') order by a.id")
+    List<Authority> findPage(@Param("after") int after, @Param("name") String name, Pageable pageable);
 }
\ No newline at end of file
@@ -2,18 +2,80 @@ package io.virtuellewolke.authentication.core.database.repository;
 
 import io.virtuellewolke.authentication.core.database.entity.ClientAuthCert;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.projection.CertificateSummary;
+import io.virtuellewolke.authentication.core.database.projection.RevokedCertificate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ClientAuthCertRepository extends CrudRepository<ClientAuthCert, BigInteger> {
+    String SUMMARY_QUERY = "select c.serial as serial, c.identity.id as identityId, c.name as name, c.issuedAt as issuedAt, "
+            + "c.revokedAt as revokedAt, c.lastAccess as lastAccess from ClientAuthCert c "
+            + "where c.serial > :after and (:identityId is null or c.identity.id = :identityId) "
+            + "order by c.serial";
+
     List<ClientAuthCert> findByIdentity(Identity identity);
 
     List<ClientAuthCert> findAll();
 
-    List<ClientAuthCert> findAllByRevokedAtLessThanAndRevokedAtIsNotNull(LocalDateTime checkDate);
+    /**
+     * Revoked certificates which expired before {@code now}, certificates without a stored expiry count as expired if
+     * they were issued before {@code issuedBefore}.
+     */
+    @Query("select c from ClientAuthCert c where c.revokedAt is not null "
+            + "and (c.expiresAt < :now or (c.expiresAt is null and c.issuedAt < :issuedBefore))")
+    List<ClientAuthCert> findExpiredRevocations(@Param("now") LocalDateTime now, @Param("issuedBefore") LocalDateTime issuedBefore);
 
     void deleteAllByIdentityId(Integer identityId);
+
+    @Query("select c.serial from ClientAuthCert c where c.revokedAt is not null")
+    List<BigInteger> findRevokedSerials();
+
+    @Query("select c.serial from ClientAuthCert c where c.revokedAt is not null and c.serial in :serials")
+    List<BigInteger> findRevokedSerialsIn(@Param("serials") Collection<BigInteger> serials);
+
+    @Query("select c.serial as serial, c.revokedAt as revokedAt from ClientAuthCert c where c.revokedAt is not null")
+    List<RevokedCertificate> findRevoked();
+
+    /**
+     * Keyset page of revocations after the position {@code (revokedAt, serial)}, oldest first.
+     */
+    @Query("select c.serial as serial, c.revokedAt as revokedAt from ClientAuthCert c where c.revokedAt is not null "
+            + "and (c.revokedAt > :revokedAt or (c.revokedAt = :revokedAt and c.serial > :serial)) "
+            + "order by c.revokedAt, c.serial")
+    List<RevokedCertificate> findRevokedAfter(@Param("revokedAt") LocalDateTime revokedAt, @Param("serial") BigInteger serial,
+                                              Pageable pageable);
+
+    /**
+     * Revokes all given certificates which are not revoked yet with a single statement.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ClientAuthCert c set c.revokedAt = :revokedAt where c.serial in :serials and c.revokedAt is null")
+    int revokeAll(@Param("serials") Collection<BigInteger> serials, @Param("revokedAt") LocalDateTime revokedAt);
+
+    /**
+     * Keyset page of certificates with a serial greater than {@code after}, optionally only of one identity.
+     */
+    @Query(SUMMARY_QUERY)
+    List<CertificateSummary> findSummaries(@Param("after") BigInteger after, @Param("identityId") Integer identityId, Pageable pageable);
+
+    /**
+     * Same as {@link #findSummaries}, has to be consumed and closed inside a transaction. Rows are fetched in chunks
+     * of 500, MySQL needs cursor fetching for that (see {@code StreamingDataSourceConfiguration}).
+     */
+    @Query(SUMMARY_QUERY)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<CertificateSummary> streamSummaries(@Param("after") BigInteger after, @Param("identityId") Integer identityId);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package io.virtuellewolke.authentication.core.database.repository;
+
+import io.virtuellewolke.authentication.core.database.entity.IdentityAvatar;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface IdentityAvatarRepository extends CrudRepository<IdentityAvatar, Integer> {
+    @Query("select a.etag from IdentityAvatar a where a.identityId = ?1")
+    Optional<String> findEtagByIdentityId(Integer identityId);
+
+    @Query("select a.contentType from IdentityAvatar a where a.identityId = ?1")
+    Optional<String> findContentTypeByIdentityId(Integer identityId);
+
+    @Query("select a.image from IdentityAvatar a where a.identityId = ?1")
+    Optional<byte[]> findImageByIdentityId(Integer identityId);
+
+    @Query("select a.thumbnail from IdentityAvatar a where a.identityId = ?1")
+    Optional<byte[]> findThumbnailByIdentityId(Integer identityId);
+}
@@ -1,12 +1,28 @@
 package io.virtuellewolke.authentication.core.database.repository;
 
 import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.projection.IdentitySummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface IdentityRepository extends CrudRepository<Identity, Integer> {
+    String SUMMARY_QUERY = "select i.id as id, i.username as username, i.email as email, i.displayName as displayName, "
+            + "i.admin as admin, i.locked as locked, i.remoteAuthy as remoteAuthy from identity i "
+            + "where i.id > :after "
+            + "and (:username is null or lower(i.username) like :username escape '!') "
+            + "and (:email is null or lower(i.email) like :email escape '!') "
+            + "and (:authority is null or exists (select a.id from identity j join j.authorities a where j.id = i.id and a.name = :authority)) "
+            + "order by i.id";
+
     Optional<Identity> findByUsername(String username);
 
     Optional<Identity> findByUsernameOrEmail(String username, String email);
@@ -18,4 +34,40 @@ public interface IdentityRepository extends CrudRepository<Identity, Integer> {
     List<Identity> findAll();
 
     List<Identity> findAllByAuthoritiesId(Integer id);
+
+    @Query("select i.version from identity i where i.id = ?1")
+    Optional<Long> findVersionById(Integer id);
+
+    /**
+     * Bumps the version of every identity holding an authority, so snapshots and cached decisions built from its
+     * roles become outdated. Has to run before the authority is removed from the join table.
+     */
+    @Modifying
+    @Query(value = "update identity set version = version + 1 "
+            + "where id in (select identity_id from identity_authorities where authorities_id = :authorityId)", nativeQuery = true)
+    int incrementVersionByAuthorityId(@Param("authorityId") Integer authorityId);
+
+    /**
+     * Removes an authority from every identity with a single statement, returns the number of identities changed.
+     */
+    @Modifying
+    @Query(value = "delete from identity_authorities where authorities_id = :authorityId", nativeQuery = true)
+    int removeAuthority(@Param("authorityId") Integer authorityId);
+
+    /**
+     * Keyset page of identities with an id greater than {@code after}. Filters are lower case {@code like} patterns
+     * (escape character {@code !}) or null.
+     */
+    @Query(SUMMARY_QUERY)
+    List<IdentitySummary> findSummaries(@Param("after") int after, @Param("username") String username, @Param("email") String email,
+                                        @Param("authority") String authority, Pageable pageable);
+
+    /**
+     * Same as {@link #findSummaries}, has to be consumed and closed inside a transaction. Rows are fetched in chunks
+     * of 500, MySQL needs cursor fetching for that (see {@code StreamingDataSourceConfiguration}).
+     */
+    @Query(SUMMARY_QUERY)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<IdentitySummary> streamSummaries(@Param("after") int after, @Param("username") String username, @Param("email") String email,
+                                            @Param("authority") String authority);
 }
\ No newline at end of file
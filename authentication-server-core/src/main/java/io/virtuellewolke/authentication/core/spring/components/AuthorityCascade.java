@@ -0,0 +1,122 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.api.model.UpdateAuthorityRequest;
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import io.virtuellewolke.authentication.core.database.repository.AuthorityRepository;
+import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import io.virtuellewolke.authentication.core.database.repository.ServiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Changes an authority together with everything referencing it, in one transaction.
+ * <p>
+ * Identities reference authorities by id through the join table and are changed with bulk statements, without loading
+ * a single identity. Services reference them by name in their required roles, these are rewritten in one pass and only
+ * the changed services are written back (batched by Hibernate). Caches have to be invalidated by the caller after
+ * this returned, the transaction is committed by then.
+ */
+@Slf4j
+@Component
+public class AuthorityCascade {
+
+    static final int PROGRESS_INTERVAL = 500;
+
+    private final AuthorityRepository authorityRepository;
+    private final IdentityRepository  identityRepository;
+    private final ServiceRepository   serviceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuthorityCascade(AuthorityRepository authorityRepository, IdentityRepository identityRepository,
+                            ServiceRepository serviceRepository, PlatformTransactionManager transactionManager) {
+        this.authorityRepository = authorityRepository;
+        this.identityRepository  = identityRepository;
+        this.serviceRepository   = serviceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Applies the update, a changed name is renamed in the required roles of every service as well.
+     */
+    public Authority update(Integer id, UpdateAuthorityRequest request) {
+        return transactionTemplate.execute(status -> {
+            Authority authority = authorityRepository.findById(id).orElseThrow(EntityNotFoundException::new);
+            String    oldName   = authority.getName();
+
+            authorityRepository.save(request.update(authority));
+
+            String newName = authority.getName();
+
+            if (!Objects.equals(oldName, newName) && oldName != null) {
+                int identities = identityRepository.incrementVersionByAuthorityId(id);
+                int services   = rewriteServices(oldName, roles -> {
+                    roles.replaceAll(role -> role.equalsIgnoreCase(oldName) ? newName : role);
+                    roles.removeIf(Objects::isNull);
+                });
+
+                log.info("Renamed authority '{}' to '{}' ({} identities, {} services)", oldName, newName, identities, services);
+            }
+
+            return authority;
+        });
+    }
+
+    /**
+     * Deletes the authority, removes it from all identities and services. An {@link Service.ServiceMode#AUTHORIZED}
+     * service without any required role left becomes {@link Service.ServiceMode#PUBLIC}, as before.
+     */
+    public void delete(Integer id) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Authority authority = authorityRepository.findById(id).orElseThrow(EntityNotFoundException::new);
+            String    name      = authority.getName();
+
+            identityRepository.incrementVersionByAuthorityId(id);
+            int identities = identityRepository.removeAuthority(id);
+            int services   = name == null ? 0 : rewriteServices(name, roles -> roles.removeIf(name::equalsIgnoreCase));
+
+            authorityRepository.delete(authority);
+
+            log.info("Deleted authority '{}' ({} identities, {} services)", name, identities, services);
+        });
+    }
+
+    private int rewriteServices(String name, Consumer<List<String>> rewrite) {
+        Predicate<String> matches = name::equalsIgnoreCase;
+        List<Service>     all     = serviceRepository.findAll();
+        List<Service>     changed = new ArrayList<>();
+
+        for (int i = 0; i < all.size(); i++) {
+            Service service = all.get(i);
+
+            if (service.getRequiredRoles() != null && service.getRequiredRoles().stream().anyMatch(matches)) {
+                List<String> roles = new ArrayList<>(service.getRequiredRoles());
+                rewrite.accept(roles);
+                service.setRequiredRoles(roles);
+
+                if (roles.isEmpty() && service.getMode() == Service.ServiceMode.AUTHORIZED) {
+                    service.setMode(Service.ServiceMode.PUBLIC);
+                }
+
+                changed.add(service);
+            }
+
+            if ((i + 1) % PROGRESS_INTERVAL == 0) {
+                log.info("Checked {} of {} services for authority '{}', {} changed", i + 1, all.size(), name, changed.size());
+            }
+        }
+
+        serviceRepository.saveAll(changed);
+
+        return changed.size();
+    }
+}
@@ -0,0 +1,221 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.virtuellewolke.authentication.core.database.entity.IdentityAvatar;
+import io.virtuellewolke.authentication.core.database.repository.IdentityAvatarRepository;
+import io.virtuellewolke.authentication.core.util.ImageHelper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Avatars of identities, stored in their own table and read only by the avatar endpoint. The thumbnail is rendered
+ * once on upload, recently read images are kept in a cache bounded by their size. The ETag is always read from the
+ * database, so an avatar replaced on another node is not served from the cache of this one.
+ */
+@Slf4j
+@Component
+public class AvatarStore implements MeterBinder {
+
+    private static final Set<String> CONTENT_TYPES = Set.of("image/png", "image/jpeg", "image/gif");
+    private static final int         MAX_DIMENSION = 4096;
+
+    public enum Variant {
+        FULL, THUMBNAIL
+    }
+
+    public static final class Image {
+        private final String etag;
+        private final String contentType;
+        private final byte[] data;
+
+        private Image(String etag, String contentType, byte[] data) {
+            this.etag        = etag;
+            this.contentType = contentType;
+            this.data        = data;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    private final IdentityAvatarRepository avatarRepository;
+    private final Cache<String, Image>     images;
+    private final int                      maximumBytes;
+    private final int                      thumbnailSize;
+
+    public AvatarStore(IdentityAvatarRepository avatarRepository,
+                       @Value("${app.avatars.max-bytes:1048576}") int maximumBytes,
+                       @Value("${app.avatars.thumbnail-size:128}") int thumbnailSize,
+                       @Value("${app.avatars.cache-bytes:16777216}") long cacheBytes) {
+        this.avatarRepository = avatarRepository;
+        this.maximumBytes     = maximumBytes;
+        this.thumbnailSize    = thumbnailSize;
+        this.images           = Caffeine.newBuilder()
+                .maximumWeight(cacheBytes)
+                .<String, Image>weigher((key, image) -> image.data.length)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Stores or replaces the avatar of an identity.
+     *
+     * @throws IllegalArgumentException if the data is too large or not a PNG, JPEG or GIF image.
+     */
+    public IdentityAvatar store(Integer identityId, byte[] data) {
+        if (data == null || data.length == 0) { throw new IllegalArgumentException("Avatar is empty."); }
+        if (data.length > maximumBytes) { throw new IllegalArgumentException("Avatar is larger than " + maximumBytes + " bytes."); }
+
+        String        contentType = detectContentType(data);
+        BufferedImage image       = read(data);
+
+        IdentityAvatar avatar = avatarRepository.findById(identityId).orElseGet(IdentityAvatar::new);
+        avatar.setIdentityId(identityId);
+        avatar.setContentType(contentType);
+        avatar.setEtag(DigestUtils.sha256Hex(data));
+        avatar.setImage(data);
+        avatar.setThumbnail(ImageHelper.createThumbnail(image, thumbnailSize));
+
+        avatarRepository.save(avatar);
+        evict(identityId);
+
+        return avatar;
+    }
+
+    public void delete(Integer identityId) {
+        if (avatarRepository.existsById(identityId)) {
+            avatarRepository.deleteById(identityId);
+        }
+
+        evict(identityId);
+    }
+
+    /**
+     * The ETag of the current avatar, without reading any image bytes.
+     */
+    public Optional<String> findEtag(Integer identityId) {
+        return avatarRepository.findEtagByIdentityId(identityId);
+    }
+
+    /**
+     * @param etag the current ETag from {@link #findEtag(Integer)}, a cached image with another ETag is read again.
+     */
+    public Optional<Image> find(Integer identityId, Variant variant, String etag) {
+        String key    = key(identityId, variant);
+        Image  cached = images.getIfPresent(key);
+
+        if (cached != null) {
+            if (cached.etag.equals(etag)) { return Optional.of(cached); }
+
+            images.invalidate(key);
+        }
+
+        return Optional.ofNullable(images.get(key, ignored -> load(identityId, variant)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, images, "authy.avatars");
+    }
+
+    private Image load(Integer identityId, Variant variant) {
+        Optional<String> etag = avatarRepository.findEtagByIdentityId(identityId);
+
+        if (etag.isEmpty()) { return null; }
+
+        if (variant == Variant.THUMBNAIL) {
+            Optional<byte[]> thumbnail = avatarRepository.findThumbnailByIdentityId(identityId);
+
+            if (thumbnail.isPresent()) {
+                return new Image(etag.get(), "image/png", thumbnail.get());
+            }
+        }
+
+        String contentType = avatarRepository.findContentTypeByIdentityId(identityId).orElse("application/octet-stream");
+
+        return avatarRepository.findImageByIdentityId(identityId)
+                .map(data -> new Image(etag.get(), contentType, data))
+                .orElse(null);
+    }
+
+    private void evict(Integer identityId) {
+        for (Variant variant : Variant.values()) {
+            images.invalidate(key(identityId, variant));
+        }
+    }
+
+    private static String key(Integer identityId, Variant variant) {
+        return identityId + ":" + variant;
+    }
+
+    /**
+     * Detects the image type and checks the dimensions before the image is decoded, so a small file claiming huge
+     * dimensions is rejected before it allocates memory.
+     */
+    private static String detectContentType(byte[] data) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+
+            while (readers.hasNext()) {
+                ImageReader reader = readers.next();
+
+                try {
+                    for (String type : reader.getOriginatingProvider().getMIMETypes()) {
+                        if (!CONTENT_TYPES.contains(type)) continue;
+
+                        reader.setInput(input);
+
+                        if (reader.getWidth(0) > MAX_DIMENSION || reader.getHeight(0) > MAX_DIMENSION) {
+                            throw new IllegalArgumentException("Avatar is larger than " + MAX_DIMENSION + " pixels.");
+                        }
+
+                        return type;
+                    }
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Failed to detect the avatar image type", e);
+        }
+
+        throw new IllegalArgumentException("Avatar has to be a PNG, JPEG or GIF image.");
+    }
+
+    private static BufferedImage read(byte[] data) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+
+            if (image == null) { throw new IllegalArgumentException("Avatar is not a readable image."); }
+
+            return image;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Avatar is not a readable image.", e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Short living cache of forward-auth decisions, a proxy asks for every single sub-request of a protected site.
+ * <p>
+ * A decision is keyed by the identity, its entity version, the service and the {@link ServiceRegistry#getGeneration()
+ * service registry generation}. Saving an identity (including its authorities) changes its version and reloading the
+ * services changes the generation, so both never hit an outdated decision. Renaming an authority changes neither,
+ * that has to call {@link #invalidateAll()}; other nodes see it after the time to live.
+ */
+@Component
+public class ForwardAuthDecisionCache implements MeterBinder {
+
+    public static final class Decision {
+        private final boolean     allowed;
+        private final HttpHeaders headers;
+
+        private Decision(boolean allowed, HttpHeaders headers) {
+            this.allowed = allowed;
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        /**
+         * The {@code X-Auth-*} headers of an allowed request.
+         */
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static final class Key {
+        private final Integer identityId;
+        private final long    identityVersion;
+        private final Integer serviceId;
+        private final long    generation;
+
+        private Key(Identity identity, Service service, long generation) {
+            this.identityId      = identity.getId();
+            this.identityVersion = identity.getVersion();
+            this.serviceId       = service.getId();
+            this.generation      = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+
+            return identityVersion == key.identityVersion && generation == key.generation
+                    && Objects.equals(identityId, key.identityId) && Objects.equals(serviceId, key.serviceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(identityId, identityVersion, serviceId, generation);
+        }
+    }
+
+    private final Cache<Key, Decision> decisions;
+
+    public ForwardAuthDecisionCache(@Value("${app.cache.forward-auth-ttl:PT5S}") Duration timeToLive,
+                                    @Value("${app.cache.forward-auth-size:10000}") long maximumSize) {
+        this.decisions = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param generation the registry generation read <i>before</i> the service was resolved, so a concurrent reload
+     *                   can never store a decision about an old service under the new generation.
+     */
+    public Decision decide(Identity identity, Service service, long generation) {
+        if (identity.getId() == null || service.getId() == null) { return evaluate(identity, service); }
+
+        return decisions.get(new Key(identity, service, generation), key -> evaluate(identity, service));
+    }
+
+    public void invalidateAll() {
+        decisions.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, decisions, "authy.forward-auth.decisions");
+    }
+
+    private static Decision evaluate(Identity identity, Service service) {
+        HttpHeaders headers = new HttpHeaders();
+
+        if (service.isIdentityAllowed(identity)) {
+            headers.add("X-Auth-User", identity.getUsername());
+            headers.add("X-Auth-Display-Name", identity.getDisplayName());
+            headers.add("X-Auth-E-Mail", identity.getEmail());
+            headers.add("X-Auth-Admin", identity.getAdmin().toString());
+
+            return new Decision(true, headers);
+        }
+
+        return new Decision(false, headers);
+    }
+}
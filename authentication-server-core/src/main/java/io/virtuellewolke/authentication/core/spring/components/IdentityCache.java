@@ -0,0 +1,191 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded identity lookup, so authenticating a request or validating a ticket does not hit the database every time.
+ * <p>
+ * Identities are cached by id, the secondary indexes (username, email and the SHA-256 of the API token) only map to
+ * that id. A secondary hit is checked against the cached identity, so an index entry can never resolve to an
+ * identity whose username, email or token changed in the meantime. Everything that changes an identity has to
+ * {@link #evict(Identity)} it after saving.
+ * <p>
+ * The entity version is cached on its own, checking whether a cookie snapshot is still current only reads that
+ * single column.
+ * <p>
+ * Every lookup returns a private {@link Identity#copy()} of the cached identity, the cached instance itself never
+ * leaves this class. A request changing its copy can not leak half applied changes to concurrent requests, and
+ * saving a copy runs into the optimistic lock like any other outdated entity. Writes should still load the entity
+ * from the repository (or use {@code SecureContext#getPersistentIdentity()}) and {@link #evict(Identity)} it after
+ * saving.
+ */
+@Slf4j
+@Component
+public class IdentityCache implements MeterBinder {
+
+    private final IdentityRepository       identityRepository;
+    private final Cache<Integer, Identity> identities;
+    private final Cache<String, Integer>   usernames;
+    private final Cache<String, Integer>   emails;
+    private final Cache<String, Integer>   apiTokens;
+    private final Cache<Integer, Long>     versions;
+
+    public IdentityCache(IdentityRepository identityRepository,
+                         @Value("${app.cache.identity-ttl:PT10S}") Duration timeToLive,
+                         @Value("${app.cache.identity-size:10000}") long maximumSize,
+                         @Value("${app.cache.identity-version-ttl:PT5S}") Duration versionTimeToLive) {
+        this.identityRepository = identityRepository;
+        this.identities         = createCache(timeToLive, maximumSize);
+        this.usernames          = createCache(timeToLive, maximumSize);
+        this.emails             = createCache(timeToLive, maximumSize);
+        this.apiTokens          = createCache(timeToLive, maximumSize);
+        this.versions           = createCache(versionTimeToLive, maximumSize);
+    }
+
+    public Optional<Identity> findById(Integer id) {
+        return findCachedById(id).map(Identity::copy);
+    }
+
+    /**
+     * Identity in at least the given entity version. A cached copy older than that was changed on another node in the
+     * meantime, it is dropped and loaded again.
+     */
+    public Optional<Identity> findById(Integer id, long minimumVersion) {
+        Optional<Identity> identity = findCachedById(id);
+
+        if (identity.isPresent() && identity.get().getVersion() < minimumVersion) {
+            evict(id);
+            identity = findCachedById(id);
+        }
+
+        return identity.map(Identity::copy);
+    }
+
+    public Optional<Identity> findByApiToken(String token) {
+        if (token == null) { return Optional.empty(); }
+
+        return findBySecondaryKey(apiTokens, hash(token), identity -> token.equals(identity.getApiToken()),
+                () -> identityRepository.findByApiToken(token));
+    }
+
+    /**
+     * Same as {@link IdentityRepository#findByUsernameOrEmail(String, String)} with both set to the same login name.
+     */
+    public Optional<Identity> findByUsernameOrEmail(String login) {
+        if (login == null) { return Optional.empty(); }
+
+        Optional<Identity> identity = findBySecondaryKey(usernames, login, i -> login.equals(i.getUsername()), () -> Optional.empty());
+
+        if (identity.isPresent()) { return identity; }
+
+        return findBySecondaryKey(emails, login, i -> login.equals(i.getEmail()),
+                () -> identityRepository.findByUsernameOrEmail(login, login));
+    }
+
+    /**
+     * Current entity version of an identity, empty if it does not exist (anymore).
+     */
+    public Optional<Long> findVersionById(Integer id) {
+        return Optional.ofNullable(versions.get(id, key -> identityRepository.findVersionById(key).orElse(null)));
+    }
+
+    /**
+     * Drops an identity and its index entries, has to be called after it was saved or deleted.
+     */
+    public void evict(Identity identity) {
+        if (identity == null) { return; }
+
+        evict(identity.getId());
+        if (identity.getUsername() != null) usernames.invalidate(identity.getUsername());
+        if (identity.getEmail() != null) emails.invalidate(identity.getEmail());
+        if (identity.getApiToken() != null) apiTokens.invalidate(hash(identity.getApiToken()));
+    }
+
+    public void evict(Integer id) {
+        if (id == null) { return; }
+
+        Identity cached = identities.getIfPresent(id);
+
+        identities.invalidate(id);
+        versions.invalidate(id);
+
+        if (cached != null) evict(cached);
+    }
+
+    public void evictAll() {
+        identities.invalidateAll();
+        usernames.invalidateAll();
+        emails.invalidateAll();
+        apiTokens.invalidateAll();
+        versions.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, identities, "authy.identities");
+        CaffeineCacheMetrics.monitor(registry, usernames, "authy.identities.username");
+        CaffeineCacheMetrics.monitor(registry, emails, "authy.identities.email");
+        CaffeineCacheMetrics.monitor(registry, apiTokens, "authy.identities.api-token");
+        CaffeineCacheMetrics.monitor(registry, versions, "authy.identities.version");
+    }
+
+    private Optional<Identity> findCachedById(Integer id) {
+        if (id == null) { return Optional.empty(); }
+
+        return Optional.ofNullable(identities.get(id, key -> identityRepository.findById(key).map(this::index).orElse(null)));
+    }
+
+    private Optional<Identity> findBySecondaryKey(Cache<String, Integer> index, String key, Predicate<Identity> matches,
+                                                  Supplier<Optional<Identity>> loader) {
+        Integer id = index.getIfPresent(key);
+
+        if (id != null) {
+            Optional<Identity> identity = findCachedById(id).filter(matches);
+
+            if (identity.isPresent()) { return identity.map(Identity::copy); }
+
+            index.invalidate(key);
+        }
+
+        Optional<Identity> identity = loader.get();
+
+        identity.ifPresent(i -> identities.put(i.getId(), index(i)));
+
+        return identity.map(Identity::copy);
+    }
+
+    private Identity index(Identity identity) {
+        if (identity.getUsername() != null) usernames.put(identity.getUsername(), identity.getId());
+        if (identity.getEmail() != null) emails.put(identity.getEmail(), identity.getId());
+        if (identity.getApiToken() != null) apiTokens.put(hash(identity.getApiToken()), identity.getId());
+
+        return identity;
+    }
+
+    private static String hash(String token) {
+        return DigestUtils.sha256Hex(token);
+    }
+
+    private static <K, V> Cache<K, V> createCache(Duration timeToLive, long maximumSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .<K, V>build();
+    }
+}
@@ -2,13 +2,19 @@ package io.virtuellewolke.authentication.core.spring.components;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SecurityException;
+import io.jsonwebtoken.security.SignatureException;
+import io.virtuellewolke.authentication.core.database.entity.Authority;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import io.virtuellewolke.authentication.core.database.entity.Service;
 import io.virtuellewolke.authentication.core.exceptions.SecurityTokenExpiredException;
 import io.virtuellewolke.authentication.core.exceptions.SecurityTokenInvalidException;
+import io.virtuellewolke.authentication.core.spring.configuration.JwtConfiguration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -17,12 +23,36 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Signs and verifies the cookie JWTs. The keys and the (thread-safe) parser are derived once, verification picks
+ * the key by the {@code kid} header, tokens without one were issued before key ids existed and use the current key.
+ */
 @Component
 public class JwtProcessor {
 
-    @Value("${app.secrets.jwt}")
-    private String secret;
+    private final String           keyId;
+    private final Key              signingKey;
+    private final Map<String, Key> keyRing = new HashMap<>();
+    private final JwtParser        parser;
+
+    public JwtProcessor(@Value("${app.secrets.jwt}") String secret, JwtConfiguration configuration) {
+        this.keyId      = configuration.getKeyId();
+        this.signingKey = createKey(secret);
+
+        configuration.getRetiredKeys().forEach((id, retiredSecret) -> keyRing.put(id, createKey(retiredSecret)));
+        keyRing.put(keyId, signingKey);
+
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header.getKeyId());
+                    }
+                })
+                .build();
+    }
 
     public String getJwtTokenFor(Identity identity, Service service) {
 
@@ -32,24 +62,26 @@ public class JwtProcessor {
         claims.putIfAbsent("attributes", identity.getMetaData());
         claims.putIfAbsent("uid", identity.getId());
         claims.putIfAbsent("administrator", identity.getAdmin().toString());
+        claims.putIfAbsent("name", identity.getDisplayName());
+        claims.putIfAbsent("email", identity.getEmail());
+        claims.putIfAbsent("locked", identity.getLocked());
+        claims.putIfAbsent("authorities", getAuthorityClaim(identity));
+        claims.putIfAbsent("version", identity.getVersion());
 
         return Jwts.builder()
                 .setHeaderParam("sub", identity.getUsername())
+                .setHeaderParam(JwsHeader.KEY_ID, keyId)
                 .setClaims(claims)
                 .setIssuer("Authy (" + (service != null ? service.getName() : "Unknown") + ")")
                 .setExpiration(new Date(System.currentTimeMillis() + (1000 * 60 * 60 * 12)))
                 .setIssuedAt(new Date())
-                .signWith(getSecurityKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public Claims validateToken(String token) throws SecurityTokenInvalidException {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSecurityKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (SecurityException | IllegalArgumentException e) {
             throw new SecurityTokenInvalidException(e);
         } catch (ExpiredJwtException e) {
@@ -57,7 +89,62 @@ public class JwtProcessor {
         }
     }
 
-    private Key getSecurityKey() {
+    /**
+     * Restores the identity snapshot of a validated token. The result is detached and only carries what
+     * authorization needs (no password, secrets or avatar), tokens issued before snapshots existed yield nothing.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<Identity> readIdentitySnapshot(Claims claims) {
+        Object uid         = claims.get("uid");
+        Object version     = claims.get("version");
+        Object authorities = claims.get("authorities");
+
+        if (!(uid instanceof Number) || !(version instanceof Number) || !(authorities instanceof Map)) {
+            return Optional.empty();
+        }
+
+        Identity identity = new Identity();
+        identity.setId(((Number) uid).intValue());
+        identity.setVersion(((Number) version).longValue());
+        identity.setUsername(claims.getSubject());
+        identity.setDisplayName(claims.get("name", String.class));
+        identity.setEmail(claims.get("email", String.class));
+        identity.setAdmin(Boolean.parseBoolean(String.valueOf(claims.get("administrator"))));
+        identity.setLocked(Boolean.TRUE.equals(claims.get("locked", Boolean.class)));
+
+        Object attributes = claims.get("attributes");
+        if (attributes instanceof Map) {
+            ((Map<String, Object>) attributes).forEach((key, value) -> identity.getMetaData().put(key, String.valueOf(value)));
+        }
+
+        ((Map<String, Object>) authorities).forEach((id, name) -> {
+            Authority authority = new Authority(String.valueOf(name));
+            authority.setId(Integer.parseInt(id));
+            identity.getAuthorities().add(authority);
+        });
+
+        return Optional.of(identity);
+    }
+
+    private static Map<String, String> getAuthorityClaim(Identity identity) {
+        Map<String, String> authorities = new HashMap<>();
+
+        identity.getAuthorities().forEach(authority -> authorities.put(String.valueOf(authority.getId()), authority.getName()));
+
+        return authorities;
+    }
+
+    private Key resolveKey(String id) {
+        if (id == null) { return signingKey; }
+
+        Key key = keyRing.get(id);
+
+        if (key == null) { throw new SignatureException("Unknown JWT key id " + id); }
+
+        return key;
+    }
+
+    private static Key createKey(String secret) {
         return Keys.hmacShaKeyFor(secret.getBytes(Charset.defaultCharset()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last use of client certificates, API tokens and cookies, without a database write on the request thread.
+ * <p>
+ * A use is only put into a map of pending timestamps, repeated uses of the same key coalesce into one entry and a key
+ * written within the resolution is not recorded again. A scheduled flush writes the pending timestamps with one JDBC
+ * batch per kind. The map is bounded, when it is full new keys are dropped and counted instead of slowing down
+ * requests, last seen data is allowed to be lossy.
+ * <p>
+ * The columns are written only here, the entities map them read only so saving an entity never overwrites them.
+ */
+@Slf4j
+@Component
+public class LastSeenTracker implements MeterBinder, DisposableBean {
+
+    static final int BATCH_SIZE = 500;
+
+    public enum Kind {
+        CERTIFICATE("update client_auth_cert set last_access = ? where serial = ?"),
+        API_TOKEN("update identity set last_api_token_use = ? where id = ?"),
+        COOKIE("update identity set last_cookie_use = ? where id = ?");
+
+        private final String sql;
+
+        Kind(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private static final class Key {
+        private final Kind   kind;
+        private final Object id;
+
+        private Key(Kind kind, Object id) {
+            this.kind = kind;
+            this.id   = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof Key)) { return false; }
+
+            Key key = (Key) o;
+            return kind == key.kind && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, id);
+        }
+    }
+
+    private final JdbcTemplate        jdbcTemplate;
+    private final Clock               clock;
+    private final int                 maximumPending;
+    private final Map<Key, Instant>   pending = new ConcurrentHashMap<>();
+    private final Cache<Key, Boolean> written;
+    private final AtomicLong          dropped = new AtomicLong();
+
+    @Autowired
+    public LastSeenTracker(JdbcTemplate jdbcTemplate,
+                           @Value("${app.last-seen.max-pending:100000}") int maximumPending,
+                           @Value("${app.last-seen.resolution:PT5M}") Duration resolution) {
+        this(jdbcTemplate, maximumPending, resolution, Clock.systemDefaultZone());
+    }
+
+    LastSeenTracker(JdbcTemplate jdbcTemplate, int maximumPending, Duration resolution, Clock clock) {
+        this.jdbcTemplate   = jdbcTemplate;
+        this.maximumPending = maximumPending;
+        this.clock          = clock;
+        this.written        = Caffeine.newBuilder()
+                .expireAfterWrite(resolution)
+                .maximumSize(maximumPending)
+                .build();
+    }
+
+    /**
+     * Records a use, never blocks and never touches the database.
+     */
+    public void record(Kind kind, Object id) {
+        if (id == null) { return; }
+
+        Key key = new Key(kind, id);
+
+        if (written.getIfPresent(key) != null) { return; }
+
+        if (pending.size() >= maximumPending && !pending.containsKey(key)) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        pending.put(key, clock.instant());
+    }
+
+    @Scheduled(fixedDelayString = "${app.last-seen.flush-interval:30000}")
+    public void flush() {
+        Map<Kind, List<Object[]>> batches = new EnumMap<>(Kind.class);
+
+        for (Map.Entry<Key, Instant> entry : pending.entrySet()) {
+            Key     key  = entry.getKey();
+            Instant seen = entry.getValue();
+
+            if (pending.remove(key, seen)) {
+                written.put(key, Boolean.TRUE);
+                batches.computeIfAbsent(key.kind, k -> new ArrayList<>())
+                        .add(new Object[]{Timestamp.valueOf(LocalDateTime.ofInstant(seen, ZoneId.systemDefault())), key.id});
+            }
+        }
+
+        batches.forEach((kind, rows) -> {
+            try {
+                jdbcTemplate.batchUpdate(kind.sql, rows, BATCH_SIZE, (statement, row) -> {
+                    statement.setObject(1, row[0]);
+                    statement.setObject(2, row[1]);
+                });
+
+                log.debug("Flushed {} last seen timestamps of kind {}", rows.size(), kind);
+            } catch (DataAccessException e) {
+                log.warn("Failed to flush {} last seen timestamps of kind {}", rows.size(), kind, e);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.gauge("authy.last-seen.pending", pending, Map::size);
+        registry.more().counter("authy.last-seen.dropped", Tags.empty(), dropped);
+    }
+}
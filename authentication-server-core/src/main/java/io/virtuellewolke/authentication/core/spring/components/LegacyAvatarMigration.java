@@ -0,0 +1,102 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Copies avatars of the former {@code identity.avatar} column into the {@code identity_avatar} table, one identity at
+ * a time. The column is no longer mapped, on databases which never had it this does nothing.
+ * <p>
+ * The bytes are copied as they are, without validating or decoding them, and the migrated row has no thumbnail (the
+ * full image is served instead). The insert is skipped if the identity already has an avatar, so nodes starting at
+ * the same time or an avatar uploaded in between are never overwritten. The old column is only cleared once the row
+ * is there, a failed copy is tried again on the next start.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory") // creates the identity_avatar table
+public class LegacyAvatarMigration implements InitializingBean {
+
+    private static final Set<String> CONTENT_TYPES = Set.of("image/png", "image/jpeg", "image/gif");
+
+    private static final String INSERT = "insert into identity_avatar (identity_id, content_type, etag, image) "
+            + "select i.id, ?, ?, i.avatar from identity i "
+            + "where i.id = ? and i.avatar is not null "
+            + "and not exists (select 1 from identity_avatar a where a.identity_id = i.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LegacyAvatarMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<Integer> ids;
+
+        try {
+            ids = jdbcTemplate.queryForList("select id from identity where avatar is not null", Integer.class);
+        } catch (DataAccessException e) {
+            log.debug("No legacy avatar column to migrate ({})", e.getMessage());
+            return;
+        }
+
+        int migrated = 0;
+
+        for (Integer id : ids) {
+            try {
+                if (migrate(id)) migrated++;
+            } catch (DataAccessException e) {
+                log.warn("Failed to migrate the legacy avatar of identity {}, it is kept and tried again on the next start: {}", id, e.getMessage());
+            }
+        }
+
+        if (migrated > 0) log.info("Migrated {} avatars out of the identity table", migrated);
+    }
+
+    private boolean migrate(Integer id) {
+        List<byte[]> avatar = jdbcTemplate.queryForList("select avatar from identity where id = ? and avatar is not null", byte[].class, id);
+
+        // cleared by another node in the meantime
+        if (avatar.isEmpty()) { return false; }
+
+        byte[] data = avatar.get(0);
+
+        try {
+            jdbcTemplate.update(INSERT, guessContentType(data), DigestUtils.sha256Hex(data), id);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Avatar of identity {} was inserted concurrently ({})", id, e.getMessage());
+        }
+
+        Integer copies = jdbcTemplate.queryForObject("select count(*) from identity_avatar where identity_id = ?", Integer.class, id);
+
+        if (copies == null || copies == 0) {
+            log.warn("Avatar of identity {} was not copied, the legacy column is kept", id);
+            return false;
+        }
+
+        jdbcTemplate.update("update identity set avatar = null where id = ?", id);
+        return true;
+    }
+
+    private static String guessContentType(byte[] data) {
+        try {
+            String type = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(data));
+            return CONTENT_TYPES.contains(type) ? type : "application/octet-stream";
+        } catch (IOException e) {
+            return "application/octet-stream";
+        }
+    }
+}
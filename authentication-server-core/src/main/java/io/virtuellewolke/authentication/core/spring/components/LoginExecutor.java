@@ -0,0 +1,56 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finishes logins whose credentials were checked on a hashing or delegation thread, so the blocking rest of the login
+ * (JWT signing, Redis) does not hold up those small pools. A login which does not fit into the queue fails with a
+ * {@link ServiceException}.
+ */
+@Component
+public class LoginExecutor implements Executor, DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+
+    public LoginExecutor(CasConfiguration configuration) {
+        this.executor = new ThreadPoolExecutor(configuration.getLoginThreads(), configuration.getLoginThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(configuration.getLoginQueueSize()), new LoginThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        try {
+            executor.execute(command);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceException("Too many concurrent logins, login queue is full.", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static class LoginThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "login-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
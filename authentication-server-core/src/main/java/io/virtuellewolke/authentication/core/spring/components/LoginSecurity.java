@@ -1,70 +1,62 @@
 package io.virtuellewolke.authentication.core.spring.components;
 
+import io.virtuellewolke.authentication.core.spring.components.login.LoginAttemptStore;
 import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
-import lombok.RequiredArgsConstructor;
+import io.virtuellewolke.authentication.core.util.IpRangeSet;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
 
+/**
+ * Blocks a source (client ip) once it failed to log in {@code loginMaxAttempts} times within the
+ * {@code loginAttemptWindow}, the counting is done by the {@link LoginAttemptStore} (local or shared through Redis).
+ */
 @Slf4j
 @Component
-@SuppressWarnings("FieldCanBeLocal")
-@RequiredArgsConstructor
 public class LoginSecurity {
 
-    private final Integer            MAX_ATTEMPTS        = 3;
-    private final Integer            RETRY_AFTER_MINUTES = 60;
-    private final List<LoginAttempt> attempts            = new ArrayList<>();
+    private final LoginAttemptStore loginAttemptStore;
+    private final IpRangeSet        whitelist;
 
-    private final CasConfiguration casConfiguration;
-
-    private static class LoginAttempt {
-        private int           count = 1;
-        private LocalDateTime lastFailedTry;
-        private String        source;
+    public LoginSecurity(CasConfiguration casConfiguration, LoginAttemptStore loginAttemptStore) {
+        this.loginAttemptStore = loginAttemptStore;
+        this.whitelist         = new IpRangeSet(casConfiguration.getLoginWhitelistIps());
     }
 
-
-    public boolean isAllowedToTry(HttpServletRequest source) {
-        LoginAttempt attempt = attempts.stream().filter(loginAttempt -> Objects.equals(loginAttempt.source, getRequestSource(source))).findFirst().orElse(null);
-
-        return attempt == null || attempt.count < MAX_ATTEMPTS || LocalDateTime.now().isAfter(attempt.lastFailedTry.plusMinutes(RETRY_AFTER_MINUTES));
+    public boolean isAllowedToTry(HttpServletRequest request) {
+        return isAllowedToTry(getRequestSource(request));
     }
 
-    public void resetAttempts(HttpServletRequest source) {
-        attempts.removeIf(loginAttempt -> Objects.equals(getRequestSource(source), loginAttempt.source));
+    public void resetAttempts(HttpServletRequest request) {
+        resetAttempts(getRequestSource(request));
     }
 
     public void recordFailedAttempt(HttpServletRequest request) {
-        LoginAttempt attempt = attempts.stream().filter(loginAttempt -> Objects.equals(loginAttempt.source, getRequestSource(request))).findFirst().orElse(null);
+        recordFailedAttempt(getRequestSource(request));
+    }
 
-        if (Arrays.stream(casConfiguration.getLoginWhitelistIps()).anyMatch(s -> {
-            IpAddressMatcher ipAddressMatcher = new IpAddressMatcher(s);
-            return ipAddressMatcher.matches(getRequestSource(request));
-        })) return;
+    /**
+     * The variants taking the source (see {@link #getRequestSource(HttpServletRequest)}) are for logins that complete
+     * on another thread, the request must not be used there.
+     */
+    public boolean isAllowedToTry(String source) {
+        return !loginAttemptStore.isBlocked(source);
+    }
 
-        if (attempt != null) {
-            attempt.count         = attempt.count + 1;
-            attempt.lastFailedTry = LocalDateTime.now();
-        } else {
-            LoginAttempt a = new LoginAttempt();
-            a.source        = getRequestSource(request);
-            a.lastFailedTry = LocalDateTime.now();
+    public void resetAttempts(String source) {
+        loginAttemptStore.reset(source);
+    }
 
-            attempts.add(a);
-        }
+    public void recordFailedAttempt(String source) {
+        if (whitelist.contains(source)) return;
+
+        loginAttemptStore.recordFailure(source);
 
-        log.info("{} tried to login with wrong credentials.", getRequestSource(request));
+        log.info("{} tried to login with wrong credentials.", source);
     }
 
-    private String getRequestSource(HttpServletRequest request) {
+    public String getRequestSource(HttpServletRequest request) {
         if (request.getHeader("x-forwarded-for") != null) {
             String forwardedFor = request.getHeader("x-forwarded-for");
             if (forwardedFor.contains(",")) {
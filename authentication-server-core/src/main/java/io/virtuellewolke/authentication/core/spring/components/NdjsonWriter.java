@@ -0,0 +1,77 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a query result as newline delimited JSON while it is read, so a listing never has to fit into memory.
+ * The stream is opened and consumed inside a read-only transaction on the async thread writing the response.
+ */
+@Component
+public class NdjsonWriter {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectWriter        writer;
+    private final ObjectMapper        objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public NdjsonWriter(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper        = objectMapper;
+        this.writer              = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> query) {
+        StreamingResponseBody body = out -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<T> items = query.get()) {
+                        write(items, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    <T> void write(Stream<T> items, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+
+            Iterator<T> iterator = items.iterator();
+            boolean     empty    = !iterator.hasNext();
+
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+            }
+
+            if (!empty) generator.writeRaw('\n');
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.configuration.PasswordConfiguration;
+import io.virtuellewolke.authentication.core.util.password.PasswordHashers;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and verifies passwords on a small dedicated thread pool, so a login storm queues up here instead of
+ * occupying every request thread with hashing. The queue is bounded, a task that can not be queued or waits longer
+ * than the configured timeout fails instead of piling up.
+ * <p>
+ * {@link #verify(Identity, String)} does not block the caller, the login completes on the hashing thread. New
+ * passwords (set with {@link Identity#setPassword(String)}) are hashed by {@link #applyNewPassword(Identity)}, which
+ * waits for the pool, that only happens for the rare admin and self-service changes.
+ * <p>
+ * A hash created with another algorithm or older parameters is replaced after a successful login, that is the only
+ * moment the plain password is known.
+ */
+@Slf4j
+@Component
+public class PasswordManager implements DisposableBean {
+
+    private final IdentityRepository identityRepository;
+    private final IdentityCache      identityCache;
+    private final PasswordHashers    hashers;
+    private final ThreadPoolExecutor executor;
+    private final Duration           timeout;
+
+    @Autowired
+    public PasswordManager(IdentityRepository identityRepository, IdentityCache identityCache, PasswordConfiguration passwordConfiguration) {
+        this(identityRepository, identityCache, passwordConfiguration.createHashers(), passwordConfiguration.getThreads(),
+                passwordConfiguration.getQueueSize(), passwordConfiguration.getTimeout());
+
+        log.info("Password hashing: {} on {} threads", hashers.getDefaultHasher().getAlgorithm(), executor.getMaximumPoolSize());
+    }
+
+    PasswordManager(IdentityRepository identityRepository, IdentityCache identityCache, PasswordHashers hashers,
+                    int threads, int queueSize, Duration timeout) {
+        this.identityRepository = identityRepository;
+        this.identityCache      = identityCache;
+        this.hashers            = hashers;
+        this.timeout            = timeout;
+        this.executor           = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new HasherThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Checks the password of an identity and upgrades its hash in the background if needed.
+     *
+     * @return completes on a hashing thread, or fails with a {@link ServiceException} if the pool is overloaded.
+     */
+    public CompletableFuture<Boolean> verify(Identity identity, String password) {
+        String hash = identity.getPassword();
+
+        return submit(() -> hashers.matches(password, hash)).thenApply(matches -> {
+            if (matches && hashers.needsRehash(hash)) {
+                rehash(identity.getId(), hash, password);
+            }
+
+            return matches;
+        });
+    }
+
+    /**
+     * Replaces the stored hash with one of the pending plain text password, has to be called before an identity with
+     * a new password is saved.
+     *
+     * @throws ServiceException if the hashing pool is overloaded.
+     */
+    public void applyNewPassword(Identity identity) {
+        if (identity.getNewPassword() == null) { return; }
+
+        String password = identity.getNewPassword();
+
+        try {
+            identity.setPasswordHash(submit(() -> hashers.hash(password)).join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof ServiceException ? (ServiceException) e.getCause() : new ServiceException("Password hashing failed.", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The login is valid anyway, a rehash that fails or does not fit into the queue is tried again on the next one.
+     */
+    private void rehash(Integer id, String oldHash, String password) {
+        submit(() -> hashers.hash(password))
+                .thenAccept(newHash -> identityRepository.findById(id)
+                        .filter(i -> oldHash.equals(i.getPassword()))
+                        .ifPresent(i -> {
+                            i.setPasswordHash(newHash);
+                            identityRepository.save(i);
+                            identityCache.evict(i);
+
+                            log.info("Rehashed the password of identity {} with {}", id, hashers.getDefaultHasher().getAlgorithm());
+                        }))
+                .exceptionally(e -> {
+                    log.warn("Failed to rehash the password of identity {}", id, e);
+                    return null;
+                });
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                // nobody waits for a task that timed out while queued
+                if (result.isDone()) { return; }
+
+                try {
+                    result.complete(task.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(new ServiceException("Password hashing failed.", e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new ServiceException("Too many concurrent logins, password hashing queue is full.", e));
+            return result;
+        }
+
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> result.completeExceptionally(new ServiceException("Password hashing timed out.")));
+
+        return result;
+    }
+
+    private static class HasherThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.configuration.X509ManagerConfiguration;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Issues PFX files on a bounded pool of background threads, the client polls the job and downloads the file once it
+ * is done. A finished file is handed out once and then dropped, unclaimed jobs expire after the configured time.
+ * <p>
+ * Batches issued by admins run on a pool of their own, so a large batch never fills the queue of the self-service
+ * issuances.
+ */
+@Slf4j
+@Component
+public class PfxIssuanceJobs implements DisposableBean {
+
+    public enum Status {
+        PENDING, DONE, FAILED, REJECTED
+    }
+
+    @Getter
+    public static final class Job {
+        private final String  id;
+        private final String  deviceName;
+        @JsonIgnore
+        private final Integer identityId;
+
+        private volatile Status status = Status.PENDING;
+        @JsonIgnore
+        private volatile byte[] pfx;
+
+        private Job(String id, String deviceName, Integer identityId) {
+            this.id         = id;
+            this.deviceName = deviceName;
+            this.identityId = identityId;
+        }
+    }
+
+    private final X509Manager        x509Manager;
+    private final Cache<String, Job> jobs;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor batchExecutor;
+    @Getter
+    private final int                batchCapacity;
+
+    public PfxIssuanceJobs(X509Manager x509Manager, X509ManagerConfiguration configuration) {
+        this.x509Manager   = x509Manager;
+        this.jobs          = Caffeine.newBuilder()
+                .expireAfterWrite(configuration.getIssuanceJobTtl())
+                .build();
+        this.executor      = createExecutor(configuration.getIssuanceThreads(), configuration.getIssuanceQueueSize(), "pfx-issuance-");
+        this.batchExecutor = createExecutor(configuration.getIssuanceBatchThreads(), configuration.getIssuanceBatchQueueSize(), "pfx-batch-issuance-");
+        this.batchCapacity = configuration.getIssuanceBatchQueueSize();
+    }
+
+    /**
+     * @throws ServiceException if too many issuances are pending already.
+     */
+    public Job submit(Identity identity, String deviceName) {
+        Job job = submit(executor, identity, deviceName);
+
+        if (job.status == Status.REJECTED) {
+            throw new ServiceException("Too many certificate issuances pending.");
+        }
+
+        return job;
+    }
+
+    /**
+     * Queues an issuance of a batch, a full queue (more than {@link #getBatchCapacity()} pending, e.g. from concurrent
+     * batches) results in a {@link Status#REJECTED} job instead of an exception, so a batch can report which of its
+     * issuances were accepted.
+     */
+    public Job submitBatch(Identity identity, String deviceName) {
+        return submit(batchExecutor, identity, deviceName);
+    }
+
+    public Optional<Job> find(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id));
+    }
+
+    public Optional<Job> find(String id, Integer identityId) {
+        return find(id).filter(job -> job.identityId.equals(identityId));
+    }
+
+    /**
+     * Hands out the PFX of a finished job once, empty while it is still running or if it failed.
+     */
+    public Optional<byte[]> claim(String id) {
+        return claim(find(id));
+    }
+
+    public Optional<byte[]> claim(String id, Integer identityId) {
+        return claim(find(id, identityId));
+    }
+
+    private Optional<byte[]> claim(Optional<Job> job) {
+        return job.filter(j -> j.status == Status.DONE)
+                .filter(j -> jobs.asMap().remove(j.id, j))
+                .map(j -> j.pfx);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    private Job submit(ThreadPoolExecutor target, Identity identity, String deviceName) {
+        Job job = new Job(UUID.randomUUID().toString(), deviceName, identity.getId());
+        jobs.put(job.id, job);
+
+        try {
+            target.execute(() -> run(job, identity));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            job.status = Status.REJECTED;
+        }
+
+        return job;
+    }
+
+    private void run(Job job, Identity identity) {
+        try {
+            job.pfx    = x509Manager.issuePfx(identity, job.deviceName);
+            job.status = Status.DONE;
+        } catch (RuntimeException e) {
+            log.warn("Issuing certificate job {} for Identity {} failed", job.id, job.identityId, e);
+            job.status = Status.FAILED;
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor(int threads, int queueSize, String threadPrefix) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                new IssuanceThreadFactory(threadPrefix), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static class IssuanceThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String        prefix;
+
+        private IssuanceThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import feign.FeignException;
+import io.virtuellewolke.authentication.core.api.model.LoginRequest;
+import io.virtuellewolke.authentication.core.api.remote.AuthyRemoteClient;
+import io.virtuellewolke.authentication.core.api.remote.AuthyRemoteClientBuilder;
+import io.virtuellewolke.authentication.core.api.remote.CircuitBreaker;
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.configuration.RemoteAuthyConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * One client per remote Authy url, all sharing a single connection pool, so delegated logins reuse connections and
+ * TLS sessions.
+ * <p>
+ * Every remote has a bulkhead (at most {@code maxConcurrentCalls} calls at once) and a circuit breaker, a slow or
+ * broken remote fails fast instead of tying up threads needed by other logins. Only transport errors and server
+ * errors count as failures, a rejected login is a valid answer.
+ */
+@Slf4j
+@Component
+public class RemoteAuthyClients implements DisposableBean {
+
+    private final RemoteAuthyConfiguration            configuration;
+    private final Function<String, AuthyRemoteClient> clientFactory;
+    private final LoadingCache<String, Remote>        remotes;
+    private final ThreadPoolExecutor                  executor;
+    private final OkHttpClient                        httpClient;
+
+    @Autowired
+    public RemoteAuthyClients(RemoteAuthyConfiguration configuration) {
+        this(configuration, AuthyRemoteClientBuilder.httpClientBuilder()
+                .connectionPool(new ConnectionPool(configuration.getMaxIdleConnections(), configuration.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .build());
+    }
+
+    private RemoteAuthyClients(RemoteAuthyConfiguration configuration, OkHttpClient httpClient) {
+        this(configuration, httpClient, url -> AuthyRemoteClientBuilder.builder()
+                .setUrl(url)
+                .setTimeout(configuration.getTimeout().toMillis())
+                .setConnectTimeout(configuration.getConnectTimeout().toMillis())
+                .setHttpClient(httpClient)
+                .build());
+    }
+
+    RemoteAuthyClients(RemoteAuthyConfiguration configuration, OkHttpClient httpClient, Function<String, AuthyRemoteClient> clientFactory) {
+        this.configuration = configuration;
+        this.httpClient    = httpClient;
+        this.clientFactory = clientFactory;
+        this.remotes       = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofHours(1))
+                .build(Remote::new);
+        this.executor      = new ThreadPoolExecutor(configuration.getThreads(), configuration.getThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(configuration.getQueueSize()), new DelegationThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Delegates a login to a remote Authy. In async mode the returned future completes on a delegation thread,
+     * otherwise it is already completed when this method returns.
+     * <p>
+     * The future fails with the {@link FeignException} of the remote, or with a {@link ServiceException} if the
+     * remote is unavailable or overloaded.
+     */
+    public CompletableFuture<Void> login(String url, LoginRequest login, String serviceUrl) {
+        Remote remote = remotes.get(url);
+
+        if (!configuration.isAsync()) {
+            try {
+                remote.login(login, serviceUrl);
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        try {
+            return CompletableFuture.runAsync(() -> remote.login(login, serviceUrl), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ServiceException("Too many delegated logins, queue is full.", e));
+        }
+    }
+
+    CircuitBreaker.State getState(String url) {
+        return remotes.get(url).circuitBreaker.getState();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        httpClient.connectionPool().evictAll();
+    }
+
+    private class Remote {
+        private final String            url;
+        private final AuthyRemoteClient client;
+        private final CircuitBreaker    circuitBreaker;
+        private final Semaphore         bulkhead;
+
+        private Remote(String url) {
+            this.url            = url;
+            this.client         = clientFactory.apply(url);
+            this.circuitBreaker = new CircuitBreaker(configuration.getFailureThreshold(), configuration.getOpenDuration());
+            this.bulkhead       = new Semaphore(configuration.getMaxConcurrentCalls());
+        }
+
+        private void login(LoginRequest login, String serviceUrl) {
+            if (!bulkhead.tryAcquire()) {
+                throw new ServiceException("Too many concurrent logins delegated to " + url);
+            }
+
+            try {
+                if (!circuitBreaker.tryAcquire()) {
+                    throw new ServiceException("Remote authy " + url + " is unavailable.");
+                }
+
+                try {
+                    client.login(login, serviceUrl);
+                    circuitBreaker.onSuccess();
+                } catch (FeignException e) {
+                    if (e.status() >= 400 && e.status() < 500) {
+                        circuitBreaker.onSuccess();
+                    } else {
+                        circuitBreaker.onFailure();
+                        log.warn("Remote authy {} failed ({})", url, e.getMessage());
+                    }
+                    throw e;
+                } catch (RuntimeException e) {
+                    circuitBreaker.onFailure();
+                    throw e;
+                }
+            } finally {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private static class DelegationThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "remote-authy-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
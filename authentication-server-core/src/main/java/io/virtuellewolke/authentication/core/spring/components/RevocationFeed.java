@@ -0,0 +1,210 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.virtuellewolke.authentication.core.database.projection.RevokedCertificate;
+import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.configuration.X509ManagerConfiguration;
+import lombok.Getter;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.security.cert.X509CRL;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Revocations for reverse proxies, so they can reject revoked client certificates themselves.
+ * <p>
+ * The CRL is signed by the CA and kept in memory, it is only rebuilt after the known revocations changed or the
+ * refresh interval passed. It lists a revoked certificate until the certificate expired, only then the cleanup of
+ * revoked certificates deletes it.
+ * <p>
+ * The delta feed pages through the revocations ordered by time and serial, a proxy keeps the {@code next} cursor of
+ * the last response and asks for what changed after it. The time of a revocation is taken before it is committed, so
+ * the last page moves the cursor back by the {@code feedCommitSkew} and late commits are picked up by the next
+ * request. A revocation can be listed more than once, applying a delta is idempotent.
+ */
+@Component
+public class RevocationFeed {
+
+    @Getter
+    public static final class Delta {
+        private final String           since;
+        private final String           next;
+        /**
+         * More revocations follow the page, the client should ask for the {@code next} cursor right away.
+         */
+        private final boolean          more;
+        @JsonSerialize(contentUsing = ToStringSerializer.class)
+        private final List<BigInteger> serials;
+
+        private Delta(String since, String next, boolean more, List<BigInteger> serials) {
+            this.since   = since;
+            this.next    = next;
+            this.more    = more;
+            this.serials = serials;
+        }
+
+        public String getEtag() {
+            return since + "_" + next + "_" + serials.size();
+        }
+    }
+
+    /**
+     * Position in the feed, formatted as {@code <epoch millis>-<serial>} or just the epoch millis for everything
+     * revoked at or after that time.
+     */
+    private static final class Cursor {
+        private static final BigInteger BEFORE_ALL = BigInteger.ONE.negate();
+
+        private final LocalDateTime revokedAt;
+        private final BigInteger    serial;
+
+        private Cursor(LocalDateTime revokedAt, BigInteger serial) {
+            this.revokedAt = revokedAt;
+            this.serial    = serial;
+        }
+
+        private static Cursor parse(String value) {
+            int separator = value.indexOf('-');
+
+            try {
+                long       millis = Long.parseLong(separator < 0 ? value : value.substring(0, separator));
+                BigInteger serial = separator < 0 ? BEFORE_ALL : new BigInteger(value.substring(separator + 1));
+
+                return new Cursor(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()), serial);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid revocation cursor " + value, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            long millis = toEpochMilli(revokedAt);
+            return serial.signum() < 0 ? String.valueOf(millis) : millis + "-" + serial;
+        }
+    }
+
+    public static final class Crl {
+        private final String  pem;
+        private final String  etag;
+        private final Instant createdAt;
+        private final long    revocationVersion;
+
+        private Crl(String pem, Instant createdAt, long revocationVersion) {
+            this.pem               = pem;
+            this.etag              = DigestUtils.sha256Hex(pem);
+            this.createdAt         = createdAt;
+            this.revocationVersion = revocationVersion;
+        }
+
+        public String getPem() {
+            return pem;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private final ClientAuthCertRepository clientAuthCertRepository;
+    private final X509Manager              x509Manager;
+    private final X509ValidationCache      validationCache;
+    private final X509ManagerConfiguration configuration;
+    private final Clock                    clock;
+
+    private volatile Crl crl;
+
+    @Autowired
+    public RevocationFeed(ClientAuthCertRepository clientAuthCertRepository, X509Manager x509Manager,
+                          X509ValidationCache validationCache, X509ManagerConfiguration configuration) {
+        this(clientAuthCertRepository, x509Manager, validationCache, configuration, Clock.systemDefaultZone());
+    }
+
+    RevocationFeed(ClientAuthCertRepository clientAuthCertRepository, X509Manager x509Manager,
+                   X509ValidationCache validationCache, X509ManagerConfiguration configuration, Clock clock) {
+        this.clientAuthCertRepository = clientAuthCertRepository;
+        this.x509Manager              = x509Manager;
+        this.validationCache          = validationCache;
+        this.configuration            = configuration;
+        this.clock                    = clock;
+    }
+
+    /**
+     * One page of revocations after the cursor, see {@link Cursor} for the format.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public Delta since(String since) {
+        Cursor                   from        = Cursor.parse(since);
+        int                      pageSize    = configuration.getFeedPageSize();
+        List<RevokedCertificate> revocations = clientAuthCertRepository.findRevokedAfter(from.revokedAt, from.serial, PageRequest.of(0, pageSize));
+
+        boolean more = revocations.size() == pageSize;
+        Cursor  next = from;
+
+        if (!revocations.isEmpty()) {
+            RevokedCertificate last = revocations.get(revocations.size() - 1);
+            next = new Cursor(last.getRevokedAt(), last.getSerial());
+        }
+
+        if (!more) {
+            LocalDateTime settled = LocalDateTime.now(clock).minus(configuration.getFeedCommitSkew());
+
+            if (next.revokedAt.isAfter(settled)) {
+                next = new Cursor(settled, Cursor.BEFORE_ALL);
+            }
+        }
+
+        return new Delta(since, next.toString(), more, revocations.stream().map(RevokedCertificate::getSerial).collect(Collectors.toList()));
+    }
+
+    public Crl crl() {
+        Crl     current = crl;
+        long    version = validationCache.getRevocationVersion();
+        Instant now     = clock.instant();
+
+        if (current == null || current.revocationVersion != version || now.isAfter(current.createdAt.plus(configuration.getCrlRefresh()))) {
+            synchronized (this) {
+                current = crl;
+
+                if (current == null || current.revocationVersion != version || now.isAfter(current.createdAt.plus(configuration.getCrlRefresh()))) {
+                    current = crl = build(version, now);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    private Crl build(long version, Instant now) {
+        List<RevokedCertificate> revocations = clientAuthCertRepository.findRevoked();
+
+        X509CRL generated = x509Manager.generateCrl(revocations, Date.from(now), Date.from(now.plus(configuration.getCrlValidity())));
+
+        try (StringWriter out = new StringWriter(); JcaPEMWriter writer = new JcaPEMWriter(out)) {
+            writer.writeObject(generated);
+            writer.flush();
+            return new Crl(out.toString(), now, version);
+        } catch (IOException e) {
+            throw new ServiceException("Failed to encode the CRL.", e);
+        }
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
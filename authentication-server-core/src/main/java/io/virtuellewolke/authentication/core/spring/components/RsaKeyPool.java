@@ -0,0 +1,120 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.configuration.X509ManagerConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * RSA key pairs generated ahead of time on a background thread, so issuing a certificate does not wait for the key
+ * generation. The pool is refilled once it drops to the refill threshold, an empty pool falls back to generating the
+ * key on the calling thread.
+ */
+@Slf4j
+@Component
+public class RsaKeyPool implements InitializingBean, DisposableBean, MeterBinder {
+
+    private final BlockingQueue<KeyPair> pool;
+    private final int                    refillThreshold;
+    private final Supplier<KeyPair>      generator;
+    private final boolean                fillOnStart;
+    private final ExecutorService        refiller  = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rsa-key-pool");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final AtomicBoolean          refilling = new AtomicBoolean();
+
+    @Autowired
+    public RsaKeyPool(X509ManagerConfiguration configuration) {
+        this(configuration.getKeyPoolSize(), configuration.getKeyPoolRefillThreshold(), () -> generate(configuration.getKeySize()),
+                configuration.getEnabled());
+    }
+
+    RsaKeyPool(int size, int refillThreshold, Supplier<KeyPair> generator, boolean fillOnStart) {
+        this.pool            = new ArrayBlockingQueue<>(Math.max(1, size));
+        this.refillThreshold = refillThreshold;
+        this.generator       = generator;
+        this.fillOnStart     = fillOnStart;
+    }
+
+    public KeyPair take() {
+        KeyPair keyPair = pool.poll();
+
+        if (pool.size() <= refillThreshold) refill();
+
+        if (keyPair == null) {
+            log.debug("RSA key pool is empty, generating the key pair on the calling thread");
+            return generator.get();
+        }
+
+        return keyPair;
+    }
+
+    int available() {
+        return pool.size();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (fillOnStart) refill();
+    }
+
+    @Override
+    public void destroy() {
+        refiller.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.gauge("authy.x509.key-pool.available", pool, BlockingQueue::size);
+    }
+
+    private void refill() {
+        if (!refilling.compareAndSet(false, true)) { return; }
+
+        try {
+            refiller.execute(() -> {
+                try {
+                    while (pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                        pool.offer(generator.get());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refill the RSA key pool", e);
+                    refilling.set(false);
+                    return;
+                }
+
+                refilling.set(false);
+
+                // keys taken while the flag was still set did not trigger a refill
+                if (pool.size() <= refillThreshold) refill();
+            });
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+        }
+    }
+
+    private static KeyPair generate(int keySize) {
+        try {
+            return X509Manager.generateRSAKeyPair(keySize);
+        } catch (Exception e) {
+            throw new ServiceException("Failed to generate a RSA key pair.", e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable lookup structure which resolves a service url to the first enabled {@link Service} allowing it.
+ * <p>
+ * Allowed urls are sorted into three kinds of matchers when the index is built:
+ * <ul>
+ *     <li>plain urls go into a hash map,</li>
+ *     <li>urls with a single trailing {@code *} go into a prefix trie,</li>
+ *     <li>urls with any other {@code *} are compiled once into a {@link Pattern} and only tried as a fallback.</li>
+ * </ul>
+ * Only {@code *} is a wildcard, every other character of an allowed url is literal in all three matchers, so a
+ * {@code .} never matches anything but a dot.
+ * Every matcher remembers the position of its service, so the result is the same as checking the services one by
+ * one in their original order.
+ * <p>
+ * Allowed urls used to be regular expressions. An url containing other regex syntax is logged once, it only matches
+ * literally now and probably has to be rewritten with {@code *}.
+ */
+@Slf4j
+final class ServiceMatcherIndex {
+
+    private static final Pattern     REGEX_SYNTAX = Pattern.compile("[\\\\|()\\[\\]{}^$+?]");
+    private static final Set<String> REPORTED     = ConcurrentHashMap.newKeySet();
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private       int                      position = Integer.MAX_VALUE;
+    }
+
+    private static final class PatternMatcher {
+        private final Pattern pattern;
+        private final int     position;
+
+        private PatternMatcher(Pattern pattern, int position) {
+            this.pattern  = pattern;
+            this.position = position;
+        }
+    }
+
+    private final List<Service>        services;
+    private final Map<String, Integer> exactMatches = new HashMap<>();
+    private final TrieNode             prefixes     = new TrieNode();
+    private final List<PatternMatcher> patterns     = new ArrayList<>();
+
+    ServiceMatcherIndex(List<Service> services) {
+        this.services = new ArrayList<>(services);
+
+        for (int position = 0; position < this.services.size(); position++) {
+            Service service = this.services.get(position);
+
+            if (!Boolean.TRUE.equals(service.getEnabled()) || service.getAllowedUrls() == null) { continue; }
+
+            for (String allowedUrl : service.getAllowedUrls()) {
+                if (allowedUrl != null) addAllowedUrl(allowedUrl, position);
+            }
+        }
+    }
+
+    Service find(String serviceUrl) {
+        if (serviceUrl == null) { return null; }
+
+        int best = exactMatches.getOrDefault(serviceUrl, Integer.MAX_VALUE);
+
+        TrieNode node = prefixes;
+        for (int i = 0; node != null; i++) {
+            best = Math.min(best, node.position);
+            node = i < serviceUrl.length() ? node.children.get(serviceUrl.charAt(i)) : null;
+        }
+
+        for (PatternMatcher matcher : patterns) {
+            if (matcher.position >= best) { break; }
+
+            if (matcher.pattern.matcher(serviceUrl).matches()) {
+                best = matcher.position;
+                break;
+            }
+        }
+
+        return best != Integer.MAX_VALUE ? services.get(best) : null;
+    }
+
+    private void addAllowedUrl(String allowedUrl, int position) {
+        if (REGEX_SYNTAX.matcher(allowedUrl).find() && REPORTED.add(allowedUrl)) {
+            log.warn("Allowed url '{}' of service '{}' contains regex syntax, only * is a wildcard and everything else matches literally",
+                    allowedUrl, services.get(position).getName());
+        }
+
+        int wildcard = allowedUrl.indexOf('*');
+
+        if (wildcard != -1 && wildcard != allowedUrl.length() - 1) {
+            patterns.add(new PatternMatcher(compile(allowedUrl), position));
+        } else if (wildcard == -1) {
+            exactMatches.merge(allowedUrl, position, Math::min);
+        } else {
+            TrieNode node = prefixes;
+            for (char c : allowedUrl.substring(0, wildcard).toCharArray()) {
+                node = node.children.computeIfAbsent(c, k -> new TrieNode());
+            }
+            node.position = Math.min(node.position, position);
+        }
+    }
+
+    /**
+     * Quotes everything between the wildcards, so the pattern matches exactly what the exact and prefix matchers would.
+     */
+    private static Pattern compile(String allowedUrl) {
+        StringBuilder regex = new StringBuilder();
+        int           start = 0;
+
+        for (int wildcard = allowedUrl.indexOf('*'); wildcard != -1; wildcard = allowedUrl.indexOf('*', start)) {
+            if (wildcard > start) regex.append(Pattern.quote(allowedUrl.substring(start, wildcard)));
+            regex.append("(.*)");
+            start = wildcard + 1;
+        }
+
+        if (start < allowedUrl.length()) regex.append(Pattern.quote(allowedUrl.substring(start)));
+
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
@@ -0,0 +1,231 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisSubscription;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import io.virtuellewolke.authentication.core.database.repository.ServiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of all {@link Service} entities, shared by every request.
+ * <p>
+ * The snapshot holds its own detached copies of the services, callers of {@link #getServices()} get copies again, so
+ * nothing outside the registry can change a service it resolves.
+ * <p>
+ * Reads never lock, changes made through this node swap the whole snapshot at once. With Redis enabled the other
+ * nodes are told about a change over pub/sub and compare a shared version counter on every poll, so a lost message
+ * is picked up by the next poll. Without Redis every node simply reloads the services on every poll.
+ */
+@Slf4j
+@Component
+public class ServiceRegistry implements InitializingBean, DisposableBean {
+
+    static final String VERSION_KEY = "authy.services.version";
+    static final String CHANNEL     = "authy.services.changed";
+
+    private static final class Snapshot {
+        private final List<Service>       services;
+        private final ServiceMatcherIndex index;
+        private final long                version;
+        private final long                generation;
+
+        private Snapshot(List<Service> services, long version, long generation) {
+            this.services   = Collections.unmodifiableList(services);
+            this.index      = new ServiceMatcherIndex(services);
+            this.version    = version;
+            this.generation = generation;
+        }
+    }
+
+    private final ServiceRepository      serviceRepository;
+    private final JedisConnectionFactory jedisConnectionFactory;
+    private final JedisPubSub            subscriber = new ChangeSubscriber();
+
+    private volatile Snapshot          snapshot;
+    private          JedisSubscription subscription;
+    private          long              generations;
+
+    @Autowired
+    public ServiceRegistry(ServiceRepository serviceRepository, ObjectProvider<JedisConnectionFactory> jedisConnectionFactory) {
+        this(serviceRepository, jedisConnectionFactory.getIfAvailable());
+    }
+
+    ServiceRegistry(ServiceRepository serviceRepository, JedisConnectionFactory jedisConnectionFactory) {
+        this.serviceRepository      = serviceRepository;
+        this.jedisConnectionFactory = jedisConnectionFactory;
+    }
+
+    /**
+     * Copies of all services, in their original order.
+     */
+    public List<Service> getServices() {
+        return getSnapshot().services.stream().map(Service::copy).collect(Collectors.toList());
+    }
+
+    /**
+     * Copies of the services an identity may log in to, in their original order. The check runs on the shared
+     * services, so their required roles are resolved once per snapshot and not again for every copy.
+     */
+    public List<Service> getServicesAllowedFor(Identity identity) {
+        return getSnapshot().services.stream()
+                .filter(service -> service.isIdentityAllowed(identity))
+                .map(Service::copy)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolves a service url to the first enabled service allowing it, or null. The service is shared with every
+     * other request and must not be changed.
+     */
+    public Service find(String serviceUrl) {
+        return getSnapshot().index.find(serviceUrl);
+    }
+
+    /**
+     * Local counter of loaded snapshots, changes whenever the services may have changed. Unlike the shared version
+     * it also changes without Redis, so it can be part of cache keys derived from a service.
+     */
+    public long getGeneration() {
+        return getSnapshot().generation;
+    }
+
+    /**
+     * Reloads the services after they were changed on this node and tells the other nodes about it.
+     */
+    public void refresh() {
+        synchronized (this) {
+            Long version = jedisConnectionFactory != null ? withRedis(jedis -> jedis.incr(VERSION_KEY)) : null;
+            load(version != null ? version : currentVersion());
+        }
+
+        if (jedisConnectionFactory != null) {
+            withRedis(jedis -> jedis.publish(CHANNEL, Long.toString(snapshot.version)));
+        }
+    }
+
+    /**
+     * Fallback for missed change events, also the only way to see changes of other nodes without Redis.
+     */
+    @Scheduled(fixedDelayString = "${app.services.poll-interval:30000}")
+    public void poll() {
+        if (snapshot == null) { return; }
+
+        if (jedisConnectionFactory == null) {
+            synchronized (this) {
+                load(0);
+            }
+        } else {
+            reloadIfOutdated(readRemoteVersion());
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (jedisConnectionFactory == null) { return; }
+
+        subscription = JedisSubscription.start(jedisConnectionFactory, "service-registry-subscriber", subscriber, CHANNEL);
+    }
+
+    @Override
+    public void destroy() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) load(readRemoteVersion());
+                current = snapshot;
+            }
+        }
+
+        return current;
+    }
+
+    private void reloadIfOutdated(long version) {
+        if (snapshot == null || version <= snapshot.version) { return; }
+
+        synchronized (this) {
+            if (version > snapshot.version) {
+                log.debug("Service registry outdated ({} < {}), reloading", snapshot.version, version);
+                load(Math.max(version, readRemoteVersion()));
+            }
+        }
+    }
+
+    /**
+     * Has to be called while holding the monitor. The version is read before the services, so a snapshot never
+     * claims to be newer than its content.
+     */
+    private void load(long version) {
+        List<Service> services = serviceRepository.findAll().stream().map(Service::copy).collect(Collectors.toList());
+
+        snapshot = new Snapshot(services, version, ++generations);
+
+        log.debug("Service registry loaded (version {})", version);
+    }
+
+    private long currentVersion() {
+        return snapshot != null ? snapshot.version : 0;
+    }
+
+    private long readRemoteVersion() {
+        if (jedisConnectionFactory == null) { return 0; }
+
+        String version = withRedis(jedis -> jedis.get(VERSION_KEY));
+
+        try {
+            return version != null ? Long.parseLong(version) : 0;
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid service registry version '{}'", version);
+            return 0;
+        }
+    }
+
+    private <T> T withRedis(Function<Jedis, T> command) {
+        try (Jedis jedis = jedisConnectionFactory.getConnection()) {
+            return command.apply(jedis);
+        } catch (RuntimeException e) {
+            log.warn("Service registry could not reach redis, changes of other nodes are seen after the next poll: {}", e.getMessage());
+            log.debug("Redis failure of the service registry", e);
+            return null;
+        }
+    }
+
+    private class ChangeSubscriber extends JedisPubSub {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            // changes published while we were not subscribed
+            poll();
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+            try {
+                reloadIfOutdated(Long.parseLong(message));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid service registry event '{}'", message);
+            } catch (RuntimeException e) {
+                log.warn("Failed to reload the service registry", e);
+            }
+        }
+    }
+}
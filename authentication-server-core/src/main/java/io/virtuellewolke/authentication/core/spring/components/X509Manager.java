@@ -2,6 +2,7 @@ package io.virtuellewolke.authentication.core.spring.components;
 
 import io.virtuellewolke.authentication.core.database.entity.ClientAuthCert;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.projection.RevokedCertificate;
 import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
 import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
 import io.virtuellewolke.authentication.core.exceptions.ServiceException;
@@ -10,8 +11,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.X509v1CertificateBuilder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.jce.PrincipalUtil;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -40,10 +44,12 @@ import java.security.*;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -53,11 +59,32 @@ import java.util.List;
 @ManagedResource
 public class X509Manager {
 
+    static {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    /**
+     * Validity of issued certificates, a revoked certificate is kept until it expired.
+     */
+    private static final Period     VALIDITY   = Period.ofYears(5);
+    /**
+     * Serials stay below 10^15, so they fit the decimal(19,2) column Hibernate created and a double in the frontend.
+     */
+    private static final BigInteger SERIAL_END = BigInteger.TEN.pow(15);
+
+    private final SecureRandom serialRandom = new SecureRandom();
+
     private X509Certificate caCache;
+    private volatile KeyPair caKeyPair;
 
     private final X509ManagerConfiguration configuration;
     private final IdentityRepository       identityRepository;
     private final ClientAuthCertRepository clientAuthCertRepository;
+    private final X509ValidationCache      validationCache;
+    private final LastSeenTracker          lastSeenTracker;
+    private final RsaKeyPool               keyPool;
 
     @ManagedOperation(description = "Cleans the revoked certificates")
     @Scheduled(fixedDelayString = "#{@x509ManagerConfiguration.cleanupTimer}")
@@ -65,13 +92,16 @@ public class X509Manager {
         if (configuration.getEnabled()) {
             log.info("Cleaning revoked certificates ...");
 
-            List<ClientAuthCert> certs = clientAuthCertRepository.findAllByRevokedAtLessThanAndRevokedAtIsNotNull(LocalDateTime.now().minusHours(1));
+            // certificates issued before the expiry was stored expire VALIDITY after their issuance
+            LocalDateTime        now   = LocalDateTime.now();
+            List<ClientAuthCert> certs = clientAuthCertRepository.findExpiredRevocations(now, now.minus(VALIDITY));
 
             if (log.isDebugEnabled()) {
-                certs.forEach(cert -> log.debug("Deleting revoked certificate {}, revoked at {} for identity {}", cert.getSerial(), cert.getRevokedAt(), cert.getIdentity().getId()));
+                certs.forEach(cert -> log.debug("Deleting expired revoked certificate {}, revoked at {} for identity {}", cert.getSerial(), cert.getRevokedAt(), cert.getIdentity().getId()));
             }
 
             clientAuthCertRepository.deleteAll(certs);
+            validationCache.reload();
 
             log.info("Cleaned {} revoked certificates ...", certs.size());
         }
@@ -103,13 +133,8 @@ public class X509Manager {
         return isRevoked(getCertificateFor(serial));
     }
 
-    public void markAsUsed(ClientAuthCert cert) {
-        if (cert != null) {
-            if (cert.getLastAccess() == null || LocalDateTime.now().isAfter(cert.getLastAccess().plusMinutes(10))) {
-                cert.setLastAccess(LocalDateTime.now());
-                clientAuthCertRepository.save(cert);
-            }
-        }
+    public void markAsUsed(BigInteger serial) {
+        lastSeenTracker.record(LastSeenTracker.Kind.CERTIFICATE, serial);
     }
 
     public void revoke(BigInteger serial) {
@@ -118,6 +143,46 @@ public class X509Manager {
         if (cert != null) {
             cert.setRevokedAt(LocalDateTime.now());
             clientAuthCertRepository.save(cert);
+            validationCache.revoked(serial);
+        }
+    }
+
+    /**
+     * Revokes all given certificates with a single statement, returns the serials which are revoked afterwards.
+     */
+    public List<BigInteger> revokeAll(Collection<BigInteger> serials) {
+        if (serials.isEmpty()) { return List.of(); }
+
+        int changed = clientAuthCertRepository.revokeAll(serials, LocalDateTime.now());
+
+        List<BigInteger> revoked = clientAuthCertRepository.findRevokedSerialsIn(serials);
+        validationCache.revoked(revoked);
+
+        log.info("Revoked {} of {} certificates in bulk", changed, serials.size());
+
+        return revoked;
+    }
+
+    /**
+     * A CRL of the given revocations, signed by the CA.
+     */
+    public X509CRL generateCrl(List<RevokedCertificate> revocations, Date thisUpdate, Date nextUpdate) {
+        try {
+            // same issuer name as in the issued certificates, see signCertificateRequestWithCA
+            X500Name         issuer  = new X500Name(PrincipalUtil.getIssuerX509Principal(getCaCertificate()).getName());
+            X509v2CRLBuilder builder = new X509v2CRLBuilder(issuer, thisUpdate);
+            builder.setNextUpdate(nextUpdate);
+
+            for (RevokedCertificate revocation : revocations) {
+                builder.addCRLEntry(revocation.getSerial(), Date.from(revocation.getRevokedAt().atZone(ZoneId.systemDefault()).toInstant()),
+                        CRLReason.unspecified);
+            }
+
+            ContentSigner signer = new JcaContentSignerBuilder("SHA256WithRSAEncryption").setProvider("BC").build(getCaKeyPair().getPrivate());
+
+            return new JcaX509CRLConverter().setProvider("BC").getCRL(builder.build(signer));
+        } catch (Exception e) {
+            throw new ServiceException("Failed to generate the CRL.", e);
         }
     }
 
@@ -128,9 +193,14 @@ public class X509Manager {
             cert.setRevokedAt(LocalDateTime.now());
             log.info("Revoked {} for Identity {}", cert.getSerial(), identity.getId());
             clientAuthCertRepository.save(cert);
+            validationCache.revoked(serial);
         }
     }
 
+    public boolean isEnabled() {
+        return configuration.getEnabled();
+    }
+
     @SuppressWarnings("SpellCheckingInspection")
     public byte[] issuePfx(Identity identity, String certificateName) {
         if (!configuration.getEnabled()) {
@@ -139,28 +209,28 @@ public class X509Manager {
 
         log.info("Issuing X509 mTLS certificate for Identity {} with the Name {}", identity.getId(), certificateName);
 
-        Integer userId = identity.getId();
-
-        BigInteger serial = new BigInteger(userId + "" + (LocalDateTime.now()).format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")));
+        // random, so serials do not collide or reveal anything, a collision still fails on insert
+        BigInteger    serial    = nextSerial();
+        LocalDateTime issuedAt  = LocalDateTime.now();
+        LocalDateTime expiresAt = issuedAt.plus(VALIDITY);
 
         try {
-            Security.addProvider(new BouncyCastleProvider());
-
-            KeyPair caKeyPair = loadKeys(configuration.getCaPrivateKey());
+            KeyPair caKeyPair = getCaKeyPair();
 
-            // STEP 1: GENERATE KEY
-            KeyPair userKeyPair = generateRSAKeyPair();
+            // STEP 1: TAKE A PRE-GENERATED KEY
+            KeyPair userKeyPair = keyPool.take();
             // STEP 2: GENERATE CSR
             PKCS10CertificationRequest csr = createCertRequest(userKeyPair, identity);
             // STEP 3: SIGN CERTIFICATE
-            X509Certificate cert = signCertificateRequestWithCA(csr, serial, caKeyPair.getPrivate(), getCaCertificate(), identity);
+            X509Certificate cert = signCertificateRequestWithCA(csr, serial, expiresAt, caKeyPair.getPrivate(), getCaCertificate());
             // STEP 4: BUILD PFX FILE
             byte[] pfx = generatePfxStore(userKeyPair, cert, identity);
 
             ClientAuthCert clientAuthCert = new ClientAuthCert();
             clientAuthCert.setSerial(serial);
             clientAuthCert.setIdentity(identity);
-            clientAuthCert.setIssuedAt(LocalDateTime.now());
+            clientAuthCert.setIssuedAt(issuedAt);
+            clientAuthCert.setExpiresAt(expiresAt);
             clientAuthCert.setName(certificateName);
 
             clientAuthCertRepository.save(clientAuthCert);
@@ -177,9 +247,17 @@ public class X509Manager {
      *
      * @implNote for some reason, a mTLS certificate cant be a V3 certificate and must be a V1 certificate. idk why.
      */
-    private X509Certificate signCertificateRequestWithCA(PKCS10CertificationRequest request, BigInteger serial, PrivateKey caPrivateKey, X509Certificate caPublicKey, Identity identity) throws Exception {
-        LocalDateTime localDateTime = LocalDateTime.now().plusYears(5);
-        Date          notAfter      = Date.from(localDateTime.toInstant(ZoneOffset.UTC));
+    private BigInteger nextSerial() {
+        BigInteger serial;
+        do {
+            serial = new BigInteger(50, serialRandom);
+        } while (serial.signum() == 0 || serial.compareTo(SERIAL_END) >= 0);
+
+        return serial;
+    }
+
+    private X509Certificate signCertificateRequestWithCA(PKCS10CertificationRequest request, BigInteger serial, LocalDateTime expiresAt, PrivateKey caPrivateKey, X509Certificate caPublicKey) throws Exception {
+        Date notAfter = Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant());
 
         var certGen = new X509v1CertificateBuilder(
                 new X500Name(PrincipalUtil.getIssuerX509Principal(caPublicKey).getName()),
@@ -227,17 +305,41 @@ public class X509Manager {
      * Generates a new RSA keypair for the user to be downloaded.
      */
     public static KeyPair generateRSAKeyPair() throws Exception {
+        return generateRSAKeyPair(2048);
+    }
+
+    public static KeyPair generateRSAKeyPair(int keySize) throws Exception {
         KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA", "BC");
-        kpGen.initialize(2048, new SecureRandom());
+        kpGen.initialize(keySize, new SecureRandom());
         return kpGen.generateKeyPair();
     }
 
+    /**
+     * The CA key pair, read and decrypted once.
+     */
+    private KeyPair getCaKeyPair() throws Exception {
+        KeyPair keyPair = caKeyPair;
+
+        if (keyPair == null) {
+            synchronized (this) {
+                if (caKeyPair == null) caKeyPair = loadKeys(configuration.getCaPrivateKey());
+                keyPair = caKeyPair;
+            }
+        }
+
+        return keyPair;
+    }
+
     /**
      * Loads the CA private key as keypair from file.
      */
     private KeyPair loadKeys(File privateKey) throws Exception {
-        PEMParser          pemParser = new PEMParser(new FileReader(privateKey));
-        Object             object    = pemParser.readObject();
+        Object object;
+
+        try (PEMParser pemParser = new PEMParser(new FileReader(privateKey))) {
+            object = pemParser.readObject();
+        }
+
         JcaPEMKeyConverter converter = new JcaPEMKeyConverter().setProvider("BC");
 
         KeyPair kp;
@@ -0,0 +1,241 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisSubscription;
+import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Client certificates which passed the full validation (CA signature, validity, known and not revoked), keyed by a
+ * fingerprint of what the client sent. A repeated request of the same client skips parsing, signature verification
+ * and the database.
+ * <p>
+ * Revoked serials are kept in memory. A revocation through this node takes effect immediately, with Redis enabled the
+ * other nodes are told about it over pub/sub. A lost message, or a revocation without Redis, is picked up by the next
+ * reload of the set. A hit never outlives the certificate or the CA, and entries expire after the time to live, so a
+ * full validation still happens regularly.
+ */
+@Slf4j
+@Component
+public class X509ValidationCache implements MeterBinder, InitializingBean, DisposableBean {
+
+    static final String CHANNEL = "authy.x509.revoked";
+
+    public static final class VerifiedCertificate {
+        private final BigInteger serial;
+        private final Integer    identityId;
+        private final String     username;
+        private final Instant    notAfter;
+
+        public VerifiedCertificate(BigInteger serial, Integer identityId, String username, Instant notAfter) {
+            this.serial     = serial;
+            this.identityId = identityId;
+            this.username   = username;
+            this.notAfter   = notAfter;
+        }
+
+        public BigInteger getSerial() {
+            return serial;
+        }
+
+        public Integer getIdentityId() {
+            return identityId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+    }
+
+    private final ClientAuthCertRepository           clientAuthCertRepository;
+    private final JedisConnectionFactory             jedisConnectionFactory;
+    private final JedisPubSub                        subscriber        = new RevocationSubscriber();
+    private final Cache<String, VerifiedCertificate> verified;
+    private final Clock                              clock;
+    private final AtomicLong                         revocationVersion = new AtomicLong();
+
+    private volatile Set<BigInteger>  revoked = ConcurrentHashMap.newKeySet();
+    private          JedisSubscription subscription;
+
+    @Autowired
+    public X509ValidationCache(ClientAuthCertRepository clientAuthCertRepository,
+                               ObjectProvider<JedisConnectionFactory> jedisConnectionFactory,
+                               @Value("${app.cache.x509-ttl:PT5M}") Duration timeToLive,
+                               @Value("${app.cache.x509-size:10000}") long maximumSize) {
+        this(clientAuthCertRepository, jedisConnectionFactory.getIfAvailable(), timeToLive, maximumSize, Clock.systemUTC());
+    }
+
+    X509ValidationCache(ClientAuthCertRepository clientAuthCertRepository, JedisConnectionFactory jedisConnectionFactory,
+                        Duration timeToLive, long maximumSize, Clock clock) {
+        this.clientAuthCertRepository = clientAuthCertRepository;
+        this.jedisConnectionFactory   = jedisConnectionFactory;
+        this.clock                    = clock;
+        this.verified                 = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * A previously verified certificate which is still valid and not revoked.
+     */
+    public Optional<VerifiedCertificate> find(String fingerprint) {
+        VerifiedCertificate certificate = verified.getIfPresent(fingerprint);
+
+        if (certificate == null) { return Optional.empty(); }
+
+        if (!clock.instant().isBefore(certificate.notAfter) || revoked.contains(certificate.serial)) {
+            verified.invalidate(fingerprint);
+            return Optional.empty();
+        }
+
+        return Optional.of(certificate);
+    }
+
+    /**
+     * Remembers a certificate after it passed the full validation, valid until the earlier end of the certificate
+     * and the CA.
+     */
+    public void put(String fingerprint, VerifiedCertificate certificate) {
+        verified.put(fingerprint, certificate);
+    }
+
+    public boolean isRevoked(BigInteger serial) {
+        return revoked.contains(serial);
+    }
+
+    /**
+     * Has to be called after a revocation was saved. Verified entries of the serial are dropped as well, so even if a
+     * concurrent {@link #reload()} misses the serial the next request is validated against the database again. The
+     * other nodes are told about the revocation, if Redis is enabled.
+     */
+    public void revoked(BigInteger serial) {
+        revoked(Set.of(serial));
+    }
+
+    public void revoked(Collection<BigInteger> serials) {
+        if (serials.isEmpty()) { return; }
+
+        apply(serials);
+
+        if (jedisConnectionFactory != null) {
+            String message = serials.stream().map(BigInteger::toString).collect(Collectors.joining(","));
+
+            try (Jedis jedis = jedisConnectionFactory.getConnection()) {
+                jedis.publish(CHANNEL, message);
+            } catch (RuntimeException e) {
+                log.warn("Could not publish revoked certificates, other nodes see them after the next reload: {}", e.getMessage());
+                log.debug("Redis failure of the x509 validation cache", e);
+            }
+        }
+    }
+
+    /**
+     * Changes whenever the known revocations changed, through this node or a {@link #reload()}.
+     */
+    public long getRevocationVersion() {
+        return revocationVersion.get();
+    }
+
+    /**
+     * Replaces the revoked serials with the ones in the database. Verified certificates are dropped first, a serial
+     * deleted by the cleanup must not become valid again through a stale entry.
+     */
+    @Scheduled(fixedDelayString = "${app.x509.revocation-poll-interval:30000}")
+    public void reload() {
+        Set<BigInteger> serials = ConcurrentHashMap.newKeySet();
+        serials.addAll(clientAuthCertRepository.findRevokedSerials());
+
+        Set<BigInteger> removed = new HashSet<>(revoked);
+        removed.removeAll(serials);
+
+        if (!removed.isEmpty()) verified.invalidateAll();
+        if (!serials.equals(revoked)) revocationVersion.incrementAndGet();
+
+        revoked = serials;
+
+        log.debug("Loaded {} revoked certificate serials", serials.size());
+    }
+
+    public void evict(String fingerprint) {
+        verified.invalidate(fingerprint);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (jedisConnectionFactory == null) { return; }
+
+        subscription = JedisSubscription.start(jedisConnectionFactory, "x509-revocation-subscriber", subscriber, CHANNEL);
+    }
+
+    @Override
+    public void destroy() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, verified, "authy.x509.verified");
+        registry.gauge("authy.x509.revoked", this, cache -> cache.revoked.size());
+    }
+
+    private void apply(Collection<BigInteger> serials) {
+        Set<BigInteger> lookup = new HashSet<>(serials);
+
+        boolean added = revoked.addAll(lookup);
+        verified.asMap().values().removeIf(certificate -> lookup.contains(certificate.serial));
+
+        if (added) revocationVersion.incrementAndGet();
+    }
+
+    private class RevocationSubscriber extends JedisPubSub {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            // revocations published while we were not subscribed
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.warn("Failed to reload the revoked certificates", e);
+            }
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+            try {
+                apply(Arrays.stream(message.split(",")).map(BigInteger::new).collect(Collectors.toList()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid revocation event '{}'", message);
+            }
+        }
+    }
+}
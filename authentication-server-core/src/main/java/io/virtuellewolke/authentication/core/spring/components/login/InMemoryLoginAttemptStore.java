@@ -0,0 +1,72 @@
+package io.virtuellewolke.authentication.core.spring.components.login;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Counts the failures of every source until it stayed quiet for a whole window. Once the limit is reached the source
+ * is blocked until one window after its last failure, the same lockout the original list based implementation had.
+ * The counters live in a bounded cache and expire one window after their last failure, so an attack from many
+ * addresses can neither grow the memory nor slow down the lookups.
+ */
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+    private final Clock                   clock;
+    private final int                     maxAttempts;
+    private final long                    windowMillis;
+    private final Cache<String, Failures> failures;
+
+    private static final class Failures {
+        private final int  count;
+        private final long lastFailedAt;
+
+        private Failures(int count, long lastFailedAt) {
+            this.count        = count;
+            this.lastFailedAt = lastFailedAt;
+        }
+
+        private boolean isBlocked(long now, int maxAttempts, long windowMillis) {
+            return count >= maxAttempts && now - lastFailedAt < windowMillis;
+        }
+    }
+
+    public InMemoryLoginAttemptStore(CasConfiguration casConfiguration) {
+        this(casConfiguration, Clock.systemUTC());
+    }
+
+    InMemoryLoginAttemptStore(CasConfiguration casConfiguration, Clock clock) {
+        this.clock        = clock;
+        this.maxAttempts  = Math.max(1, casConfiguration.getLoginMaxAttempts());
+        this.windowMillis = casConfiguration.getLoginAttemptWindow().toMillis();
+        this.failures     = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(windowMillis))
+                .maximumSize(casConfiguration.getLoginTrackedSources())
+                .build();
+    }
+
+    @Override
+    public boolean isBlocked(String source) {
+        Failures current = failures.getIfPresent(source);
+
+        return current != null && current.isBlocked(clock.millis(), maxAttempts, windowMillis);
+    }
+
+    @Override
+    public void recordFailure(String source) {
+        long now = clock.millis();
+
+        // every failure writes the entry again, so it expires one window after the last failure
+        failures.asMap().compute(source, (key, current) -> current != null && now - current.lastFailedAt < windowMillis
+                ? new Failures(current.count + 1, now)
+                : new Failures(1, now));
+    }
+
+    @Override
+    public void reset(String source) {
+        failures.invalidate(source);
+    }
+}
@@ -0,0 +1,16 @@
+package io.virtuellewolke.authentication.core.spring.components.login;
+
+/**
+ * Failed login attempts per source (client ip), the limits come from
+ * {@link io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration}.
+ */
+public interface LoginAttemptStore {
+    /**
+     * @return true if the source failed too often within the attempt window.
+     */
+    boolean isBlocked(String source);
+
+    void recordFailure(String source);
+
+    void reset(String source);
+}
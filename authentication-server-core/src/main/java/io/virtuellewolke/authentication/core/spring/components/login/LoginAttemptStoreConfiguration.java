@@ -0,0 +1,28 @@
+package io.virtuellewolke.authentication.core.spring.components.login;
+
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class LoginAttemptStoreConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.redis", name = "enabled", havingValue = "true")
+    public LoginAttemptStore redisLoginAttemptStore(JedisConnectionFactory jedisConnectionFactory, CasConfiguration casConfiguration) {
+        log.info("Login-Attempt-Store enabled: Redis");
+        return new RedisLoginAttemptStore(jedisConnectionFactory, casConfiguration);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(LoginAttemptStore.class)
+    public LoginAttemptStore inMemoryLoginAttemptStore(CasConfiguration casConfiguration) {
+        log.info("Login-Attempt-Store enabled: In-Memory");
+        return new InMemoryLoginAttemptStore(casConfiguration);
+    }
+}
@@ -0,0 +1,160 @@
+package io.virtuellewolke.authentication.core.spring.components.login;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisSubscription;
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Counts failed attempts per source in Redis, so all nodes share one limit.
+ * <p>
+ * A failure increments the counter of its source and pushes its expiry to one window from now, in one script. This is
+ * the same lockout as {@link InMemoryLoginAttemptStore}: failures add up until the source stayed quiet for a whole
+ * window, and a source at the limit stays blocked until one window after its last failure. There is no fixed window
+ * boundary an attacker could straddle, every failure extends the lifetime of the count instead of starting a new one.
+ * <p>
+ * Only failures talk to Redis: when a counter reaches the limit the script publishes the block, every node remembers
+ * it locally until it expires and checking a source never leaves the node. A successful login only deletes the
+ * counter if this node saw failures of that source, counters of other nodes expire on their own.
+ * <p>
+ * While Redis is not reachable the failures are counted by a local {@link InMemoryLoginAttemptStore}.
+ */
+@Slf4j
+public class RedisLoginAttemptStore implements LoginAttemptStore, InitializingBean, DisposableBean {
+
+    private static final String REDIS_KEY = "login.attempts.%s";
+    private static final String CHANNEL   = "login.attempts.blocked";
+
+    /**
+     * INCR and PEXPIRE in one atomic step, publishes "ttl source" once the limit is reached.
+     * Returns the counter and its remaining lifetime in milliseconds.
+     */
+    private static final String RECORD_SCRIPT = "local count = redis.call('INCR', KEYS[1]) "
+            + "redis.call('PEXPIRE', KEYS[1], ARGV[1]) "
+            + "local ttl = redis.call('PTTL', KEYS[1]) "
+            + "if count >= tonumber(ARGV[2]) then redis.call('PUBLISH', ARGV[3], ttl .. ' ' .. ARGV[4]) end "
+            + "return {count, ttl}";
+
+    private final JedisConnectionFactory    jedisConnectionFactory;
+    private final Clock                     clock;
+    private final int                       maxAttempts;
+    private final long                      windowMillis;
+    private final InMemoryLoginAttemptStore fallback;
+    private final Cache<String, Long>       blockedUntil;
+    private final Cache<String, Boolean>    failedSources;
+    private final JedisPubSub               subscriber = new BlockSubscriber();
+
+    private JedisSubscription subscription;
+
+    public RedisLoginAttemptStore(JedisConnectionFactory jedisConnectionFactory, CasConfiguration casConfiguration) {
+        this(jedisConnectionFactory, casConfiguration, Clock.systemUTC());
+    }
+
+    RedisLoginAttemptStore(JedisConnectionFactory jedisConnectionFactory, CasConfiguration casConfiguration, Clock clock) {
+        this.jedisConnectionFactory = jedisConnectionFactory;
+        this.clock                  = clock;
+        this.maxAttempts            = Math.max(1, casConfiguration.getLoginMaxAttempts());
+        this.windowMillis           = casConfiguration.getLoginAttemptWindow().toMillis();
+        this.fallback               = new InMemoryLoginAttemptStore(casConfiguration, clock);
+        this.blockedUntil           = createCache(casConfiguration);
+        this.failedSources          = createCache(casConfiguration);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        subscription = JedisSubscription.start(jedisConnectionFactory, "login-attempts-subscriber", subscriber, CHANNEL);
+    }
+
+    @Override
+    public void destroy() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    @Override
+    public boolean isBlocked(String source) {
+        Long until = blockedUntil.getIfPresent(source);
+
+        return (until != null && clock.millis() < until) || fallback.isBlocked(source);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void recordFailure(String source) {
+        failedSources.put(source, Boolean.TRUE);
+
+        try {
+            List<Long> result = (List<Long>) withRedis(jedis -> jedis.eval(RECORD_SCRIPT, List.of(formatRedisKey(source)),
+                    List.of(Long.toString(windowMillis), Integer.toString(maxAttempts), CHANNEL, source)));
+
+            if (result.get(0) >= maxAttempts) {
+                block(source, result.get(1));
+            }
+        } catch (Exception e) {
+            log.warn("There is a problem with Redis, using Fallback.");
+            fallback.recordFailure(source);
+        }
+    }
+
+    @Override
+    public void reset(String source) {
+        blockedUntil.invalidate(source);
+        fallback.reset(source);
+
+        if (failedSources.getIfPresent(source) == null) { return; }
+
+        failedSources.invalidate(source);
+
+        try {
+            withRedis(jedis -> jedis.del(formatRedisKey(source)));
+        } catch (Exception e) {
+            log.warn("There is a problem with Redis, the failed attempts of {} expire on their own.", source);
+        }
+    }
+
+    private void block(String source, long ttl) {
+        blockedUntil.put(source, clock.millis() + Math.max(0, Math.min(ttl, windowMillis)));
+    }
+
+    private String formatRedisKey(String source) {
+        return String.format(REDIS_KEY, source);
+    }
+
+    private <T> T withRedis(Function<Jedis, T> command) {
+        try (Jedis jedis = jedisConnectionFactory.getConnection()) {
+            return command.apply(jedis);
+        }
+    }
+
+    private static <V> Cache<String, V> createCache(CasConfiguration casConfiguration) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(casConfiguration.getLoginAttemptWindow())
+                .maximumSize(casConfiguration.getLoginTrackedSources())
+                .build();
+    }
+
+    private class BlockSubscriber extends JedisPubSub {
+        @Override
+        public void onMessage(String channel, String message) {
+            String[] parts = message.split(" ", 2);
+
+            try {
+                block(parts[1], Long.parseLong(parts[0]));
+            } catch (RuntimeException e) {
+                log.warn("Ignoring invalid login block event '{}'", message);
+            }
+        }
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Getter
 @Setter
 @Configuration
@@ -15,6 +17,18 @@ public class CasConfiguration {
     private String   cookiePath        = "/";
     private String[] loginWhitelistIps = new String[]{"::1", "127.0.0.1/32", "172.16.0.1/16"};
     private boolean  cookieSecure      = true;
+    private boolean  statelessCookies  = false;
+
+    private int      loginMaxAttempts    = 3;
+    private Duration loginAttemptWindow  = Duration.parse("PT1H");
+    private long     loginTrackedSources = 100000;
+
+    /**
+     * Threads finishing logins after the password check or delegation (JWT, ticket, attempt reset), and the number of
+     * logins which may wait for them.
+     */
+    private int loginThreads   = 8;
+    private int loginQueueSize = 256;
 
     private String totpIssuerName = "Authy Authentication Service";
 }
@@ -0,0 +1,23 @@
+package io.virtuellewolke.authentication.core.spring.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Key ring of the cookie JWTs. New tokens are signed with {@code app.secrets.jwt} under {@link #keyId}, tokens of
+ * retired keys stay valid as long as their secret is listed in {@link #retiredKeys}.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.jwt")
+public class JwtConfiguration {
+    private String keyId = "default";
+
+    private Map<String, String> retiredKeys = new HashMap<>();
+}
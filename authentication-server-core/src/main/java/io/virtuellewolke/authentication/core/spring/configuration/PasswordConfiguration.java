@@ -0,0 +1,50 @@
+package io.virtuellewolke.authentication.core.spring.configuration;
+
+import io.virtuellewolke.authentication.core.util.password.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Password hashing. New and rehashed passwords use {@link #algorithm} ({@code argon2id}, {@code bcrypt} or
+ * {@code pbkdf2}), the parameters of the other algorithms only matter for hashes already stored with them.
+ * Verification runs on {@link #threads} dedicated threads with a queue of {@link #queueSize} logins, a login waiting
+ * longer than {@link #timeout} fails.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.password")
+public class PasswordConfiguration {
+    private String algorithm = "argon2id";
+
+    private int argon2Memory      = 19456;
+    private int argon2Iterations  = 2;
+    private int argon2Parallelism = 1;
+    private int bcryptStrength    = 12;
+    private int pbkdf2Iterations  = 310000;
+
+    private int      threads   = Runtime.getRuntime().availableProcessors();
+    private int      queueSize = 64;
+    private Duration timeout   = Duration.parse("PT5S");
+
+    public PasswordHashers createHashers() {
+        Argon2PasswordHasher argon2 = new Argon2PasswordHasher(argon2Memory, argon2Iterations, argon2Parallelism);
+        BCryptPasswordHasher bcrypt = new BCryptPasswordHasher(bcryptStrength);
+        Pbkdf2PasswordHasher pbkdf2 = new Pbkdf2PasswordHasher(pbkdf2Iterations);
+
+        List<PasswordHasher> hashers = List.of(argon2, bcrypt, pbkdf2, new Md5CryptPasswordHasher());
+
+        PasswordHasher defaultHasher = hashers.stream()
+                .filter(h -> h.getAlgorithm().equalsIgnoreCase(algorithm))
+                .filter(h -> !(h instanceof Md5CryptPasswordHasher))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported password algorithm: " + algorithm));
+
+        return new PasswordHashers(defaultHasher, hashers);
+    }
+}
@@ -0,0 +1,33 @@
+package io.virtuellewolke.authentication.core.spring.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Delegation of logins to the remote Authy of an identity. Every remote gets its own circuit breaker and at most
+ * {@link #maxConcurrentCalls} calls at once. With {@link #async} the request thread is released while waiting for
+ * the remote, the calls then run on {@link #threads} shared threads.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.remote-authy")
+public class RemoteAuthyConfiguration {
+    private Duration timeout        = Duration.parse("PT10S");
+    private Duration connectTimeout = Duration.parse("PT2S");
+
+    private int      maxIdleConnections = 5;
+    private Duration keepAlive          = Duration.parse("PT5M");
+
+    private int      maxConcurrentCalls = 20;
+    private int      failureThreshold   = 5;
+    private Duration openDuration       = Duration.parse("PT30S");
+
+    private boolean async     = false;
+    private int     threads   = 16;
+    private int     queueSize = 100;
+}
@@ -0,0 +1,39 @@
+package io.virtuellewolke.authentication.core.spring.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * MySQL Connector/J reads a whole result set into memory and ignores the fetch size of the streamed listings, unless
+ * {@code useCursorFetch} is enabled. Then it reads in chunks of the fetch size through a server side cursor, like
+ * MariaDB and PostgreSQL (inside a transaction) do anyway. A value already set in the jdbc url is kept.
+ * <p>
+ * Connector/J can not enable cursors per query, and {@code useCursorFetch=true} implies
+ * {@code useServerPrepStmts=true} for every statement of the pool, not only the streamed ones. Each distinct statement
+ * is then prepared on the server, which costs an extra round trip unless {@code cachePrepStmts} is enabled and counts
+ * against {@code max_prepared_stmt_count}. Setting {@code useCursorFetch=false} in the jdbc url turns this off, the
+ * streamed listings are then buffered in memory by the driver.
+ */
+@Slf4j
+@Component
+public class StreamingDataSourceConfiguration implements BeanPostProcessor {
+
+    private static final String USE_CURSOR_FETCH = "useCursorFetch";
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource) {
+            HikariDataSource dataSource = (HikariDataSource) bean;
+            String           url        = dataSource.getJdbcUrl();
+
+            if (url != null && url.startsWith("jdbc:mysql:") && !url.contains(USE_CURSOR_FETCH)) {
+                dataSource.addDataSourceProperty(USE_CURSOR_FETCH, "true");
+                log.info("Enabled cursor fetching for streamed MySQL queries, all statements use server side prepared statements");
+            }
+        }
+
+        return bean;
+    }
+}
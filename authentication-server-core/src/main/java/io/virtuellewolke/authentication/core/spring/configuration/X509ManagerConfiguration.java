@@ -6,6 +6,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.File;
+import java.time.Duration;
 
 @Getter
 @Setter
@@ -25,6 +26,23 @@ public class X509ManagerConfiguration {
     private String organisation = "Authentication Server";
     private String countryCode  = "DE";
 
+    private int keySize                = 2048;
+    private int keyPoolSize            = 16;
+    private int keyPoolRefillThreshold = 4;
+
+    private int      issuanceThreads        = 2;
+    private int      issuanceQueueSize      = 100;
+    private int      issuanceBatchThreads   = 2;
+    private int      issuanceBatchQueueSize = 1000;
+    private Duration issuanceJobTtl         = Duration.ofMinutes(10);
+
+    private Duration crlValidity    = Duration.ofHours(1);
+    private Duration crlRefresh     = Duration.ofMinutes(1);
+    private Duration feedMaxAge     = Duration.ofSeconds(30);
+    private int      feedPageSize   = 1000;
+    private Duration feedCommitSkew = Duration.ofSeconds(10);
+    private int      batchLimit     = 1000;
+
     public Boolean getEnabled() {
         if (caPublicKey.exists() && caPrivateKey.exists()) { return enabled; }
         return false;
@@ -0,0 +1,75 @@
+package io.virtuellewolke.authentication.core.spring.helper;
+
+import io.virtuellewolke.authentication.core.spring.components.AvatarStore;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class AvatarResponseHelper {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate().mustRevalidate();
+
+    /**
+     * Answers a conditional request from the ETag alone, only a changed or uncached avatar is read. The body is a
+     * {@link Resource}, so Spring MVC serves {@code Range} requests from it.
+     */
+    public static ResponseEntity<Resource> toResponse(AvatarStore avatarStore, Integer identityId, String size, HttpServletRequest request) {
+        AvatarStore.Variant variant = "full".equalsIgnoreCase(size) ? AvatarStore.Variant.FULL : AvatarStore.Variant.THUMBNAIL;
+
+        Optional<String> hash = avatarStore.findEtag(identityId);
+
+        if (hash.isEmpty()) { return ResponseEntity.notFound().build(); }
+
+        String etag = toEtag(hash.get(), variant);
+
+        if (matches(request.getHeader("If-None-Match"), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+        }
+
+        return avatarStore.find(identityId, variant, hash.get())
+                .map(image -> ResponseEntity.ok()
+                        .eTag(toEtag(image.getEtag(), variant))
+                        .cacheControl(CACHE_CONTROL)
+                        .contentType(MediaType.parseMediaType(image.getContentType()))
+                        .<Resource>body(new ByteArrayResource(image.getData())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stores an uploaded avatar, an upload the store rejects is answered with 400 and the reason.
+     */
+    public static ResponseEntity<Void> store(AvatarStore avatarStore, Integer identityId, byte[] avatar) {
+        try {
+            avatarStore.store(identityId, avatar);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        return ResponseEntity.noContent().build();
+    }
+
+    private static String toEtag(String hash, AvatarStore.Variant variant) {
+        return "\"" + hash + (variant == AvatarStore.Variant.THUMBNAIL ? "-thumbnail" : "") + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) { return false; }
+
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+}
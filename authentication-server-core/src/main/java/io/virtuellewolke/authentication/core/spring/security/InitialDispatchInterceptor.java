@@ -0,0 +1,43 @@
+package io.virtuellewolke.authentication.core.spring.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Runs {@code preHandle} of the wrapped interceptor only on the initial dispatch. An async handler (e.g. a delegated
+ * login) is dispatched a second time to write its result, the request was already authenticated and authorized then
+ * and the attributes set by the first run are still present.
+ */
+@RequiredArgsConstructor
+class InitialDispatchInterceptor implements AsyncHandlerInterceptor {
+
+    private final HandlerInterceptor delegate;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        return request.getDispatcherType() == DispatcherType.ASYNC || delegate.preHandle(request, response, handler);
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
+        delegate.postHandle(request, response, handler, modelAndView);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        delegate.afterCompletion(request, response, handler, ex);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (delegate instanceof AsyncHandlerInterceptor) {
+            ((AsyncHandlerInterceptor) delegate).afterConcurrentHandlingStarted(request, response, handler);
+        }
+    }
+}
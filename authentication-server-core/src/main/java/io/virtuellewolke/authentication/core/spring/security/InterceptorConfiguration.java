@@ -19,8 +19,8 @@ public class InterceptorConfiguration implements WebMvcConfigurer {
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        authyInterceptors.forEach(registry::addInterceptor);
+        authyInterceptors.forEach(i -> registry.addInterceptor(new InitialDispatchInterceptor(i)));
         authyInterceptors.forEach(i -> log.info("Added AuthyInterceptor {}", i.getClass().getSimpleName()));
-        registry.addInterceptor(new AuthorizationRequiredInterceptor());
+        registry.addInterceptor(new InitialDispatchInterceptor(new AuthorizationRequiredInterceptor()));
     }
 }
\ No newline at end of file
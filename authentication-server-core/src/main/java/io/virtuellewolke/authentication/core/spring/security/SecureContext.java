@@ -2,15 +2,18 @@ package io.virtuellewolke.authentication.core.spring.security;
 
 import io.virtuellewolke.authentication.core.database.entity.Identity;
 import io.virtuellewolke.authentication.core.database.entity.Service;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.util.function.Supplier;
+
 @Getter
 @Setter
 @Builder
-@ToString
+@ToString(exclude = "identityLoader")
 public class SecureContext {
     public enum Source {
         API_TOKEN,
@@ -23,4 +26,24 @@ public class SecureContext {
     private Source   source;
     private Identity identity;
     private Service  service;
+
+    /**
+     * Only set when {@link #identity} is a snapshot restored from the cookie, loads the complete entity.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Supplier<Identity> identityLoader;
+
+    /**
+     * The complete identity from the database. Use it instead of {@link #getIdentity()} whenever the identity is
+     * saved, handed to a ticket or needs more than what authorization looks at.
+     */
+    public Identity getPersistentIdentity() {
+        if (identityLoader != null) {
+            identity       = identityLoader.get();
+            identityLoader = null;
+        }
+
+        return identity;
+    }
 }
@@ -1,7 +1,8 @@
 package io.virtuellewolke.authentication.core.spring.security.mods;
 
 import io.virtuellewolke.authentication.core.database.entity.Identity;
-import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
+import io.virtuellewolke.authentication.core.spring.components.LastSeenTracker;
 import io.virtuellewolke.authentication.core.spring.components.LoginSecurity;
 import io.virtuellewolke.authentication.core.spring.components.ServiceValidation;
 import io.virtuellewolke.authentication.core.spring.helper.SecureContextRequestHelper;
@@ -19,17 +20,20 @@ import java.util.Optional;
 @Component
 public class ApiTokenInterceptor extends ServiceAwareInterceptor implements AuthyInterceptor {
 
-    private final IdentityRepository identityRepository;
-    private final LoginSecurity      loginSecurity;
+    private final IdentityCache   identityCache;
+    private final LoginSecurity   loginSecurity;
+    private final LastSeenTracker lastSeenTracker;
 
     private static final String AUTHORIZATION_HEADER = "Authorization";
     private static final String API_TOKEN_HEADER     = "X-Api-Token";
 
     @Autowired
-    public ApiTokenInterceptor(IdentityRepository identityRepository, ServiceValidation serviceValidation, LoginSecurity loginSecurity) {
+    public ApiTokenInterceptor(IdentityCache identityCache, ServiceValidation serviceValidation, LoginSecurity loginSecurity,
+                               LastSeenTracker lastSeenTracker) {
         super(serviceValidation);
-        this.identityRepository = identityRepository;
-        this.loginSecurity      = loginSecurity;
+        this.identityCache   = identityCache;
+        this.loginSecurity   = loginSecurity;
+        this.lastSeenTracker = lastSeenTracker;
     }
 
     @Override
@@ -38,7 +42,7 @@ public class ApiTokenInterceptor extends ServiceAwareInterceptor implements Auth
             String token = getApiTokenFromHeaders(request);
 
             if (token != null) {
-                Optional<Identity> identity = identityRepository.findByApiToken(token);
+                Optional<Identity> identity = identityCache.findByApiToken(token);
 
                 log.trace("Access Requested by Api Token '{}' resulted in User {}", token, identity);
 
@@ -52,6 +56,7 @@ public class ApiTokenInterceptor extends ServiceAwareInterceptor implements Auth
                     SecureContextRequestHelper.setSecureContext(context, request);
 
                     loginSecurity.resetAttempts(request);
+                    lastSeenTracker.record(LastSeenTracker.Kind.API_TOKEN, identity.get().getId());
                 } else {
                     loginSecurity.recordFailedAttempt(request);
                 }
@@ -3,10 +3,12 @@ package io.virtuellewolke.authentication.core.spring.security.mods;
 import io.jsonwebtoken.Claims;
 import io.virtuellewolke.authentication.core.api.Constants;
 import io.virtuellewolke.authentication.core.database.entity.Identity;
-import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
 import io.virtuellewolke.authentication.core.exceptions.SecurityTokenInvalidException;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
 import io.virtuellewolke.authentication.core.spring.components.JwtProcessor;
+import io.virtuellewolke.authentication.core.spring.components.LastSeenTracker;
 import io.virtuellewolke.authentication.core.spring.components.ServiceValidation;
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
 import io.virtuellewolke.authentication.core.spring.helper.SecureContextRequestHelper;
 import io.virtuellewolke.authentication.core.spring.security.SecureContext;
 import lombok.extern.slf4j.Slf4j;
@@ -23,14 +25,19 @@ import java.util.stream.Stream;
 @Component
 public class CookieAuthenticationInterceptor extends ServiceAwareInterceptor implements AuthyInterceptor {
 
-    private final IdentityRepository identityRepository;
-    private final JwtProcessor       jwtProcessor;
+    private final IdentityCache    identityCache;
+    private final JwtProcessor     jwtProcessor;
+    private final CasConfiguration casConfiguration;
+    private final LastSeenTracker  lastSeenTracker;
 
 
-    public CookieAuthenticationInterceptor(IdentityRepository identityRepository, ServiceValidation serviceValidation, JwtProcessor jwtProcessor) {
+    public CookieAuthenticationInterceptor(IdentityCache identityCache, ServiceValidation serviceValidation, JwtProcessor jwtProcessor,
+                                           CasConfiguration casConfiguration, LastSeenTracker lastSeenTracker) {
         super(serviceValidation);
-        this.identityRepository = identityRepository;
-        this.jwtProcessor       = jwtProcessor;
+        this.identityCache    = identityCache;
+        this.jwtProcessor     = jwtProcessor;
+        this.casConfiguration = casConfiguration;
+        this.lastSeenTracker  = lastSeenTracker;
     }
 
     @Override
@@ -52,7 +59,21 @@ public class CookieAuthenticationInterceptor extends ServiceAwareInterceptor imp
                     if (uidStr != null) {
                         Integer uid = Integer.parseInt(uidStr.toString());
 
-                        Optional<Identity> identity = identityRepository.findById(uid);
+                        Optional<Identity> snapshot = getCurrentSnapshot(claims, uid);
+
+                        if (snapshot.isPresent()) {
+                            SecureContext ctx = SecureContext.builder()
+                                    .identity(snapshot.get())
+                                    .identityLoader(() -> identityCache.findById(uid).orElse(null))
+                                    .source(SecureContext.Source.COOKIE)
+                                    .build();
+
+                            SecureContextRequestHelper.setSecureContext(ctx, request);
+                            lastSeenTracker.record(LastSeenTracker.Kind.COOKIE, uid);
+                            return;
+                        }
+
+                        Optional<Identity> identity = identityCache.findById(uid);
 
                         if (identity.isPresent()) {
                             SecureContext ctx = SecureContext.builder()
@@ -61,6 +82,7 @@ public class CookieAuthenticationInterceptor extends ServiceAwareInterceptor imp
                                     .build();
 
                             SecureContextRequestHelper.setSecureContext(ctx, request);
+                            lastSeenTracker.record(LastSeenTracker.Kind.COOKIE, uid);
                         }
                     }
                 } catch (IllegalArgumentException | NullPointerException | SecurityTokenInvalidException ignored) {
@@ -70,4 +92,15 @@ public class CookieAuthenticationInterceptor extends ServiceAwareInterceptor imp
 
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * The identity snapshot of the cookie, as long as stateless cookies are enabled and the identity was not changed
+     * since the cookie was issued.
+     */
+    private Optional<Identity> getCurrentSnapshot(Claims claims, Integer uid) {
+        if (!casConfiguration.isStatelessCookies()) { return Optional.empty(); }
+
+        return jwtProcessor.readIdentitySnapshot(claims)
+                .filter(snapshot -> identityCache.findVersionById(uid).map(version -> version == snapshot.getVersion()).orElse(false));
+    }
+}
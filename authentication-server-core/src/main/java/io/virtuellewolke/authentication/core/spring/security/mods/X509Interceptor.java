@@ -2,12 +2,16 @@ package io.virtuellewolke.authentication.core.spring.security.mods;
 
 import io.jsonwebtoken.lang.Assert;
 import io.virtuellewolke.authentication.core.database.entity.ClientAuthCert;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.spring.components.IdentityCache;
 import io.virtuellewolke.authentication.core.spring.components.ServiceValidation;
 import io.virtuellewolke.authentication.core.spring.components.X509Manager;
+import io.virtuellewolke.authentication.core.spring.components.X509ValidationCache;
 import io.virtuellewolke.authentication.core.spring.configuration.X509ManagerConfiguration;
 import io.virtuellewolke.authentication.core.spring.helper.SecureContextRequestHelper;
 import io.virtuellewolke.authentication.core.spring.security.SecureContext;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.bouncycastle.asn1.x500.RDN;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.style.BCStyle;
@@ -25,62 +29,119 @@ import java.math.BigInteger;
 import java.nio.charset.Charset;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
 
 @Slf4j
 @Component
 public class X509Interceptor extends ServiceAwareInterceptor implements AuthyInterceptor {
 
+    private static final Pattern PEM_ARMOR = Pattern.compile("-----(.*)-----");
+
     private final X509ManagerConfiguration config;
     private final X509Manager              x509Manager;
+    private final X509ValidationCache      validationCache;
+    private final IdentityCache            identityCache;
 
     public X509Interceptor(ServiceValidation serviceValidation,
                            X509Manager manager,
-                           X509ManagerConfiguration config) {
+                           X509ManagerConfiguration config,
+                           X509ValidationCache validationCache,
+                           IdentityCache identityCache) {
         super(serviceValidation);
-        this.x509Manager = manager;
-        this.config      = config;
+        this.x509Manager     = manager;
+        this.config          = config;
+        this.validationCache = validationCache;
+        this.identityCache   = identityCache;
     }
 
     @Override
     public boolean process(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         String headerContent = request.getHeader(config.getHttpHeaderName());
 
-        if (headerContent != null) {
-            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        if (headerContent != null && !SecureContextRequestHelper.hasSecureContext(request)) {
+            String fingerprint = "header:" + DigestUtils.sha256Hex(headerContent);
 
-            String decoded = UriUtils.decode(headerContent, Charset.defaultCharset());
-            decoded = decoded.replaceAll("-----(.*)-----", "");
-            decoded = decoded.replaceAll("\n", "");
-            decoded = decoded.replaceAll("%3D", "=");
-            decoded = decoded.replaceAll("%2F", "/");
+            if (!authenticateCached(request, fingerprint)) {
+                for (X509Certificate certificate : parseHeader(request, headerContent)) {
+                    handleAuthenticationWithKey(request, certificate, fingerprint);
+                }
+            }
+        }
 
-            String[] certificateList = decoded.split(",");
+        X509Certificate[] certs = (X509Certificate[]) request.getAttribute("javax.servlet.request.X509Certificate");
+        if (null != certs && certs.length > 0 && !SecureContextRequestHelper.hasSecureContext(request)) {
+            X509Certificate cert        = certs[0];
+            String          fingerprint = "tls:" + DigestUtils.sha256Hex(cert.getEncoded());
 
-            if (certificateList.length > 1) {
-                log.warn("The Client from {} supplied more then 1 client certificate ({})!", request.getRemoteAddr(), certificateList.length);
+            if (!authenticateCached(request, fingerprint)) {
+                handleAuthenticationWithKey(request, cert, fingerprint);
             }
+        }
 
-            log.trace("X509Certificate received in {} was decoded to:\n{}", config.getHttpHeaderName(), decoded);
+        return true;
+    }
 
-            for (String cert : certificateList) {
-                try (InputStream bis = new ByteArrayInputStream(Base64.decode(cert))) {
-                    X509Certificate certificate = (X509Certificate) factory.generateCertificate(bis);
-                    handleAuthenticationWithKey(request, certificate);
-                }
+    private List<X509Certificate> parseHeader(HttpServletRequest request, String headerContent) throws Exception {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+
+        String decoded = UriUtils.decode(headerContent, Charset.defaultCharset());
+        decoded = PEM_ARMOR.matcher(decoded).replaceAll("");
+        decoded = decoded.replace("\n", "").replace("%3D", "=").replace("%2F", "/");
+
+        String[] certificateList = decoded.split(",");
+
+        if (certificateList.length > 1) {
+            log.warn("The Client from {} supplied more then 1 client certificate ({})!", request.getRemoteAddr(), certificateList.length);
+        }
+
+        log.trace("X509Certificate received in {} was decoded to:\n{}", config.getHttpHeaderName(), decoded);
+
+        List<X509Certificate> certificates = new ArrayList<>(certificateList.length);
+
+        for (String cert : certificateList) {
+            try (InputStream bis = new ByteArrayInputStream(Base64.decode(cert))) {
+                certificates.add((X509Certificate) factory.generateCertificate(bis));
             }
         }
 
-        X509Certificate[] certs = (X509Certificate[]) request.getAttribute("javax.servlet.request.X509Certificate");
-        if (null != certs && certs.length > 0) {
-            X509Certificate cert = certs[0];
-            handleAuthenticationWithKey(request, cert);
+        return certificates;
+    }
+
+    /**
+     * Authenticates with a certificate verified before, without parsing it or touching the database.
+     */
+    private boolean authenticateCached(HttpServletRequest request, String fingerprint) {
+        X509ValidationCache.VerifiedCertificate verified = validationCache.find(fingerprint).orElse(null);
+
+        if (verified == null) { return false; }
+
+        Identity identity = identityCache.findById(verified.getIdentityId())
+                .filter(i -> verified.getUsername().equals(i.getUsername()))
+                .orElse(null);
+
+        if (identity == null) {
+            validationCache.evict(fingerprint);
+            return false;
         }
 
+        x509Manager.markAsUsed(verified.getSerial());
+
+        log.trace("SecureContext was generated by cached X509 certificate {} for principal {}", verified.getSerial(), identity.getUsername());
+
+        setSecureContext(request, identity);
+
         return true;
     }
 
-    private void handleAuthenticationWithKey(HttpServletRequest request, X509Certificate certificate) {
-        if (!SecureContextRequestHelper.hasSecureContext(request) && validate(certificate)) {
+    private void handleAuthenticationWithKey(HttpServletRequest request, X509Certificate certificate, String fingerprint) {
+        if (SecureContextRequestHelper.hasSecureContext(request)) { return; }
+
+        ClientAuthCert cert = validate(certificate);
+
+        if (cert != null) {
             X500Principal principal = certificate.getSubjectX500Principal();
             X500Name      x500Name  = new X500Name(principal.getName());
             RDN           cn        = x500Name.getRDNs(BCStyle.CN)[0];
@@ -90,22 +151,33 @@ public class X509Interceptor extends ServiceAwareInterceptor implements AuthyInt
 
             log.info("Username and Serial found in certificate: {}/{}", username, serial);
 
-            ClientAuthCert cert = x509Manager.getCertificateFor(serial);
-
             if (cert.getIdentity().getUsername().equals(username)) {
-                SecureContext secureContext = SecureContext.builder()
-                        .identity(cert.getIdentity())
-                        .source(SecureContext.Source.X509)
-                        .build();
+                Date notAfter   = certificate.getNotAfter();
+                Date caNotAfter = x509Manager.getCaCertificate().getNotAfter();
+
+                validationCache.put(fingerprint, new X509ValidationCache.VerifiedCertificate(serial, cert.getIdentity().getId(), username,
+                        (notAfter.before(caNotAfter) ? notAfter : caNotAfter).toInstant()));
 
                 log.trace("SecureContext was generated by supplied X509 certificate for principal {}", username);
 
-                SecureContextRequestHelper.setSecureContext(secureContext, request);
+                setSecureContext(request, cert.getIdentity());
             }
         }
     }
 
-    private boolean validate(X509Certificate certificate) {
+    private static void setSecureContext(HttpServletRequest request, Identity identity) {
+        SecureContext secureContext = SecureContext.builder()
+                .identity(identity)
+                .source(SecureContext.Source.X509)
+                .build();
+
+        SecureContextRequestHelper.setSecureContext(secureContext, request);
+    }
+
+    /**
+     * Full validation of a certificate, returns the matching database entry or null if it is not valid.
+     */
+    private ClientAuthCert validate(X509Certificate certificate) {
         X509Certificate ca = x509Manager.getCaCertificate();
 
         if (!certificate.equals(ca)) {
@@ -113,6 +185,10 @@ public class X509Interceptor extends ServiceAwareInterceptor implements AuthyInt
                 Assert.notNull(ca, "CA cannot be null");
                 Assert.notNull(certificate, "Certificate cannot be null");
 
+                if (validationCache.isRevoked(certificate.getSerialNumber())) {
+                    throw new RuntimeException("Certificate " + certificate.getSerialNumber().toString() + " revoked.");
+                }
+
                 certificate.verify(ca.getPublicKey());
                 certificate.checkValidity();
                 ca.checkValidity();
@@ -123,16 +199,16 @@ public class X509Interceptor extends ServiceAwareInterceptor implements AuthyInt
                     log.info("X509 Certificate {} is revoked.", certificate.getSerialNumber());
                     throw new RuntimeException("Certificate " + certificate.getSerialNumber().toString() + " revoked or unknown.");
                 } else {
-                    x509Manager.markAsUsed(dbCert);
+                    x509Manager.markAsUsed(dbCert.getSerial());
                 }
 
-                return true;
+                return dbCert;
             } catch (Exception e) {
                 log.debug(e.getMessage(), e);
-                return false;
+                return null;
             }
         }
 
-        return false;
+        return null;
     }
-}
\ No newline at end of file
+}
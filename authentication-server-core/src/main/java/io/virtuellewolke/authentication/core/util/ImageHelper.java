@@ -7,7 +7,13 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ImageHelper {
@@ -28,4 +34,31 @@ public class ImageHelper {
             return null;
         }
     }
+
+    /**
+     * Scales an image to fit into a square of {@code size} pixels (never upscaling) and encodes it as PNG.
+     */
+    public static byte[] createThumbnail(BufferedImage source, int size) {
+        double scale  = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int    width  = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int    height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D    graphics  = thumbnail.createGraphics();
+
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            ImageIO.write(thumbnail, "PNG", bos);
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package io.virtuellewolke.authentication.core.util;
+
+import com.google.common.net.InetAddresses;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable set of IPv4 and IPv6 ranges in CIDR notation ({@code 10.0.0.0/8}, {@code ::1}), parsed once.
+ * <p>
+ * Networks are grouped by prefix length, a lookup masks the address once per distinct prefix length and checks a
+ * hash set, instead of testing every range. Addresses are parsed with {@link InetAddresses}, which only accepts IPv4
+ * and IPv6 literals and never resolves anything, so a host name (even one like {@code cafe.de} that looks like hex)
+ * can not trigger a DNS lookup.
+ */
+public final class IpRangeSet {
+
+    /**
+     * address length in bytes -> prefix length -> masked networks
+     */
+    private final Map<Integer, Map<Integer, Set<ByteBuffer>>> networks = new TreeMap<>();
+
+    public IpRangeSet(String... ranges) {
+        for (String range : ranges) {
+            String[] parts   = range.trim().split("/", 2);
+            byte[]   address = parse(parts[0]);
+
+            if (address == null) {
+                throw new IllegalArgumentException("Not an IP range: " + range);
+            }
+
+            int prefix = parts.length > 1 ? Integer.parseInt(parts[1]) : address.length * 8;
+
+            if (prefix < 0 || prefix > address.length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length in IP range: " + range);
+            }
+
+            networks.computeIfAbsent(address.length, k -> new TreeMap<>())
+                    .computeIfAbsent(prefix, k -> new HashSet<>())
+                    .add(mask(address, prefix));
+        }
+    }
+
+    public boolean contains(String ip) {
+        byte[] address = ip != null ? parse(ip.trim()) : null;
+
+        if (address == null) { return false; }
+
+        Map<Integer, Set<ByteBuffer>> byPrefix = networks.get(address.length);
+
+        if (byPrefix == null) { return false; }
+
+        for (Map.Entry<Integer, Set<ByteBuffer>> entry : byPrefix.entrySet()) {
+            if (entry.getValue().contains(mask(address, entry.getKey()))) { return true; }
+        }
+
+        return false;
+    }
+
+    private static byte[] parse(String ip) {
+        return InetAddresses.isInetAddress(ip) ? InetAddresses.forString(ip).getAddress() : null;
+    }
+
+    private static ByteBuffer mask(byte[] address, int prefix) {
+        byte[] masked = new byte[address.length];
+
+        for (int i = 0; i < address.length; i++) {
+            int bits = Math.max(0, Math.min(8, prefix - i * 8));
+            masked[i] = (byte) (address[i] & (0xFF << (8 - bits)));
+        }
+
+        return ByteBuffer.wrap(masked);
+    }
+}
@@ -0,0 +1,28 @@
+package io.virtuellewolke.authentication.core.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Locale;
+
+/**
+ * Builds case insensitive {@code like} patterns for user input, {@code !} is the escape character of the queries.
+ */
+public final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    /**
+     * @return a lower case prefix pattern, or null for blank input so the filter is skipped.
+     */
+    public static String prefix(String value) {
+        if (StringUtils.isBlank(value)) { return null; }
+
+        String escaped = value.trim().toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+
+        return escaped + "%";
+    }
+}
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.Map;
 
 @Slf4j
@@ -14,7 +15,7 @@ public class PartialUpdateableModel {
         data.forEach((k, v) -> {
             Field f = ReflectionUtils.findField(getClass(), k);
 
-            if (f != null) {
+            if (f != null && !Modifier.isTransient(f.getModifiers())) {
                 ReflectionUtils.makeAccessible(f);
 
                 if (canUpdateField(f) || force) {
@@ -0,0 +1,117 @@
+package io.virtuellewolke.authentication.core.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Immutable set of role (authority) names as a bitset. Names are interned to dense ids once per JVM, checking
+ * whether two sets share a role is a word-wise AND instead of comparing strings.
+ */
+public final class RoleSet {
+
+    public static final RoleSet EMPTY = new RoleSet(new long[0]);
+
+    private static final Map<String, Integer> IDS     = new ConcurrentHashMap<>();
+    private static final AtomicInteger        NEXT_ID = new AtomicInteger();
+
+    private final long[] words;
+
+    private RoleSet(long[] words) {
+        this.words = words;
+    }
+
+    public static RoleSet of(Collection<String> names) {
+        long[] words = new long[0];
+
+        for (String name : names) {
+            if (name == null) continue;
+
+            int id   = IDS.computeIfAbsent(name, k -> NEXT_ID.getAndIncrement());
+            int word = id >>> 6;
+
+            if (word >= words.length) {
+                long[] grown = new long[Math.max(word + 1, (NEXT_ID.get() + 63) >>> 6)];
+                System.arraycopy(words, 0, grown, 0, words.length);
+                words = grown;
+            }
+
+            words[word] |= 1L << id;
+        }
+
+        return words.length == 0 ? EMPTY : new RoleSet(words);
+    }
+
+    public boolean intersects(RoleSet other) {
+        int length = Math.min(words.length, other.words.length);
+
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other.words[i]) != 0) { return true; }
+        }
+
+        return false;
+    }
+
+    public boolean contains(String name) {
+        Integer id = IDS.get(name);
+
+        return id != null && (id >>> 6) < words.length && (words[id >>> 6] & 1L << id) != 0;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) { return false; }
+        }
+
+        return true;
+    }
+
+    /**
+     * Remembers the {@link RoleSet} of a mutable list of roles. The set is only rebuilt if an element of the list
+     * was added, removed or replaced, which is detected by comparing references instead of strings.
+     */
+    public static final class Memo {
+
+        private static final class Entry {
+            private final String[] source;
+            private final RoleSet  roles;
+
+            private Entry(String[] source, RoleSet roles) {
+                this.source = source;
+                this.roles  = roles;
+            }
+        }
+
+        private volatile Entry entry;
+
+        public <T> RoleSet get(List<T> items, Function<T, String> name) {
+            Entry current = entry;
+
+            if (current != null && isSource(current.source, items, name)) { return current.roles; }
+
+            String[] source = new String[items.size()];
+            for (int i = 0; i < source.length; i++) {
+                source[i] = name.apply(items.get(i));
+            }
+
+            current = new Entry(source, of(Arrays.asList(source)));
+            entry   = current;
+
+            return current.roles;
+        }
+
+        private static <T> boolean isSource(String[] source, List<T> items, Function<T, String> name) {
+            if (source.length != items.size()) { return false; }
+
+            for (int i = 0; i < source.length; i++) {
+                if (source[i] != name.apply(items.get(i))) { return false; }
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Argon2id in PHC format: {@code $argon2id$v=19$m=<memory KiB>,t=<iterations>,p=<parallelism>$<salt>$<hash>}.
+ */
+public class Argon2PasswordHasher implements PasswordHasher {
+
+    private static final String PREFIX      = "$argon2id$";
+    private static final int    SALT_LENGTH = 16;
+    private static final int    HASH_LENGTH = 32;
+
+    private final int          memory;
+    private final int          iterations;
+    private final int          parallelism;
+    private final SecureRandom random = new SecureRandom();
+
+    public Argon2PasswordHasher(int memory, int iterations, int parallelism) {
+        this.memory      = memory;
+        this.iterations  = iterations;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "argon2id";
+    }
+
+    @Override
+    public boolean supports(String hash) {
+        return hash.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+
+        byte[] result = derive(password, salt, memory, iterations, parallelism, HASH_LENGTH);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+
+        return PREFIX + "v=" + Argon2Parameters.ARGON2_VERSION_13
+                + "$m=" + memory + ",t=" + iterations + ",p=" + parallelism
+                + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(result);
+    }
+
+    @Override
+    public boolean matches(String password, String hash) {
+        try {
+            String[] parts      = hash.split("\\$");
+            int[]    parameters = parseParameters(parts[3]);
+            byte[]   salt       = Base64.getDecoder().decode(parts[4]);
+            byte[]   expected   = Base64.getDecoder().decode(parts[5]);
+
+            if (!parts[2].equals("v=" + Argon2Parameters.ARGON2_VERSION_13)) { return false; }
+
+            return MessageDigest.isEqual(expected, derive(password, salt, parameters[0], parameters[1], parameters[2], expected.length));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(String hash) {
+        try {
+            int[] parameters = parseParameters(hash.split("\\$")[3]);
+
+            return parameters[0] != memory || parameters[1] != iterations || parameters[2] != parallelism;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return memory, iterations and parallelism of "m=..,t=..,p=..".
+     */
+    private static int[] parseParameters(String parameters) {
+        int[] result = new int[3];
+
+        for (String parameter : parameters.split(",")) {
+            String[] pair  = parameter.split("=", 2);
+            int      value = Integer.parseInt(pair[1]);
+
+            switch (pair[0]) {
+                case "m":
+                    result[0] = value;
+                    break;
+                case "t":
+                    result[1] = value;
+                    break;
+                case "p":
+                    result[2] = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argon2 parameter " + pair[0]);
+            }
+        }
+
+        return result;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int memory, int iterations, int parallelism, int length) {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+                .withMemoryAsKB(memory)
+                .withIterations(iterations)
+                .withParallelism(parallelism)
+                .withSalt(salt)
+                .build();
+
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(parameters);
+
+        byte[] result = new byte[length];
+        generator.generateBytes(password.getBytes(StandardCharsets.UTF_8), result);
+
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.security.SecureRandom;
+
+/**
+ * bcrypt ({@code $2a$}, {@code $2b$}, {@code $2y$}), the cost is stored in the hash ({@code $2b$12$...}).
+ */
+public class BCryptPasswordHasher implements PasswordHasher {
+
+    private final int          strength;
+    private final SecureRandom random = new SecureRandom();
+
+    public BCryptPasswordHasher(int strength) {
+        this.strength = strength;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "bcrypt";
+    }
+
+    @Override
+    public boolean supports(String hash) {
+        return hash.startsWith("$2a$") || hash.startsWith("$2b$") || hash.startsWith("$2y$");
+    }
+
+    @Override
+    public String hash(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(strength, random));
+    }
+
+    @Override
+    public boolean matches(String password, String hash) {
+        try {
+            return BCrypt.checkpw(password, hash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) != strength;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
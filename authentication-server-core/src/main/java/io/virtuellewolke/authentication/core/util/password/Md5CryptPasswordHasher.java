@@ -0,0 +1,41 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+import org.apache.commons.codec.digest.Md5Crypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Legacy MD5-crypt ({@code $1$}), only kept to verify existing hashes. Its work factor is fixed.
+ */
+public class Md5CryptPasswordHasher implements PasswordHasher {
+
+    private static final String PREFIX = "$1$";
+
+    @Override
+    public String getAlgorithm() {
+        return "md5-crypt";
+    }
+
+    @Override
+    public boolean supports(String hash) {
+        return hash.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(String password) {
+        return Md5Crypt.md5Crypt(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean matches(String password, String hash) {
+        String expected = Md5Crypt.md5Crypt(password.getBytes(StandardCharsets.UTF_8), hash);
+
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), hash.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean needsRehash(String hash) {
+        return false;
+    }
+}
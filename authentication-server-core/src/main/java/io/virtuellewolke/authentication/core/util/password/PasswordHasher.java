@@ -0,0 +1,26 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+/**
+ * One password hashing algorithm. Hashes carry their algorithm and parameters as a prefix (modular crypt / PHC
+ * format), so every stored hash can be verified with the parameters it was created with.
+ */
+public interface PasswordHasher {
+    /**
+     * Name of the algorithm, as used in the configuration.
+     */
+    String getAlgorithm();
+
+    /**
+     * @return true if the hash was created by this algorithm.
+     */
+    boolean supports(String hash);
+
+    String hash(String password);
+
+    boolean matches(String password, String hash);
+
+    /**
+     * @return true if the hash was created with other parameters than this hasher uses for new hashes.
+     */
+    boolean needsRehash(String hash);
+}
@@ -0,0 +1,62 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * All known {@link PasswordHasher}s, new passwords are hashed with the default one. A stored hash is verified by the
+ * hasher owning its prefix, with the parameters stored in the hash, so changing the algorithm or its parameters
+ * never breaks existing passwords, they are rehashed on the next successful login instead.
+ * <p>
+ * Only {@code PasswordManager} hashes or verifies passwords, on its own bounded pool.
+ */
+public final class PasswordHashers {
+
+    private final PasswordHasher       defaultHasher;
+    private final List<PasswordHasher> hashers;
+
+    public PasswordHashers(PasswordHasher defaultHasher, List<PasswordHasher> hashers) {
+        this.defaultHasher = Objects.requireNonNull(defaultHasher);
+
+        List<PasswordHasher> all = new ArrayList<>(hashers);
+        if (!all.contains(defaultHasher)) all.add(0, defaultHasher);
+
+        this.hashers = Collections.unmodifiableList(all);
+    }
+
+    public PasswordHasher getDefaultHasher() {
+        return defaultHasher;
+    }
+
+    public String hash(String password) {
+        return defaultHasher.hash(password);
+    }
+
+    /**
+     * @return false if the password does not match or the hash has an unknown format.
+     */
+    public boolean matches(String password, String hash) {
+        if (password == null || hash == null) { return false; }
+
+        PasswordHasher hasher = find(hash);
+
+        return hasher != null && hasher.matches(password, hash);
+    }
+
+    /**
+     * @return true if the hash was not created by the default hasher with its current parameters.
+     */
+    public boolean needsRehash(String hash) {
+        return hash == null || !defaultHasher.supports(hash) || defaultHasher.needsRehash(hash);
+    }
+
+    private PasswordHasher find(String hash) {
+        for (PasswordHasher hasher : hashers) {
+            if (hasher.supports(hash)) { return hasher; }
+        }
+
+        return null;
+    }
+}
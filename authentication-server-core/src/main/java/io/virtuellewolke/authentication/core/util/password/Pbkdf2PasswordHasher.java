@@ -0,0 +1,89 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 with HMAC-SHA256 in PHC format: {@code $pbkdf2-sha256$i=<iterations>$<salt>$<hash>}.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    private static final String PREFIX      = "$pbkdf2-sha256$";
+    private static final int    SALT_LENGTH = 16;
+    private static final int    HASH_LENGTH = 32;
+
+    private final int          iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "pbkdf2";
+    }
+
+    @Override
+    public boolean supports(String hash) {
+        return hash.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+
+        return PREFIX + "i=" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(derive(password, salt, iterations, HASH_LENGTH));
+    }
+
+    @Override
+    public boolean matches(String password, String hash) {
+        String[] parts = hash.split("\\$");
+
+        try {
+            int    hashIterations = parseIterations(parts[2]);
+            byte[] salt           = Base64.getDecoder().decode(parts[3]);
+            byte[] expected       = Base64.getDecoder().decode(parts[4]);
+
+            return MessageDigest.isEqual(expected, derive(password, salt, hashIterations, expected.length));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(String hash) {
+        try {
+            return parseIterations(hash.split("\\$")[2]) != iterations;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static int parseIterations(String parameters) {
+        if (!parameters.startsWith("i=")) { throw new IllegalArgumentException("Missing iterations in " + parameters); }
+
+        return Integer.parseInt(parameters.substring(2));
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new ServiceException("PBKDF2 is not available.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.virtuellewolke.authentication.core.api.remote;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+class CircuitBreakerTest {
+
+    private static final class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2020-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    private final MutableClock   clock   = new MutableClock();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.parse("PT30S"), clock);
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testSuccessResetsFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testSingleTrialCallAfterOpenDuration() {
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+
+        clock.instant = clock.instant.plus(Duration.parse("PT31S"));
+
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertFalse(breaker.tryAcquire());
+
+        breaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        clock.instant = clock.instant.plus(Duration.parse("PT31S"));
+
+        Assertions.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assertions.assertTrue(breaker.tryAcquire());
+    }
+}
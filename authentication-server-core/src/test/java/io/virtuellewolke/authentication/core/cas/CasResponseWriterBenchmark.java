@@ -0,0 +1,109 @@
+package io.virtuellewolke.authentication.core.cas;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import io.virtuellewolke.authentication.core.cas.legacy.AuthResponse;
+import io.virtuellewolke.authentication.core.cas.legacy.AuthSuccessResponse;
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.spring.configuration.ObjectMapperConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of a {@code serviceValidate} success response through the former Jackson models against
+ * {@link CasResponseWriter}. Not part of the test run, start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<this class>} or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class CasResponseWriterBenchmark {
+
+    @Param({"5", "50"})
+    public int attributes;
+
+    @Param({"XML", "JSON"})
+    public CasResponseWriter.Format format;
+
+    private Identity               identity;
+    private MockHttpServletRequest request;
+    private ObjectMapper           mapper;
+    private CasResponseWriter      writer;
+
+    @Setup
+    public void setup() {
+        List<Authority>     authorities = new ArrayList<>();
+        Map<String, String> metaData    = new HashMap<>();
+
+        for (int i = 0; i < attributes; i++) {
+            authorities.add(new Authority("role-" + i));
+            metaData.put("attribute" + i, "value & <" + i + ">");
+        }
+
+        identity = new Identity();
+        identity.setId(1);
+        identity.setUsername("user");
+        identity.setEmail("user@example.com");
+        identity.setDisplayName("User");
+        identity.setAuthorities(authorities);
+        identity.setMetaData(metaData);
+
+        request = new MockHttpServletRequest();
+        request.addHeader("Accept", format.getContentType());
+
+        if (format == CasResponseWriter.Format.XML) {
+            XmlMapper xmlMapper = new XmlMapper();
+            xmlMapper.configure(ToXmlGenerator.Feature.WRITE_XML_DECLARATION, true);
+            xmlMapper.setAnnotationIntrospector(new ObjectMapperConfiguration.XmlIgnoreIntrospector());
+            mapper = xmlMapper;
+        } else {
+            mapper = new ObjectMapper().setAnnotationIntrospector(new ObjectMapperConfiguration.JsonIgnoreIntrospector());
+        }
+
+        writer = new CasResponseWriter(100);
+    }
+
+    @Benchmark
+    public String jacksonModels() throws JsonProcessingException {
+        AuthSuccessResponse success = new AuthSuccessResponse();
+        success.setUser(identity.getUsername());
+
+        identity.getAuthorities().forEach(authority -> success.addAttribute(request, "role", authority.getName()));
+        identity.getMetaData().forEach((key, value) -> success.addAttribute(request, key, value));
+        success.addAttribute(request, "displayName", identity.getDisplayName());
+        success.addAttribute(request, "email", identity.getEmail());
+        success.addAttribute(request, "locked", identity.getLocked().toString());
+        success.addAttribute(request, "admin", identity.getAdmin().toString());
+        success.addAttribute(request, "otpEnabled", identity.getOtpEnabled().toString());
+
+        return mapper.writeValueAsString(new AuthResponse(success));
+    }
+
+    @Benchmark
+    public String responseWriter() throws IOException {
+        StringWriter out = new StringWriter(512);
+        writer.writeSuccess(identity, format, out);
+        return out.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CasResponseWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
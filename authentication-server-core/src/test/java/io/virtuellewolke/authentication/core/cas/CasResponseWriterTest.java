@@ -0,0 +1,113 @@
+package io.virtuellewolke.authentication.core.cas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.virtuellewolke.authentication.core.api.model.cas.AuthFailedResponse;
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class CasResponseWriterTest {
+
+    private CasResponseWriter writer;
+    private Identity          identity;
+
+    @BeforeEach
+    public void setup() {
+        writer = new CasResponseWriter(100);
+
+        Map<String, String> metaData = new LinkedHashMap<>();
+        metaData.put("department", "R&D <lab>");
+
+        identity = new Identity();
+        identity.setId(1);
+        identity.setUsername("user\"1");
+        identity.setEmail("user@example.com");
+        identity.setAuthorities(List.of(new Authority("staff"), new Authority("admins")));
+        identity.setMetaData(metaData);
+    }
+
+    @Test
+    public void testXmlSuccess() throws IOException {
+        Assertions.assertEquals("<?xml version='1.0' encoding='UTF-8'?><cas:serviceResponse xmlns:cas=\"http://www.yale.edu/tp/cas\">"
+                        + "<cas:authenticationSuccess><cas:user>user&quot;1</cas:user><cas:attributes>"
+                        + "<cas:role>staff</cas:role><cas:role>admins</cas:role><cas:department>R&amp;D &lt;lab&gt;</cas:department>"
+                        + "<cas:email>user@example.com</cas:email><cas:locked>false</cas:locked><cas:admin>false</cas:admin>"
+                        + "<cas:otpEnabled>false</cas:otpEnabled></cas:attributes></cas:authenticationSuccess></cas:serviceResponse>",
+                success(CasResponseWriter.Format.XML));
+    }
+
+    @Test
+    public void testJsonSuccess() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        String expected = "{\"authenticationSuccess\":{\"user\":\"user\\\"1\",\"attributes\":{\"role\":[\"staff\",\"admins\"],"
+                + "\"department\":\"R&D <lab>\",\"email\":\"user@example.com\",\"locked\":\"false\",\"admin\":\"false\","
+                + "\"otpEnabled\":\"false\"}},\"authenticationFailure\":null}";
+
+        Assertions.assertEquals(mapper.readTree(expected), mapper.readTree(success(CasResponseWriter.Format.JSON)));
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        StringWriter out = new StringWriter();
+        writer.writeFailure(AuthFailedResponse.ErrorCode.INVALID_TICKET, "Ticket \"x\" expired", CasResponseWriter.Format.JSON, out);
+
+        Assertions.assertEquals("{\"authenticationSuccess\":null,\"authenticationFailure\":{\"code\":\"INVALID_TICKET\","
+                + "\"description\":\"Ticket \\\"x\\\" expired\"}}", out.toString());
+    }
+
+    @Test
+    public void testAttributesFollowIdentityVersion() throws IOException {
+        String before = success(CasResponseWriter.Format.XML);
+
+        identity.setEmail("changed@example.com");
+        Assertions.assertEquals(before, success(CasResponseWriter.Format.XML));
+
+        identity.setVersion(1);
+        Assertions.assertTrue(success(CasResponseWriter.Format.XML).contains("changed@example.com"));
+    }
+
+    @Test
+    public void testFormatNegotiation() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Assertions.assertEquals(CasResponseWriter.Format.XML, CasResponseWriter.Format.of(request));
+
+        request.addHeader("Accept", "application/json");
+        Assertions.assertEquals(CasResponseWriter.Format.JSON, CasResponseWriter.Format.of(request));
+
+        request = new MockHttpServletRequest();
+        request.setParameter("format", "json");
+        Assertions.assertEquals(CasResponseWriter.Format.JSON, CasResponseWriter.Format.of(request));
+    }
+
+    @Test
+    public void testFormatNegotiationUsesQualityValues() {
+        Assertions.assertEquals(CasResponseWriter.Format.JSON, formatFor("application/xml;q=0.5, application/json"));
+        Assertions.assertEquals(CasResponseWriter.Format.XML, formatFor("application/json;q=0.5, application/xml"));
+        Assertions.assertEquals(CasResponseWriter.Format.JSON, formatFor("text/html, application/json;q=0.9, */*;q=0.8"));
+        Assertions.assertEquals(CasResponseWriter.Format.XML, formatFor("application/json;q=0, */*"));
+        Assertions.assertEquals(CasResponseWriter.Format.XML, formatFor("*/*"));
+        Assertions.assertEquals(CasResponseWriter.Format.XML, formatFor("not a media type"));
+    }
+
+    private static CasResponseWriter.Format formatFor(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept", accept);
+        return CasResponseWriter.Format.of(request);
+    }
+
+    private String success(CasResponseWriter.Format format) throws IOException {
+        StringWriter out = new StringWriter();
+        writer.writeSuccess(identity, format, out);
+        return out.toString();
+    }
+}
@@ -73,6 +73,19 @@ class TicketManagerTest {
         Assertions.assertEquals(ticket.getToken(), result.getToken());
     }
 
+    @Test
+    public void testTicketIssueNewAndVerifyTwice() {
+        Identity identity = new Identity();
+        identity.setUsername("admin");
+        identity.setAuthorities(new ArrayList<>());
+        identity.setAdmin(true);
+
+        Ticket ticket = ticketManager.issue(TicketType.ST, "/", identity);
+
+        Assertions.assertNotNull(ticketManager.getTicket(ticket.getToken(), ticket.getServiceUrl()));
+        Assertions.assertThrows(AccessDeniedException.class, () -> ticketManager.getTicket(ticket.getToken(), ticket.getServiceUrl()));
+    }
+
     //@Test
     public void testTicketIssueNewAndVerifyExpired() throws InterruptedException {
         Identity identity = new Identity();
@@ -1,15 +1,16 @@
-package io.virtuellewolke.authentication.core.api.model.cas;
+package io.virtuellewolke.authentication.core.cas.legacy;
 
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
 import io.virtuellewolke.authentication.core.spring.configuration.ObjectMapperConfiguration;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/**
+ * The Jackson model of a {@code serviceResponse} before {@code CasResponseWriter}, kept for the benchmark.
+ */
 @Getter
 @Setter
-@NoArgsConstructor
 @JacksonXmlRootElement(localName = "cas:serviceResponse")
 public class AuthResponse {
 
@@ -19,15 +20,8 @@ public class AuthResponse {
 
     @JacksonXmlProperty(localName = "cas:authenticationSuccess")
     private AuthSuccessResponse authenticationSuccess;
-    @JacksonXmlProperty(localName = "cas:authenticationFailure")
-    private AuthFailedResponse  authenticationFailure;
-
 
     public AuthResponse(AuthSuccessResponse successResponse) {
         this.authenticationSuccess = successResponse;
     }
-
-    public AuthResponse(AuthFailedResponse failedResponse) {
-        this.authenticationFailure = failedResponse;
-    }
-}
\ No newline at end of file
+}
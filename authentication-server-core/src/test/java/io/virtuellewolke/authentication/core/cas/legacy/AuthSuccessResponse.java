@@ -1,11 +1,10 @@
-package io.virtuellewolke.authentication.core.api.model.cas;
+package io.virtuellewolke.authentication.core.cas.legacy;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import io.swagger.v3.oas.annotations.Hidden;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -14,6 +13,9 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * The Jackson model of a {@code serviceValidate} success before {@code CasResponseWriter}, kept for the benchmark.
+ */
 @Setter
 @Getter
 public class AuthSuccessResponse {
@@ -23,10 +25,6 @@ public class AuthSuccessResponse {
     @JacksonXmlProperty(localName = "cas:attributes")
     private Map<String, Object> attributes = new HashMap<>();
 
-
-    //region Multimap Values
-
-    @Hidden
     @JsonIgnore
     private Multimap<String, Object> _attributes = HashMultimap.create();
 
@@ -46,6 +44,4 @@ public class AuthSuccessResponse {
                     return val.getValue();
                 }));
     }
-
-    //endregion
-}
\ No newline at end of file
+}
@@ -45,6 +45,26 @@ class InMemoryTicketStoreTest {
         Assertions.assertTrue(expired);
     }
 
+    @Test
+    @Order(5)
+    public void testConsumeTicketOnlyOnce() {
+        ticketStore.save(getTicket());
+
+        Assertions.assertTrue(ticketStore.consume(TOKEN).isPresent());
+        Assertions.assertFalse(ticketStore.consume(TOKEN).isPresent());
+        Assertions.assertTrue(ticketStore.isExpired(TOKEN));
+    }
+
+    @Test
+    @Order(6)
+    public void testSaveDoesNotOverwriteLiveTicket() {
+        Assertions.assertTrue(ticketStore.save(getTicket()));
+        Assertions.assertFalse(ticketStore.save(getTicket()));
+
+        ticketStore.invalidate(TOKEN);
+        Assertions.assertTrue(ticketStore.save(getTicket()));
+    }
+
     private Ticket getTicket() {
         Ticket ticket = new Ticket();
 
@@ -2,13 +2,14 @@ package io.virtuellewolke.authentication.core.cas.store;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.virtuellewolke.authentication.core.cas.model.Ticket;
 import io.virtuellewolke.authentication.core.cas.store.clients.ClientConnectException;
 import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
 import org.junit.jupiter.api.*;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
+
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class RedisTicketStoreFallbackTest {
@@ -19,7 +20,6 @@ class RedisTicketStoreFallbackTest {
 
     @BeforeAll
     public static void setupTicketStore() {
-        ObjectMapper       objm          = new ObjectMapper();
         RedisConfiguration configuration = new RedisConfiguration();
         configuration.setHost("localhost");
         configuration.setPort(6379);
@@ -29,7 +29,7 @@ class RedisTicketStoreFallbackTest {
 
         JedisConnectionFactory connectionFactory = new JedisConnectionFactory(configuration);
 
-        ticketStore = new RedisTicketStore(connectionFactory, objm);
+        ticketStore = new RedisTicketStore(connectionFactory, (id, version) -> Optional.empty(), new TicketConfiguration());
 
         Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
         rootLogger.setLevel(Level.ALL);
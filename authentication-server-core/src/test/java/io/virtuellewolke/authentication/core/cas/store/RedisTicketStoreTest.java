@@ -1,11 +1,12 @@
 package io.virtuellewolke.authentication.core.cas.store;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.virtuellewolke.authentication.core.cas.model.Ticket;
 import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
 import org.junit.jupiter.api.*;
 import redis.embedded.RedisServer;
 
+import java.util.Optional;
+
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class RedisTicketStoreTest {
@@ -23,7 +24,6 @@ class RedisTicketStoreTest {
 
     @BeforeAll
     public static void setupTicketStore() {
-        ObjectMapper       objm          = new ObjectMapper();
         RedisConfiguration configuration = new RedisConfiguration();
         configuration.setHost("localhost");
         configuration.setPort(6379);
@@ -31,7 +31,7 @@ class RedisTicketStoreTest {
 
         JedisConnectionFactory connectionFactory = new JedisConnectionFactory(configuration);
 
-        ticketStore = new RedisTicketStore(connectionFactory, objm);
+        ticketStore = new RedisTicketStore(connectionFactory, (id, version) -> Optional.empty(), new TicketConfiguration());
         ticketStore.setFallbackEnabled(false);
     }
 
@@ -0,0 +1,84 @@
+package io.virtuellewolke.authentication.core.cas.store;
+
+import io.virtuellewolke.authentication.core.cas.TicketType;
+import io.virtuellewolke.authentication.core.cas.model.Ticket;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+class TicketCodecTest {
+
+    private static final String TOKEN = "ST-123456";
+
+    @Test
+    public void testRoundTrip() {
+        Identity identity = getIdentity();
+        Ticket   ticket   = getTicket(identity);
+
+        byte[]           record  = TicketCodec.encode(ticket);
+        Optional<Ticket> decoded = TicketCodec.decode(TOKEN, record, (id, version) -> id.equals(identity.getId()) ? Optional.of(identity) : Optional.empty());
+
+        Assertions.assertTrue(decoded.isPresent());
+        Assertions.assertEquals(TOKEN, decoded.get().getToken());
+        Assertions.assertEquals(TicketType.ST, decoded.get().getTicketType());
+        Assertions.assertEquals(ticket.getServiceUrl(), decoded.get().getServiceUrl());
+        Assertions.assertEquals(ticket.getIssuedAt(), decoded.get().getIssuedAt());
+        Assertions.assertSame(identity, decoded.get().getIdentity());
+        Assertions.assertEquals(3, decoded.get().getIdentityVersion());
+    }
+
+    @Test
+    public void testOutdatedIdentityIsNotHandedOut() {
+        Identity identity = getIdentity();
+        byte[]   record   = TicketCodec.encode(getTicket(identity));
+
+        Identity outdated = getIdentity();
+        outdated.setVersion(2);
+
+        Assertions.assertFalse(TicketCodec.decode(TOKEN, record, (id, version) -> Optional.of(outdated)).isPresent());
+    }
+
+    @Test
+    public void testRecordDoesNotContainIdentity() {
+        Identity identity = getIdentity();
+        identity.getMetaData().put("notes", "x".repeat(64 * 1024));
+
+        Assertions.assertTrue(TicketCodec.encode(getTicket(identity)).length < 64);
+    }
+
+    @Test
+    public void testDeletedIdentityIsRejected() {
+        byte[] record = TicketCodec.encode(getTicket(getIdentity()));
+
+        Assertions.assertFalse(TicketCodec.decode(TOKEN, record, (id, version) -> Optional.empty()).isPresent());
+    }
+
+    @Test
+    public void testUnknownFormatIsRejected() {
+        Assertions.assertFalse(TicketCodec.decode(TOKEN, new byte[]{42}, (id, version) -> Optional.empty()).isPresent());
+    }
+
+    private Identity getIdentity() {
+        Identity identity = new Identity();
+        identity.setId(7);
+        identity.setUsername("admin");
+        identity.setVersion(3);
+
+        return identity;
+    }
+
+    private Ticket getTicket(Identity identity) {
+        Ticket ticket = new Ticket();
+
+        ticket.setToken(TOKEN);
+        ticket.setTicketType(TicketType.ST);
+        ticket.setServiceUrl("https://example.com/login");
+        ticket.setIssuedAt(1_600_000_000_000L);
+        ticket.setIdentity(identity);
+        ticket.setIdentityVersion(identity.getVersion());
+
+        return ticket;
+    }
+}
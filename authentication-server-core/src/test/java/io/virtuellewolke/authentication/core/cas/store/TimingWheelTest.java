@@ -0,0 +1,61 @@
+package io.virtuellewolke.authentication.core.cas.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    private final TimingWheel<String> wheel   = new TimingWheel<>(1000, 8, START);
+    private final List<String>        expired = new ArrayList<>();
+
+    @Test
+    public void testKeyIsNotExpiredBeforeDeadline() {
+        wheel.add("ST-1", START + 2500);
+
+        wheel.advanceClock(START + 2500, expired::add);
+
+        Assertions.assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    public void testKeyIsExpiredAfterDeadline() {
+        wheel.add("ST-1", START + 2500);
+
+        wheel.advanceClock(START + 3000, expired::add);
+
+        Assertions.assertEquals(List.of("ST-1"), expired);
+    }
+
+    @Test
+    public void testKeyIsExpiredOnlyOnce() {
+        wheel.add("ST-1", START + 500);
+
+        wheel.advanceClock(START + 1000, expired::add);
+        wheel.advanceClock(START + 60000, expired::add);
+
+        Assertions.assertEquals(List.of("ST-1"), expired);
+    }
+
+    @Test
+    public void testKeyBeyondWheelSpanIsCascaded() {
+        wheel.add("PG-1", START + 100_500);
+
+        wheel.advanceClock(START + 100_000, expired::add);
+        Assertions.assertTrue(expired.isEmpty());
+
+        wheel.advanceClock(START + 101_000, expired::add);
+        Assertions.assertEquals(List.of("PG-1"), expired);
+    }
+
+    @Test
+    public void testKeyWithPassedDeadlineIsRejected() {
+        wheel.advanceClock(START + 5000, expired::add);
+
+        Assertions.assertFalse(wheel.add("ST-1", START + 1000));
+    }
+}
@@ -0,0 +1,92 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.api.model.UpdateAuthorityRequest;
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import io.virtuellewolke.authentication.core.database.repository.AuthorityRepository;
+import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import io.virtuellewolke.authentication.core.database.repository.ServiceRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class AuthorityCascadeTest {
+
+    private AuthorityRepository authorityRepository;
+    private IdentityRepository  identityRepository;
+    private ServiceRepository   serviceRepository;
+    private AuthorityCascade    cascade;
+    private Authority           authority;
+    private Service             onlyRole;
+    private Service             otherRole;
+    private Service             unrelated;
+
+    @BeforeEach
+    public void setup() {
+        authority = new Authority("staff");
+        authority.setId(1);
+
+        onlyRole  = service(Service.ServiceMode.AUTHORIZED, "Staff");
+        otherRole = service(Service.ServiceMode.AUTHORIZED, "staff", "admins");
+        unrelated = service(Service.ServiceMode.AUTHORIZED, "admins");
+
+        authorityRepository = Mockito.mock(AuthorityRepository.class);
+        identityRepository  = Mockito.mock(IdentityRepository.class);
+        serviceRepository   = Mockito.mock(ServiceRepository.class);
+
+        Mockito.when(authorityRepository.findById(1)).thenReturn(Optional.of(authority));
+        Mockito.when(serviceRepository.findAll()).thenReturn(List.of(onlyRole, otherRole, unrelated));
+        Mockito.when(identityRepository.removeAuthority(1)).thenReturn(3);
+
+        cascade = new AuthorityCascade(authorityRepository, identityRepository, serviceRepository,
+                Mockito.mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDeleteUsesBulkStatementsAndSavesOnlyChangedServices() {
+        cascade.delete(1);
+
+        Mockito.verify(identityRepository).incrementVersionByAuthorityId(1);
+        Mockito.verify(identityRepository).removeAuthority(1);
+        Mockito.verify(identityRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(authorityRepository).delete(authority);
+
+        ArgumentCaptor<List<Service>> saved = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(serviceRepository).saveAll(saved.capture());
+        Assertions.assertEquals(List.of(onlyRole, otherRole), saved.getValue());
+
+        Assertions.assertTrue(onlyRole.getRequiredRoles().isEmpty());
+        Assertions.assertEquals(Service.ServiceMode.PUBLIC, onlyRole.getMode());
+        Assertions.assertEquals(List.of("admins"), otherRole.getRequiredRoles());
+        Assertions.assertEquals(Service.ServiceMode.AUTHORIZED, otherRole.getMode());
+    }
+
+    @Test
+    public void testRenameIsPropagatedToServices() {
+        UpdateAuthorityRequest request = new UpdateAuthorityRequest();
+        request.setData(Map.of("name", "employees"));
+
+        Assertions.assertEquals("employees", cascade.update(1, request).getName());
+
+        Mockito.verify(identityRepository).incrementVersionByAuthorityId(1);
+        Assertions.assertEquals(List.of("employees"), onlyRole.getRequiredRoles());
+        Assertions.assertEquals(List.of("employees", "admins"), otherRole.getRequiredRoles());
+        Assertions.assertEquals(List.of("admins"), unrelated.getRequiredRoles());
+    }
+
+    private static Service service(Service.ServiceMode mode, String... roles) {
+        Service service = new Service();
+        service.setMode(mode);
+        service.setRequiredRoles(new ArrayList<>(List.of(roles)));
+        return service;
+    }
+}
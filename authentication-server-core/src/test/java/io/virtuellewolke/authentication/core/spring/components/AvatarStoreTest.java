@@ -0,0 +1,105 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.IdentityAvatar;
+import io.virtuellewolke.authentication.core.database.repository.IdentityAvatarRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+class AvatarStoreTest {
+
+    private IdentityAvatarRepository repository;
+    private AvatarStore              store;
+
+    @BeforeEach
+    public void setup() {
+        repository = Mockito.mock(IdentityAvatarRepository.class);
+        Mockito.when(repository.findById(Mockito.any())).thenReturn(Optional.empty());
+
+        store = new AvatarStore(repository, 1024 * 1024, 64, 1024 * 1024);
+    }
+
+    @Test
+    public void testStoreRendersThumbnail() throws IOException {
+        IdentityAvatar avatar = store.store(1, png(400, 200));
+
+        Assertions.assertEquals("image/png", avatar.getContentType());
+        Assertions.assertEquals(64, avatar.getEtag().length());
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(avatar.getThumbnail()));
+        Assertions.assertEquals(64, thumbnail.getWidth());
+        Assertions.assertEquals(32, thumbnail.getHeight());
+
+        Mockito.verify(repository).save(avatar);
+    }
+
+    @Test
+    public void testRejectsNonImages() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.store(1, "not an image".getBytes()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.store(1, new byte[0]));
+
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void testRejectsOversizedImages() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.store(1, png(4097, 1)));
+    }
+
+    @Test
+    public void testFindIsCachedUntilStored() throws IOException {
+        Mockito.when(repository.findEtagByIdentityId(1)).thenReturn(Optional.of("etag"));
+        Mockito.when(repository.findThumbnailByIdentityId(1)).thenReturn(Optional.of(new byte[]{1, 2, 3}));
+
+        Assertions.assertEquals("etag", store.find(1, AvatarStore.Variant.THUMBNAIL, "etag").orElseThrow().getEtag());
+        store.find(1, AvatarStore.Variant.THUMBNAIL, "etag");
+
+        Mockito.verify(repository, Mockito.times(1)).findThumbnailByIdentityId(1);
+        Mockito.verify(repository, Mockito.never()).findImageByIdentityId(1);
+
+        store.store(1, png(10, 10));
+        store.find(1, AvatarStore.Variant.THUMBNAIL, "etag");
+
+        Mockito.verify(repository, Mockito.times(2)).findThumbnailByIdentityId(1);
+    }
+
+    @Test
+    public void testAvatarReplacedElsewhereIsReadAgain() {
+        Mockito.when(repository.findEtagByIdentityId(1)).thenReturn(Optional.of("etag"));
+        Mockito.when(repository.findThumbnailByIdentityId(1)).thenReturn(Optional.of(new byte[]{1, 2, 3}));
+
+        store.find(1, AvatarStore.Variant.THUMBNAIL, "etag");
+
+        Mockito.when(repository.findEtagByIdentityId(1)).thenReturn(Optional.of("other"));
+        Mockito.when(repository.findThumbnailByIdentityId(1)).thenReturn(Optional.of(new byte[]{4, 5, 6}));
+
+        Assertions.assertEquals("other", store.findEtag(1).orElseThrow());
+        Assertions.assertArrayEquals(new byte[]{4, 5, 6}, store.find(1, AvatarStore.Variant.THUMBNAIL, "other").orElseThrow().getData());
+    }
+
+    @Test
+    public void testMissingThumbnailFallsBackToTheImage() {
+        Mockito.when(repository.findEtagByIdentityId(1)).thenReturn(Optional.of("etag"));
+        Mockito.when(repository.findContentTypeByIdentityId(1)).thenReturn(Optional.of("image/jpeg"));
+        Mockito.when(repository.findImageByIdentityId(1)).thenReturn(Optional.of(new byte[]{1, 2, 3}));
+
+        AvatarStore.Image image = store.find(1, AvatarStore.Variant.THUMBNAIL, "etag").orElseThrow();
+
+        Assertions.assertEquals("image/jpeg", image.getContentType());
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, image.getData());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+
+class ForwardAuthDecisionCacheTest {
+
+    private ForwardAuthDecisionCache cache;
+    private Identity                 identity;
+    private Service                  service;
+
+    @BeforeEach
+    public void setup() {
+        cache = new ForwardAuthDecisionCache(Duration.parse("PT1M"), 100);
+
+        identity = new Identity();
+        identity.setId(1);
+        identity.setUsername("user");
+        identity.getAuthorities().add(new Authority("staff"));
+
+        service = Mockito.spy(new Service());
+        service.setId(2);
+        service.getRequiredRoles().add("staff");
+    }
+
+    @Test
+    public void testDecisionIsEvaluatedOnce() {
+        ForwardAuthDecisionCache.Decision decision = cache.decide(identity, service, 1);
+
+        Assertions.assertTrue(decision.isAllowed());
+        Assertions.assertEquals("user", decision.getHeaders().getFirst("X-Auth-User"));
+        Assertions.assertSame(decision, cache.decide(identity, service, 1));
+        Mockito.verify(service, Mockito.times(1)).isIdentityAllowed(identity);
+    }
+
+    @Test
+    public void testChangedIdentityIsEvaluatedAgain() {
+        Assertions.assertTrue(cache.decide(identity, service, 1).isAllowed());
+
+        identity.getAuthorities().clear();
+        identity.setVersion(1);
+
+        Assertions.assertFalse(cache.decide(identity, service, 1).isAllowed());
+    }
+
+    @Test
+    public void testReloadedServicesAreEvaluatedAgain() {
+        Assertions.assertTrue(cache.decide(identity, service, 1).isAllowed());
+
+        service.getRequiredRoles().set(0, "admins");
+
+        Assertions.assertTrue(cache.decide(identity, service, 1).isAllowed());
+        Assertions.assertFalse(cache.decide(identity, service, 2).isAllowed());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        Assertions.assertTrue(cache.decide(identity, service, 1).isAllowed());
+
+        identity.getAuthorities().get(0).setName("renamed");
+        cache.invalidateAll();
+
+        Assertions.assertFalse(cache.decide(identity, service, 1).isAllowed());
+    }
+}
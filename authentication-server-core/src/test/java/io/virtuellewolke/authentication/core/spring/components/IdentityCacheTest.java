@@ -0,0 +1,90 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Optional;
+
+class IdentityCacheTest {
+
+    private IdentityRepository repository;
+    private IdentityCache      cache;
+    private Identity           identity;
+
+    @BeforeEach
+    public void setup() {
+        identity = new Identity();
+        identity.setId(1);
+        identity.setUsername("user");
+        identity.setEmail("user@example.com");
+        identity.setApiToken("token");
+
+        repository = Mockito.mock(IdentityRepository.class);
+        Mockito.when(repository.findById(1)).thenReturn(Optional.of(identity));
+        Mockito.when(repository.findByApiToken("token")).thenReturn(Optional.of(identity));
+        Mockito.when(repository.findByUsernameOrEmail(Mockito.anyString(), Mockito.anyString())).thenReturn(Optional.of(identity));
+
+        cache = new IdentityCache(repository, Duration.parse("PT1M"), 100, Duration.parse("PT1M"));
+    }
+
+    @Test
+    public void testSecondaryIndexesShareTheIdentity() {
+        Assertions.assertEquals(identity, cache.findByApiToken("token").orElseThrow());
+        Assertions.assertEquals(identity, cache.findByUsernameOrEmail("user").orElseThrow());
+        Assertions.assertEquals(identity, cache.findByUsernameOrEmail("user@example.com").orElseThrow());
+        Assertions.assertEquals(identity, cache.findById(1).orElseThrow());
+
+        Mockito.verify(repository, Mockito.times(1)).findByApiToken("token");
+        Mockito.verify(repository, Mockito.never()).findByUsernameOrEmail(Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(repository, Mockito.never()).findById(1);
+    }
+
+    @Test
+    public void testChangedTokenIsNotResolvedAnymore() {
+        cache.findByApiToken("token");
+
+        Identity changed = new Identity();
+        changed.setId(1);
+        changed.setUsername("user");
+        changed.setApiToken("other");
+
+        Mockito.when(repository.findById(1)).thenReturn(Optional.of(changed));
+        Mockito.when(repository.findByApiToken("token")).thenReturn(Optional.empty());
+        cache.evict(changed);
+
+        Assertions.assertTrue(cache.findByApiToken("token").isEmpty());
+    }
+
+    @Test
+    public void testOutdatedCopyIsReloaded() {
+        cache.findById(1);
+
+        Identity changed = new Identity();
+        changed.setId(1);
+        changed.setUsername("user");
+        changed.setVersion(1);
+
+        Mockito.when(repository.findById(1)).thenReturn(Optional.of(changed));
+
+        Assertions.assertEquals(0, cache.findById(1, 0).orElseThrow().getVersion());
+        Assertions.assertEquals(1, cache.findById(1, 1).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void testCallersGetPrivateCopies() {
+        Identity first = cache.findById(1).orElseThrow();
+        first.setLocked(true);
+        first.getMetaData().put("changed", "yes");
+
+        Identity second = cache.findById(1).orElseThrow();
+
+        Assertions.assertNotSame(first, second);
+        Assertions.assertFalse(second.getLocked());
+        Assertions.assertFalse(second.getMetaData().containsKey("changed"));
+    }
+}
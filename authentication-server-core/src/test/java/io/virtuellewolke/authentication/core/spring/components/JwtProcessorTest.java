@@ -0,0 +1,81 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.exceptions.SecurityTokenInvalidException;
+import io.virtuellewolke.authentication.core.spring.configuration.JwtConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+class JwtProcessorTest {
+
+    private static final String OLD_SECRET = "old-secret-old-secret-old-secret-old-secret-old-secret-old-secret";
+    private static final String NEW_SECRET = "new-secret-new-secret-new-secret-new-secret-new-secret-new-secret";
+
+    @Test
+    public void testRoundTrip() {
+        JwtProcessor processor = new JwtProcessor(NEW_SECRET, getConfiguration("v2", Map.of()));
+
+        Assertions.assertEquals("42", processor.validateToken(processor.getJwtTokenFor(getIdentity(), null)).get("uid").toString());
+    }
+
+    @Test
+    public void testRetiredKeyIsStillAccepted() {
+        String token = new JwtProcessor(OLD_SECRET, getConfiguration("v1", Map.of())).getJwtTokenFor(getIdentity(), null);
+
+        JwtProcessor rotated = new JwtProcessor(NEW_SECRET, getConfiguration("v2", Map.of("v1", OLD_SECRET)));
+
+        Assertions.assertEquals("admin", rotated.validateToken(token).getSubject());
+    }
+
+    @Test
+    public void testUnknownKeyIsRejected() {
+        String token = new JwtProcessor(OLD_SECRET, getConfiguration("v1", Map.of())).getJwtTokenFor(getIdentity(), null);
+
+        JwtProcessor rotated = new JwtProcessor(NEW_SECRET, getConfiguration("v2", Map.of()));
+
+        Assertions.assertThrows(SecurityTokenInvalidException.class, () -> rotated.validateToken(token));
+    }
+
+    @Test
+    public void testIdentitySnapshot() {
+        JwtProcessor processor = new JwtProcessor(NEW_SECRET, getConfiguration("v2", Map.of()));
+
+        Identity identity = getIdentity();
+        identity.setVersion(7);
+        identity.setLocked(true);
+        identity.getMetaData().put("team", "core");
+
+        Authority authority = new Authority("staff");
+        authority.setId(3);
+        identity.getAuthorities().add(authority);
+
+        Identity snapshot = processor.readIdentitySnapshot(processor.validateToken(processor.getJwtTokenFor(identity, null))).orElseThrow();
+
+        Assertions.assertEquals(42, snapshot.getId());
+        Assertions.assertEquals(7, snapshot.getVersion());
+        Assertions.assertEquals("admin", snapshot.getUsername());
+        Assertions.assertTrue(snapshot.getLocked());
+        Assertions.assertFalse(snapshot.getAdmin());
+        Assertions.assertEquals("core", snapshot.getMetaData().get("team"));
+        Assertions.assertEquals(3, snapshot.getAuthorities().get(0).getId());
+        Assertions.assertEquals("staff", snapshot.getAuthorities().get(0).getName());
+        Assertions.assertNull(snapshot.getPassword());
+    }
+
+    private static JwtConfiguration getConfiguration(String keyId, Map<String, String> retiredKeys) {
+        JwtConfiguration configuration = new JwtConfiguration();
+        configuration.setKeyId(keyId);
+        configuration.setRetiredKeys(retiredKeys);
+        return configuration;
+    }
+
+    private static Identity getIdentity() {
+        Identity identity = new Identity();
+        identity.setId(42);
+        identity.setUsername("admin");
+        return identity;
+    }
+}
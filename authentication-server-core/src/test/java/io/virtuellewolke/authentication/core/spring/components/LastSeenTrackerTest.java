@@ -0,0 +1,72 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+
+class LastSeenTrackerTest {
+
+    private JdbcTemplate    jdbcTemplate;
+    private LastSeenTracker tracker;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        tracker      = new LastSeenTracker(jdbcTemplate, 2, Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void testUsesAreCoalescedIntoOneBatchPerKind() {
+        tracker.record(LastSeenTracker.Kind.CERTIFICATE, BigInteger.ONE);
+        tracker.record(LastSeenTracker.Kind.CERTIFICATE, BigInteger.ONE);
+        tracker.record(LastSeenTracker.Kind.COOKIE, 1);
+
+        tracker.flush();
+
+        Assertions.assertEquals(1, flushedRows("update client_auth_cert set last_access = ? where serial = ?").size());
+        Assertions.assertEquals(1, flushedRows("update identity set last_cookie_use = ? where id = ?").size());
+        Mockito.verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testWrittenKeyIsNotRecordedWithinResolution() {
+        tracker.record(LastSeenTracker.Kind.API_TOKEN, 1);
+        tracker.flush();
+        Mockito.clearInvocations(jdbcTemplate);
+
+        tracker.record(LastSeenTracker.Kind.API_TOKEN, 1);
+        tracker.flush();
+
+        Mockito.verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testNewKeysAreDroppedWhenFull() {
+        tracker.record(LastSeenTracker.Kind.API_TOKEN, 1);
+        tracker.record(LastSeenTracker.Kind.API_TOKEN, 2);
+        tracker.record(LastSeenTracker.Kind.API_TOKEN, 3);
+        tracker.record(LastSeenTracker.Kind.API_TOKEN, 1);
+
+        tracker.flush();
+
+        Assertions.assertEquals(2, flushedRows("update identity set last_api_token_use = ? where id = ?").size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> flushedRows(String sql) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+
+        Mockito.verify(jdbcTemplate).batchUpdate(Mockito.eq(sql), rows.capture(), Mockito.eq(LastSeenTracker.BATCH_SIZE),
+                Mockito.<ParameterizedPreparedStatementSetter<Object[]>>any());
+
+        return rows.getValue();
+    }
+}
@@ -0,0 +1,50 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.spring.components.login.InMemoryLoginAttemptStore;
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class LoginSecurityTest {
+
+    @Test
+    public void testWhitelistedSourcesAreNeverBlocked() {
+        CasConfiguration       configuration = new CasConfiguration();
+        LoginSecurity          security      = new LoginSecurity(configuration, new InMemoryLoginAttemptStore(configuration));
+        MockHttpServletRequest request       = getRequest("10.1.2.3");
+        MockHttpServletRequest local         = getRequest("127.0.0.1");
+
+        for (int i = 0; i < 3; i++) {
+            security.recordFailedAttempt(request);
+            security.recordFailedAttempt(local);
+        }
+
+        Assertions.assertFalse(security.isAllowedToTry(request));
+        Assertions.assertTrue(security.isAllowedToTry(local));
+
+        security.resetAttempts(request);
+        Assertions.assertTrue(security.isAllowedToTry(request));
+    }
+
+    @Test
+    public void testForwardedSource() {
+        CasConfiguration       configuration = new CasConfiguration();
+        LoginSecurity          security      = new LoginSecurity(configuration, new InMemoryLoginAttemptStore(configuration));
+        MockHttpServletRequest request       = getRequest("127.0.0.1");
+        request.addHeader("x-forwarded-for", "10.1.2.3, 127.0.0.1");
+
+        for (int i = 0; i < 3; i++) {
+            security.recordFailedAttempt(request);
+        }
+
+        Assertions.assertFalse(security.isAllowedToTry(request));
+        Assertions.assertTrue(security.isAllowedToTry(getRequest("127.0.0.1")));
+    }
+
+    private static MockHttpServletRequest getRequest(String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(ip);
+        return request;
+    }
+}
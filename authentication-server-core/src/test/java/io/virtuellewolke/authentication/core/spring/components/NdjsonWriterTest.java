@@ -0,0 +1,41 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+class NdjsonWriterTest {
+
+    private final NdjsonWriter writer = new NdjsonWriter(new ObjectMapper(), Mockito.mock(PlatformTransactionManager.class));
+
+    @Test
+    public void testOneLinePerItem() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.write(Stream.of(new Authority("staff"), new Authority("admins")), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+
+        Assertions.assertEquals(3, lines.length);
+        Assertions.assertTrue(lines[0].startsWith("{") && lines[0].contains("\"staff\""), lines[0]);
+        Assertions.assertTrue(lines[1].startsWith("{") && lines[1].contains("\"admins\""), lines[1]);
+        Assertions.assertEquals("", lines[2]);
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.write(Stream.empty(), out);
+
+        Assertions.assertEquals(0, out.size());
+    }
+}
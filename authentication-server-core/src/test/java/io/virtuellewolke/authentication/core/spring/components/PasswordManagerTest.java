@@ -0,0 +1,85 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.repository.IdentityRepository;
+import io.virtuellewolke.authentication.core.util.password.*;
+import org.apache.commons.codec.digest.Md5Crypt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+class PasswordManagerTest {
+
+    private final Argon2PasswordHasher argon2  = new Argon2PasswordHasher(1024, 1, 1);
+    private final PasswordHashers      hashers = new PasswordHashers(argon2, List.of(argon2, new Md5CryptPasswordHasher()));
+
+    private IdentityRepository repository;
+    private IdentityCache      cache;
+    private PasswordManager    manager;
+    private Identity           identity;
+
+    @BeforeEach
+    public void setup() {
+        identity = new Identity();
+        identity.setId(1);
+        identity.setUsername("user");
+        identity.setPasswordHash(Md5Crypt.md5Crypt("secret".getBytes(StandardCharsets.UTF_8)));
+
+        repository = Mockito.mock(IdentityRepository.class);
+        Mockito.when(repository.findById(1)).thenReturn(Optional.of(identity));
+
+        cache   = Mockito.mock(IdentityCache.class);
+        manager = new PasswordManager(repository, cache, hashers, 1, 1, Duration.parse("PT10S"));
+    }
+
+    @AfterEach
+    public void teardown() {
+        manager.destroy();
+    }
+
+    @Test
+    public void testLegacyHashIsUpgradedOnLogin() {
+        Assertions.assertTrue(manager.verify(identity, "secret").join());
+
+        Mockito.verify(repository, Mockito.timeout(2000)).save(identity);
+        Mockito.verify(cache, Mockito.timeout(2000)).evict(identity);
+        Assertions.assertTrue(identity.getPassword().startsWith("$argon2id$"));
+        Assertions.assertTrue(hashers.matches("secret", identity.getPassword()));
+    }
+
+    @Test
+    public void testWrongPasswordIsNotUpgraded() {
+        Assertions.assertFalse(manager.verify(identity, "wrong").join());
+
+        Assertions.assertTrue(identity.getPassword().startsWith("$1$"));
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void testCurrentHashIsNotRewritten() {
+        identity.setPasswordHash(argon2.hash("secret"));
+
+        Assertions.assertTrue(manager.verify(identity, "secret").join());
+
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void testNewPasswordIsHashedWithTheDefault() {
+        identity.setPassword("changed");
+        Assertions.assertEquals("changed", identity.getNewPassword());
+
+        manager.applyNewPassword(identity);
+
+        Assertions.assertNull(identity.getNewPassword());
+        Assertions.assertTrue(identity.getPassword().startsWith("$argon2id$"));
+        Assertions.assertTrue(hashers.matches("changed", identity.getPassword()));
+    }
+}
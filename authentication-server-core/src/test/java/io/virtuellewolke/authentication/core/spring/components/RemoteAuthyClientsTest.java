@@ -0,0 +1,99 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import feign.FeignException;
+import io.virtuellewolke.authentication.core.api.model.LoginRequest;
+import io.virtuellewolke.authentication.core.api.remote.AuthyRemoteClient;
+import io.virtuellewolke.authentication.core.api.remote.CircuitBreaker;
+import io.virtuellewolke.authentication.core.exceptions.ServiceException;
+import io.virtuellewolke.authentication.core.spring.configuration.RemoteAuthyConfiguration;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+class RemoteAuthyClientsTest {
+
+    private static final String REMOTE = "https://remote.example.com";
+
+    private RemoteAuthyConfiguration       configuration;
+    private Map<String, AuthyRemoteClient> created;
+    private AuthyRemoteClient              client;
+    private RemoteAuthyClients             clients;
+
+    @BeforeEach
+    public void setup() {
+        configuration = new RemoteAuthyConfiguration();
+        configuration.setFailureThreshold(2);
+
+        client  = Mockito.mock(AuthyRemoteClient.class);
+        created = new HashMap<>();
+        clients = new RemoteAuthyClients(configuration, new OkHttpClient(), url -> {
+            created.put(url, client);
+            return client;
+        });
+    }
+
+    @AfterEach
+    public void teardown() {
+        clients.destroy();
+    }
+
+    @Test
+    public void testClientIsCreatedOncePerRemote() {
+        clients.login(REMOTE, new LoginRequest(), "/").join();
+        clients.login(REMOTE, new LoginRequest(), "/").join();
+
+        Assertions.assertEquals(1, created.size());
+        Mockito.verify(client, Mockito.times(2)).login(Mockito.any(), Mockito.eq("/"));
+    }
+
+    @Test
+    public void testRejectedLoginDoesNotOpenTheCircuit() {
+        FeignException.Unauthorized unauthorized = Mockito.mock(FeignException.Unauthorized.class);
+        Mockito.when(unauthorized.status()).thenReturn(401);
+        Mockito.doThrow(unauthorized).when(client).login(Mockito.any(), Mockito.anyString());
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(clients.login(REMOTE, new LoginRequest(), "/").isCompletedExceptionally());
+        }
+
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, clients.getState(REMOTE));
+    }
+
+    @Test
+    public void testUnreachableRemoteOpensTheCircuit() {
+        Mockito.doThrow(new IllegalStateException("connection refused")).when(client).login(Mockito.any(), Mockito.anyString());
+
+        clients.login(REMOTE, new LoginRequest(), "/");
+        clients.login(REMOTE, new LoginRequest(), "/");
+
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, clients.getState(REMOTE));
+
+        CompletableFuture<Void> rejected = clients.login(REMOTE, new LoginRequest(), "/");
+
+        try {
+            rejected.join();
+            Assertions.fail();
+        } catch (CompletionException e) {
+            Assertions.assertTrue(e.getCause() instanceof ServiceException);
+        }
+
+        Mockito.verify(client, Mockito.times(2)).login(Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void testAsyncDelegation() {
+        configuration.setAsync(true);
+
+        clients.login(REMOTE, new LoginRequest(), "/").join();
+
+        Mockito.verify(client).login(Mockito.any(), Mockito.eq("/"));
+    }
+}
@@ -0,0 +1,115 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.projection.RevokedCertificate;
+import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
+import io.virtuellewolke.authentication.core.spring.configuration.X509ManagerConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.security.cert.X509CRL;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+class RevocationFeedTest {
+
+    private ClientAuthCertRepository repository;
+    private X509Manager              x509Manager;
+    private X509ValidationCache      validationCache;
+    private RevocationFeed           feed;
+
+    private final LocalDateTime now = LocalDateTime.of(2020, 1, 1, 12, 0);
+
+    @BeforeEach
+    public void setup() throws Exception {
+        repository      = Mockito.mock(ClientAuthCertRepository.class);
+        x509Manager     = Mockito.mock(X509Manager.class);
+        validationCache = Mockito.mock(X509ValidationCache.class);
+
+        X509CRL crl = Mockito.mock(X509CRL.class);
+        Mockito.when(crl.getEncoded()).thenReturn(new byte[]{1, 2, 3});
+        Mockito.when(x509Manager.generateCrl(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(crl);
+
+        X509ManagerConfiguration configuration = new X509ManagerConfiguration();
+        configuration.setFeedPageSize(2);
+
+        Clock clock = Clock.fixed(now.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        feed = new RevocationFeed(repository, x509Manager, validationCache, configuration, clock);
+    }
+
+    @Test
+    public void testFullPageContinuesAfterItsLastRevocation() {
+        LocalDateTime revokedAt = now.minusHours(1);
+
+        Mockito.when(repository.findRevokedAfter(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(revocation(1, revokedAt), revocation(2, revokedAt)));
+
+        RevocationFeed.Delta delta = feed.since("0");
+
+        Assertions.assertEquals(List.of(BigInteger.ONE, BigInteger.TWO), delta.getSerials());
+        Assertions.assertTrue(delta.isMore());
+        Assertions.assertEquals(millis(revokedAt) + "-2", delta.getNext());
+
+        feed.since(delta.getNext());
+
+        Mockito.verify(repository).findRevokedAfter(Mockito.eq(revokedAt), Mockito.eq(BigInteger.TWO), Mockito.any());
+    }
+
+    @Test
+    public void testLastPageRewindsByTheCommitSkew() {
+        LocalDateTime settled = now.minusSeconds(10);
+
+        Mockito.when(repository.findRevokedAfter(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(List.of(revocation(1, now)));
+
+        RevocationFeed.Delta delta = feed.since("0");
+
+        Assertions.assertFalse(delta.isMore());
+        Assertions.assertEquals(String.valueOf(millis(settled)), delta.getNext());
+
+        Mockito.when(repository.findRevokedAfter(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(List.of(revocation(1, now.minusHours(1))));
+
+        Assertions.assertEquals(millis(now.minusHours(1)) + "-1", feed.since("0").getNext());
+    }
+
+    @Test
+    public void testMalformedCursorIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> feed.since("yesterday"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> feed.since("-1"));
+    }
+
+    @Test
+    public void testCrlIsRebuiltOnlyAfterRevocationsChanged() {
+        Mockito.when(validationCache.getRevocationVersion()).thenReturn(1L);
+
+        String pem = feed.crl().getPem();
+        Assertions.assertTrue(pem.contains("X509 CRL"));
+        Assertions.assertSame(feed.crl(), feed.crl());
+
+        Mockito.when(validationCache.getRevocationVersion()).thenReturn(2L);
+        feed.crl();
+
+        Mockito.verify(x509Manager, Mockito.times(2)).generateCrl(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static RevokedCertificate revocation(int serial, LocalDateTime revokedAt) {
+        return new RevokedCertificate() {
+            @Override
+            public BigInteger getSerial() {
+                return BigInteger.valueOf(serial);
+            }
+
+            @Override
+            public LocalDateTime getRevokedAt() {
+                return revokedAt;
+            }
+        };
+    }
+}
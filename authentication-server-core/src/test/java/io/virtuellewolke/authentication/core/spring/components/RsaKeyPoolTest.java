@@ -0,0 +1,54 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RsaKeyPoolTest {
+
+    private final AtomicInteger generated = new AtomicInteger();
+
+    private RsaKeyPool pool;
+
+    @AfterEach
+    public void teardown() {
+        if (pool != null) pool.destroy();
+    }
+
+    @Test
+    public void testEmptyPoolGeneratesOnCallingThread() {
+        pool = new RsaKeyPool(4, 0, this::generate, false);
+
+        Assertions.assertNotNull(pool.take());
+        Assertions.assertTrue(generated.get() >= 1);
+    }
+
+    @Test
+    public void testPoolIsFilledAndRefilledInBackground() throws InterruptedException {
+        pool = new RsaKeyPool(4, 2, this::generate, true);
+        pool.afterPropertiesSet();
+        awaitAvailable(4);
+
+        pool.take();
+        pool.take();
+        awaitAvailable(4);
+
+        Assertions.assertEquals(6, generated.get());
+    }
+
+    private void awaitAvailable(int count) throws InterruptedException {
+        for (int i = 0; i < 200 && pool.available() < count; i++) {
+            Thread.sleep(10);
+        }
+
+        Assertions.assertEquals(count, pool.available());
+    }
+
+    private KeyPair generate() {
+        generated.incrementAndGet();
+        return new KeyPair(null, null);
+    }
+}
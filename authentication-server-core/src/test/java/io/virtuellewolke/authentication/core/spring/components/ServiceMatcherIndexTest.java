@@ -0,0 +1,81 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ServiceMatcherIndexTest {
+
+    @Test
+    public void testExactMatch() {
+        Service             service = getService("exact", "https://app.example.com/login");
+        ServiceMatcherIndex index   = new ServiceMatcherIndex(List.of(service));
+
+        Assertions.assertSame(service, index.find("https://app.example.com/login"));
+        Assertions.assertNull(index.find("https://app.example.com/login/other"));
+        Assertions.assertNull(index.find(null));
+    }
+
+    @Test
+    public void testPrefixMatch() {
+        Service             service = getService("prefix", "https://app.example.com/*");
+        ServiceMatcherIndex index   = new ServiceMatcherIndex(List.of(service));
+
+        Assertions.assertSame(service, index.find("https://app.example.com/"));
+        Assertions.assertSame(service, index.find("https://app.example.com/deep/path?x=1"));
+        Assertions.assertNull(index.find("https://appXexample.com/"));
+        Assertions.assertNull(index.find("https://other.example.com/"));
+    }
+
+    @Test
+    public void testPatternFallback() {
+        Service             service = getService("pattern", "https://*.example.com/*");
+        ServiceMatcherIndex index   = new ServiceMatcherIndex(List.of(service));
+
+        Assertions.assertSame(service, index.find("https://app.example.com/login"));
+        Assertions.assertNull(index.find("https://app.example.org/login"));
+        Assertions.assertNull(index.find("https://appXexampleXcom/login"));
+    }
+
+    @Test
+    public void testRegexSyntaxIsLiteral() {
+        Service             service = getService("literal", "https://*.example.com/a+b?c=(1)");
+        ServiceMatcherIndex index   = new ServiceMatcherIndex(List.of(service));
+
+        Assertions.assertSame(service, index.find("https://app.example.com/a+b?c=(1)"));
+        Assertions.assertNull(index.find("https://app.example.com/aab?c=(1)"));
+    }
+
+    @Test
+    public void testFirstServiceWins() {
+        Service             wildcard = getService("wildcard", "*");
+        Service             exact    = getService("exact", "/");
+        ServiceMatcherIndex index    = new ServiceMatcherIndex(List.of(wildcard, exact));
+
+        Assertions.assertSame(wildcard, index.find("/"));
+        Assertions.assertSame(exact, new ServiceMatcherIndex(List.of(exact, wildcard)).find("/"));
+    }
+
+    @Test
+    public void testDisabledServiceIsIgnored() {
+        Service disabled = getService("disabled", "*");
+        disabled.setEnabled(false);
+        Service enabled = getService("enabled", "/");
+
+        ServiceMatcherIndex index = new ServiceMatcherIndex(List.of(disabled, enabled));
+
+        Assertions.assertSame(enabled, index.find("/"));
+        Assertions.assertNull(index.find("/other"));
+    }
+
+    private Service getService(String name, String... allowedUrls) {
+        Service service = new Service();
+        service.setName(name);
+        service.setAllowedUrls(new ArrayList<>(List.of(allowedUrls)));
+
+        return service;
+    }
+}
@@ -0,0 +1,120 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.cas.store.RedisConfiguration;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import io.virtuellewolke.authentication.core.database.repository.ServiceRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import redis.embedded.RedisServer;
+
+import java.util.List;
+
+class ServiceRegistryTest {
+
+    private static RedisServer redisServer;
+
+    @BeforeAll
+    public static void setupRedis() {
+        redisServer = new RedisServer();
+        redisServer.start();
+    }
+
+    @AfterAll
+    public static void destroyRedis() {
+        redisServer.stop();
+    }
+
+    @Test
+    public void testSnapshotIsReusedUntilRefresh() {
+        ServiceRepository repository = Mockito.mock(ServiceRepository.class);
+        Mockito.when(repository.findAll()).thenReturn(List.of(getService("first")));
+
+        ServiceRegistry registry = new ServiceRegistry(repository, (JedisConnectionFactory) null);
+
+        Assertions.assertEquals(1, registry.getServices().size());
+        Assertions.assertNotNull(registry.find("https://first.example.com"));
+        Mockito.verify(repository, Mockito.times(1)).findAll();
+
+        Mockito.when(repository.findAll()).thenReturn(List.of(getService("second")));
+        registry.refresh();
+
+        Assertions.assertNull(registry.find("https://first.example.com"));
+        Assertions.assertNotNull(registry.find("https://second.example.com"));
+    }
+
+    @Test
+    public void testListedServicesAreCopies() {
+        ServiceRepository repository = Mockito.mock(ServiceRepository.class);
+        Mockito.when(repository.findAll()).thenReturn(List.of(getService("first")));
+
+        ServiceRegistry registry = new ServiceRegistry(repository, (JedisConnectionFactory) null);
+
+        Service listed = registry.getServices().get(0);
+        listed.setEnabled(false);
+        listed.getAllowedUrls().clear();
+
+        Assertions.assertNotNull(registry.find("https://first.example.com"));
+        Assertions.assertNotSame(listed, registry.find("https://first.example.com"));
+    }
+
+    @Test
+    public void testAllowedServicesAreFilteredCopies() {
+        Service open  = getService("public");
+        Service admin = getService("admin");
+        open.setMode(Service.ServiceMode.PUBLIC);
+        admin.setMode(Service.ServiceMode.ADMIN);
+
+        ServiceRepository repository = Mockito.mock(ServiceRepository.class);
+        Mockito.when(repository.findAll()).thenReturn(List.of(open, admin));
+
+        ServiceRegistry registry = new ServiceRegistry(repository, (JedisConnectionFactory) null);
+
+        List<Service> allowed = registry.getServicesAllowedFor(new Identity());
+        Assertions.assertEquals(1, allowed.size());
+        Assertions.assertEquals("public", allowed.get(0).getName());
+        Assertions.assertNotSame(registry.find("https://public.example.com"), allowed.get(0));
+    }
+
+    @Test
+    public void testOtherNodeReloadsOnNewerVersion() {
+        ServiceRepository repository = Mockito.mock(ServiceRepository.class);
+        Mockito.when(repository.findAll()).thenReturn(List.of(getService("first")));
+
+        ServiceRegistry local  = new ServiceRegistry(repository, getConnectionFactory());
+        ServiceRegistry remote = new ServiceRegistry(repository, getConnectionFactory());
+
+        Assertions.assertNotNull(remote.find("https://first.example.com"));
+
+        Mockito.when(repository.findAll()).thenReturn(List.of(getService("second")));
+        local.refresh();
+
+        remote.poll();
+        Assertions.assertNotNull(remote.find("https://second.example.com"));
+
+        // nothing changed since, polling again must not hit the database
+        Mockito.clearInvocations(repository);
+        remote.poll();
+        Mockito.verify(repository, Mockito.never()).findAll();
+    }
+
+    private static JedisConnectionFactory getConnectionFactory() {
+        RedisConfiguration configuration = new RedisConfiguration();
+        configuration.setHost("localhost");
+        configuration.setPort(6379);
+        configuration.setSsl(false);
+
+        return new JedisConnectionFactory(configuration);
+    }
+
+    private static Service getService(String name) {
+        Service service = new Service();
+        service.setName(name);
+        service.getAllowedUrls().add("https://" + name + ".example.com");
+        return service;
+    }
+}
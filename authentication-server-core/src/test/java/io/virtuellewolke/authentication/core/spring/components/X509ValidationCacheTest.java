@@ -0,0 +1,121 @@
+package io.virtuellewolke.authentication.core.spring.components;
+
+import io.virtuellewolke.authentication.core.cas.store.RedisConfiguration;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.database.repository.ClientAuthCertRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import redis.embedded.RedisServer;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+class X509ValidationCacheTest {
+
+    private static final Instant NOW = Instant.parse("2020-01-01T00:00:00Z");
+
+    private static RedisServer redisServer;
+
+    private ClientAuthCertRepository repository;
+    private X509ValidationCache      cache;
+
+    @BeforeAll
+    public static void setupRedis() {
+        redisServer = new RedisServer();
+        redisServer.start();
+    }
+
+    @AfterAll
+    public static void destroyRedis() {
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    public void setup() {
+        repository = Mockito.mock(ClientAuthCertRepository.class);
+        cache      = new X509ValidationCache(repository, null, Duration.ofMinutes(5), 100, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testRevokedCertificateIsNotFoundAnymore() {
+        cache.put("a", certificate(1, NOW.plusSeconds(60)));
+        Assertions.assertTrue(cache.find("a").isPresent());
+
+        cache.revoked(BigInteger.ONE);
+
+        Assertions.assertTrue(cache.find("a").isEmpty());
+        Assertions.assertTrue(cache.isRevoked(BigInteger.ONE));
+    }
+
+    @Test
+    public void testExpiredCertificateIsNotFound() {
+        cache.put("a", certificate(1, NOW));
+
+        Assertions.assertTrue(cache.find("a").isEmpty());
+    }
+
+    @Test
+    public void testReloadReplacesRevokedSerials() {
+        Mockito.when(repository.findRevokedSerials()).thenReturn(List.of(BigInteger.TWO));
+        cache.put("a", certificate(1, NOW.plusSeconds(60)));
+        cache.put("b", certificate(2, NOW.plusSeconds(60)));
+
+        cache.reload();
+
+        Assertions.assertTrue(cache.find("a").isPresent());
+        Assertions.assertTrue(cache.find("b").isEmpty());
+
+        // serial 2 was deleted by the cleanup, stale entries must not resolve again
+        cache.put("b", certificate(2, NOW.plusSeconds(60)));
+        Mockito.when(repository.findRevokedSerials()).thenReturn(List.of());
+        cache.reload();
+
+        Assertions.assertFalse(cache.isRevoked(BigInteger.TWO));
+        Assertions.assertTrue(cache.find("b").isEmpty());
+    }
+
+    @Test
+    public void testRevocationReachesOtherNodes() throws InterruptedException {
+        X509ValidationCache local  = new X509ValidationCache(repository, getConnectionFactory(), Duration.ofMinutes(5), 100, Clock.fixed(NOW, ZoneOffset.UTC));
+        X509ValidationCache remote = new X509ValidationCache(repository, getConnectionFactory(), Duration.ofMinutes(5), 100, Clock.fixed(NOW, ZoneOffset.UTC));
+        remote.afterPropertiesSet();
+
+        try {
+            remote.put("a", certificate(1, NOW.plusSeconds(60)));
+
+            // the subscriber reloads once subscribed, wait for it before publishing
+            Mockito.verify(repository, Mockito.timeout(5000)).findRevokedSerials();
+            local.revoked(BigInteger.ONE);
+
+            for (int i = 0; i < 50 && remote.find("a").isPresent(); i++) {
+                Thread.sleep(100);
+            }
+
+            Assertions.assertTrue(remote.find("a").isEmpty());
+            Assertions.assertTrue(remote.isRevoked(BigInteger.ONE));
+        } finally {
+            remote.destroy();
+        }
+    }
+
+    private static JedisConnectionFactory getConnectionFactory() {
+        RedisConfiguration configuration = new RedisConfiguration();
+        configuration.setHost("localhost");
+        configuration.setPort(6379);
+        configuration.setSsl(false);
+
+        return new JedisConnectionFactory(configuration);
+    }
+
+    private static X509ValidationCache.VerifiedCertificate certificate(int serial, Instant notAfter) {
+        return new X509ValidationCache.VerifiedCertificate(BigInteger.valueOf(serial), serial, "user" + serial, notAfter);
+    }
+}
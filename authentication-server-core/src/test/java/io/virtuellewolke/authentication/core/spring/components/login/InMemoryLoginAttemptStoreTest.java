@@ -0,0 +1,83 @@
+package io.virtuellewolke.authentication.core.spring.components.login;
+
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+class InMemoryLoginAttemptStoreTest {
+
+    private static final class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2020-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    @Test
+    public void testBlockedWithinWindow() {
+        MutableClock              clock = new MutableClock();
+        InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(new CasConfiguration(), clock);
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertFalse(store.isBlocked("10.1.2.3"));
+            store.recordFailure("10.1.2.3");
+            clock.instant = clock.instant.plus(Duration.parse("PT10M"));
+        }
+
+        Assertions.assertTrue(store.isBlocked("10.1.2.3"));
+        Assertions.assertFalse(store.isBlocked("10.1.2.4"));
+
+        // blocked until one window after the last failure, not the first one
+        clock.instant = clock.instant.plus(Duration.parse("PT45M"));
+        Assertions.assertTrue(store.isBlocked("10.1.2.3"));
+
+        clock.instant = clock.instant.plus(Duration.parse("PT6M"));
+        Assertions.assertFalse(store.isBlocked("10.1.2.3"));
+    }
+
+    @Test
+    public void testQuietSourceStartsOver() {
+        MutableClock              clock = new MutableClock();
+        InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(new CasConfiguration(), clock);
+
+        store.recordFailure("10.1.2.3");
+        store.recordFailure("10.1.2.3");
+
+        clock.instant = clock.instant.plus(Duration.parse("PT1H"));
+        store.recordFailure("10.1.2.3");
+
+        Assertions.assertFalse(store.isBlocked("10.1.2.3"));
+    }
+
+    @Test
+    public void testReset() {
+        InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(new CasConfiguration());
+
+        for (int i = 0; i < 3; i++) {
+            store.recordFailure("10.1.2.3");
+        }
+
+        Assertions.assertTrue(store.isBlocked("10.1.2.3"));
+
+        store.reset("10.1.2.3");
+        Assertions.assertFalse(store.isBlocked("10.1.2.3"));
+    }
+}
@@ -0,0 +1,56 @@
+package io.virtuellewolke.authentication.core.spring.components.login;
+
+import io.virtuellewolke.authentication.core.cas.store.RedisConfiguration;
+import io.virtuellewolke.authentication.core.cas.store.clients.JedisConnectionFactory;
+import io.virtuellewolke.authentication.core.spring.configuration.CasConfiguration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.embedded.RedisServer;
+
+class RedisLoginAttemptStoreTest {
+
+    private static RedisServer            redisServer;
+    private static JedisConnectionFactory connectionFactory;
+
+    @BeforeAll
+    public static void setupRedis() {
+        redisServer = new RedisServer();
+        redisServer.start();
+
+        RedisConfiguration configuration = new RedisConfiguration();
+        configuration.setHost("localhost");
+        configuration.setPort(6379);
+        configuration.setSsl(false);
+
+        connectionFactory = new JedisConnectionFactory(configuration);
+    }
+
+    @AfterAll
+    public static void destroyRedis() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    public void testNodesShareTheLimit() {
+        RedisLoginAttemptStore first  = new RedisLoginAttemptStore(connectionFactory, new CasConfiguration());
+        RedisLoginAttemptStore second = new RedisLoginAttemptStore(connectionFactory, new CasConfiguration());
+
+        first.recordFailure("10.9.8.7");
+        first.recordFailure("10.9.8.7");
+        Assertions.assertFalse(first.isBlocked("10.9.8.7"));
+
+        second.recordFailure("10.9.8.7");
+        Assertions.assertTrue(second.isBlocked("10.9.8.7"));
+
+        second.reset("10.9.8.7");
+        Assertions.assertFalse(second.isBlocked("10.9.8.7"));
+
+        first.recordFailure("10.9.8.7");
+        Assertions.assertFalse(first.isBlocked("10.9.8.7"));
+
+        first.reset("10.9.8.7");
+    }
+}
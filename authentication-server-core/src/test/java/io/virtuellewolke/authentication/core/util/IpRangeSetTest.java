@@ -0,0 +1,39 @@
+package io.virtuellewolke.authentication.core.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class IpRangeSetTest {
+
+    @Test
+    public void testRanges() {
+        IpRangeSet set = new IpRangeSet("::1", "127.0.0.1/32", "172.16.0.1/16", "2001:db8::/32");
+
+        Assertions.assertTrue(set.contains("127.0.0.1"));
+        Assertions.assertFalse(set.contains("127.0.0.2"));
+        Assertions.assertTrue(set.contains("172.16.200.3"));
+        Assertions.assertFalse(set.contains("172.17.0.1"));
+        Assertions.assertTrue(set.contains("::1"));
+        Assertions.assertTrue(set.contains("2001:db8:1::5"));
+        Assertions.assertFalse(set.contains("2001:db9::5"));
+    }
+
+    @Test
+    public void testNoLookupForHostNames() {
+        IpRangeSet set = new IpRangeSet("127.0.0.1/32");
+
+        Assertions.assertFalse(set.contains("localhost"));
+        Assertions.assertFalse(set.contains("cafe.de"));
+        Assertions.assertFalse(set.contains("bad.beef"));
+        Assertions.assertFalse(set.contains("face"));
+        Assertions.assertFalse(set.contains(""));
+        Assertions.assertFalse(set.contains(null));
+    }
+
+    @Test
+    public void testInvalidRange() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IpRangeSet("10.0.0.0/33"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IpRangeSet("example.com"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IpRangeSet("cafe.de/16"));
+    }
+}
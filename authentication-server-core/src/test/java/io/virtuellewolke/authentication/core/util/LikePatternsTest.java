@@ -0,0 +1,15 @@
+package io.virtuellewolke.authentication.core.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LikePatternsTest {
+
+    @Test
+    public void testPrefix() {
+        Assertions.assertEquals("sea%", LikePatterns.prefix(" Sea "));
+        Assertions.assertEquals("100!%!_!!%", LikePatterns.prefix("100%_!"));
+        Assertions.assertNull(LikePatterns.prefix(" "));
+        Assertions.assertNull(LikePatterns.prefix(null));
+    }
+}
@@ -0,0 +1,61 @@
+package io.virtuellewolke.authentication.core.util;
+
+import io.virtuellewolke.authentication.core.database.entity.Authority;
+import io.virtuellewolke.authentication.core.database.entity.Identity;
+import io.virtuellewolke.authentication.core.database.entity.Service;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class RoleSetTest {
+
+    @Test
+    public void testIntersects() {
+        RoleSet staff  = RoleSet.of(List.of("role-test.staff", "role-test.users"));
+        RoleSet admins = RoleSet.of(List.of("role-test.admins"));
+
+        Assertions.assertTrue(staff.intersects(RoleSet.of(List.of("role-test.users"))));
+        Assertions.assertFalse(staff.intersects(admins));
+        Assertions.assertFalse(staff.intersects(RoleSet.EMPTY));
+        Assertions.assertTrue(staff.contains("role-test.staff"));
+        Assertions.assertFalse(staff.contains("role-test.unknown"));
+    }
+
+    @Test
+    public void testManyRoles() {
+        List<String> roles = new ArrayList<>();
+        for (int i = 0; i < 200; i++) roles.add("role-test.many." + i);
+
+        RoleSet all  = RoleSet.of(roles);
+        RoleSet last = RoleSet.of(List.of("role-test.many.199"));
+
+        Assertions.assertTrue(all.intersects(last));
+        Assertions.assertTrue(last.intersects(all));
+        Assertions.assertFalse(RoleSet.of(roles.subList(0, 100)).intersects(last));
+    }
+
+    @Test
+    public void testMemoFollowsChanges() {
+        Service service = new Service();
+        service.setMode(Service.ServiceMode.AUTHORIZED);
+        service.getRequiredRoles().add("role-test.staff");
+
+        Identity  identity  = new Identity();
+        Authority authority = new Authority("role-test.staff");
+        identity.getAuthorities().add(authority);
+
+        Assertions.assertTrue(service.isIdentityAllowed(identity));
+        Assertions.assertSame(identity.getRoleSet(), identity.getRoleSet());
+
+        authority.setName("role-test.renamed");
+        Assertions.assertFalse(service.isIdentityAllowed(identity));
+
+        service.getRequiredRoles().set(0, "role-test.renamed");
+        Assertions.assertTrue(service.isIdentityAllowed(identity));
+
+        identity.getAuthorities().clear();
+        Assertions.assertFalse(service.isIdentityAllowed(identity));
+    }
+}
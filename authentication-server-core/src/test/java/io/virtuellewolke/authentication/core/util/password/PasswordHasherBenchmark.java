@@ -0,0 +1,58 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a single password verification per algorithm and parameter set, to size {@code app.password.*}
+ * against the login latency budget. Not part of the test run, start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<this class>} or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PasswordHasherBenchmark {
+
+    @Param({"argon2id:19456:2:1", "argon2id:47104:1:1", "argon2id:65536:3:1", "bcrypt:10", "bcrypt:12", "pbkdf2:310000", "md5-crypt"})
+    public String parameters;
+
+    private PasswordHasher hasher;
+    private String         hash;
+
+    @Setup
+    public void setup() {
+        String[] parts = parameters.split(":");
+
+        switch (parts[0]) {
+            case "argon2id":
+                hasher = new Argon2PasswordHasher(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                break;
+            case "bcrypt":
+                hasher = new BCryptPasswordHasher(Integer.parseInt(parts[1]));
+                break;
+            case "pbkdf2":
+                hasher = new Pbkdf2PasswordHasher(Integer.parseInt(parts[1]));
+                break;
+            default:
+                hasher = new Md5CryptPasswordHasher();
+        }
+
+        hash = hasher.hash("correct horse battery staple");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.matches("correct horse battery staple", hash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PasswordHasherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,64 @@
+package io.virtuellewolke.authentication.core.util.password;
+
+import org.apache.commons.codec.digest.Md5Crypt;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class PasswordHashersTest {
+
+    private final Argon2PasswordHasher argon2 = new Argon2PasswordHasher(1024, 1, 1);
+    private final BCryptPasswordHasher bcrypt = new BCryptPasswordHasher(4);
+    private final Pbkdf2PasswordHasher pbkdf2 = new Pbkdf2PasswordHasher(1000);
+
+    private final PasswordHashers hashers = new PasswordHashers(argon2, List.of(argon2, bcrypt, pbkdf2, new Md5CryptPasswordHasher()));
+
+    @Test
+    public void testEveryHasherVerifiesItsOwnHashes() {
+        for (PasswordHasher hasher : List.of(argon2, bcrypt, pbkdf2, new Md5CryptPasswordHasher())) {
+            String hash = hasher.hash("secret");
+
+            Assertions.assertTrue(hasher.supports(hash), hasher.getAlgorithm());
+            Assertions.assertTrue(hashers.matches("secret", hash), hasher.getAlgorithm());
+            Assertions.assertFalse(hashers.matches("wrong", hash), hasher.getAlgorithm());
+        }
+    }
+
+    @Test
+    public void testArgon2Format() {
+        String hash = argon2.hash("secret");
+
+        Assertions.assertTrue(hash.startsWith("$argon2id$v=19$m=1024,t=1,p=1$"), hash);
+        Assertions.assertNotEquals(hash, argon2.hash("secret"));
+    }
+
+    @Test
+    public void testLegacyHashesNeedRehash() {
+        String legacy = Md5Crypt.md5Crypt("secret".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertTrue(hashers.matches("secret", legacy));
+        Assertions.assertTrue(hashers.needsRehash(legacy));
+        Assertions.assertTrue(hashers.needsRehash(bcrypt.hash("secret")));
+        Assertions.assertFalse(hashers.needsRehash(argon2.hash("secret")));
+    }
+
+    @Test
+    public void testChangedParametersNeedRehash() {
+        String hash = new Argon2PasswordHasher(2048, 1, 1).hash("secret");
+
+        Assertions.assertTrue(hashers.matches("secret", hash));
+        Assertions.assertTrue(hashers.needsRehash(hash));
+        Assertions.assertTrue(new BCryptPasswordHasher(5).needsRehash(bcrypt.hash("secret")));
+        Assertions.assertTrue(new Pbkdf2PasswordHasher(2000).needsRehash(pbkdf2.hash("secret")));
+    }
+
+    @Test
+    public void testPlaintextAndUnknownHashesNeverMatch() {
+        Assertions.assertFalse(hashers.matches("secret", "secret"));
+        Assertions.assertFalse(hashers.matches("secret", "$argon2id$broken"));
+        Assertions.assertFalse(hashers.matches(null, argon2.hash("secret")));
+        Assertions.assertFalse(hashers.matches("secret", null));
+    }
+}